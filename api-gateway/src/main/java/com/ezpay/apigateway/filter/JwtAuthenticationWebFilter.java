@@ -3,6 +3,7 @@ package com.ezpay.apigateway.filter;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.ezpay.apigateway.exception.ApiException;
 import com.ezpay.apigateway.service.RateLimiterService;
+import com.ezpay.apigateway.service.TokenRevocationRegistry;
 import com.ezpay.apigateway.service.ValidationService;
 import com.ezpay.apigateway.config.KeyStoreConfig;
 import com.ezpay.apigateway.util.ResponseUtil;
@@ -10,7 +11,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -27,7 +27,6 @@ import reactor.core.publisher.Mono;
 import java.security.cert.X509Certificate;
 import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Component
@@ -39,12 +38,6 @@ public class JwtAuthenticationWebFilter implements WebFilter {
     @Value("${auth.bypass-paths:/api/user/login,/api/otp/**,/api/login,/actuator/**,/fallback,/swagger-ui.html,/api-docs/**}")
     private String[] bypassPaths;
 
-    @Value("${token.cache.ttl-seconds:3600}")
-    private long tokenCacheTtlSeconds;
-
-    @Value("${token.cache.key-prefix:token:cache:}")
-    private String tokenCacheKeyPrefix;
-
     @Value("${dev.skip-mtls-validation:false}")
     private boolean skipMtlsValidation;
 
@@ -56,7 +49,7 @@ public class JwtAuthenticationWebFilter implements WebFilter {
 
     private final ValidationService validationService;
     private final RateLimiterService rateLimiterService;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final TokenRevocationRegistry revocationRegistry;
     private final KeyStoreConfig keyStoreConfig;
 
     private final AtomicLong successfulAuths = new AtomicLong();
@@ -64,11 +57,11 @@ public class JwtAuthenticationWebFilter implements WebFilter {
 
     public JwtAuthenticationWebFilter(ValidationService validationService,
                                       RateLimiterService rateLimiterService,
-                                      RedisTemplate<String, String> redisTemplate,
+                                      TokenRevocationRegistry revocationRegistry,
                                       KeyStoreConfig keyStoreConfig) {
         this.validationService = validationService;
         this.rateLimiterService = rateLimiterService;
-        this.redisTemplate = redisTemplate;
+        this.revocationRegistry = revocationRegistry;
         this.keyStoreConfig = keyStoreConfig;
     }
 
@@ -95,24 +88,6 @@ public class JwtAuthenticationWebFilter implements WebFilter {
         }
 
         String token = authHeader.substring(7);
-        String cacheKey = tokenCacheKeyPrefix + token;
-
-        // Short-circuit: token validated recently
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(cacheKey))) {
-            try {
-                DecodedJWT decoded = validationService.verifyToken(token);
-                exchange.getAttributes().put(ATTR_DECODED_JWT, decoded);
-                var auth = buildAuthentication(decoded, token);
-                SecurityContextImpl ctx = new SecurityContextImpl(auth);
-                successfulAuths.incrementAndGet();
-                return chain.filter(exchange).contextWrite(ReactiveSecurityContextHolder.withSecurityContext(Mono.just(ctx)));
-            } catch (ApiException e) {
-                return handleFailure(exchange, "400", e.getMessage(), e);
-            } catch (Exception e) {
-                return handleFailure(exchange, "internal_server_error", "Internal server error: " + e.getMessage(), e);
-            }
-        }
-
         try {
             // mTLS validation
 //            if (!skipMtlsValidation) {
@@ -136,14 +111,20 @@ public class JwtAuthenticationWebFilter implements WebFilter {
                 return ResponseUtil.setErrorResponse(exchange, HttpStatus.TOO_MANY_REQUESTS, "rate_limit_exceeded", "Rate limit exceeded");
             }
 
-            // Session token validation (placeholder)
-            if (!validateSessionToken(deviceId, token)) {
+            DecodedJWT decoded = validationService.verifyToken(token);
+
+            // Sessions are per device: the token must name the device presenting it
+            String tokenDeviceId = decoded.getClaim("deviceId").asString();
+            if (deviceId == null || tokenDeviceId == null || !tokenDeviceId.equals(deviceId)) {
                 return ResponseUtil.setErrorResponse(exchange, HttpStatus.UNAUTHORIZED, "invalid_session", "Invalid session token");
             }
 
-            DecodedJWT decoded = validationService.verifyToken(token);
+            // Replaced or revoked sessions, as broadcast by auth-service. Checked in memory: the
+            // Bloom filter clears almost every token and only its positives reach the exact set.
+            if (revocationRegistry.isRevoked(decoded.getId())) {
+                return ResponseUtil.setErrorResponse(exchange, HttpStatus.UNAUTHORIZED, "invalid_session", "Invalid session token");
+            }
             exchange.getAttributes().put(ATTR_DECODED_JWT, decoded);
-            redisTemplate.opsForValue().set(cacheKey, "1", tokenCacheTtlSeconds, TimeUnit.SECONDS);
 
             var auth = buildAuthentication(decoded, token);
             SecurityContextImpl ctx = new SecurityContextImpl(auth);
@@ -169,14 +150,6 @@ public class JwtAuthenticationWebFilter implements WebFilter {
         }
     }
 
-    private boolean validateSessionToken(String deviceId, String token) {
-        // Placeholder: Validate session token in Redis or external service
-        if (deviceId == null) return false;
-        String sessionKey = "session:token:" + deviceId;
-        String storedToken = redisTemplate.opsForValue().get(sessionKey);
-        return token.equals(storedToken);
-    }
-
     private UsernamePasswordAuthenticationToken buildAuthentication(DecodedJWT jwt, String token) {
         String subject = jwt.getSubject() != null ? jwt.getSubject() : jwt.getClaim("sub").asString();
         List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
@@ -0,0 +1,55 @@
+package com.ezpay.apigateway.model;
+
+/**
+ * Access-token revocation broadcast by auth-service.
+ */
+public class TokenRevocationEvent {
+    private String jti;
+    private String deviceId;
+    private String reason;
+    private long expiresAt;
+    private long revokedAt;
+
+    public TokenRevocationEvent() {}
+
+    // Getters and Setters
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public long getRevokedAt() {
+        return revokedAt;
+    }
+
+    public void setRevokedAt(long revokedAt) {
+        this.revokedAt = revokedAt;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ezpay.apigateway.service;
+
+import com.ezpay.apigateway.model.TokenRevocationEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Consumes auth-service revocation events. Every gateway instance uses its own consumer group so
+ * each one sees every event. The group is named after the host ({@code auth.revocation.instance-id}
+ * overrides it), so a restart rejoins its group instead of leaving a new one on the broker. On
+ * partition assignment the Redis snapshot is reloaded to cover anything published while the
+ * instance was not listening.
+ */
+@Component
+public class TokenRevocationListener implements ConsumerSeekAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRevocationListener.class);
+
+    private final TokenRevocationRegistry revocationRegistry;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public TokenRevocationListener(TokenRevocationRegistry revocationRegistry, MeterRegistry meterRegistry) {
+        this.revocationRegistry = revocationRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @KafkaListener(topics = "${auth.revocation.topic:auth-token-revocations}",
+            groupId = "api-gateway-revocation-${auth.revocation.instance-id:#{T(java.net.InetAddress).getLocalHost().getHostName()}}",
+            properties = "auto.offset.reset=latest")
+    public void consume(String message) {
+        try {
+            TokenRevocationEvent event = objectMapper.readValue(message, TokenRevocationEvent.class);
+            revocationRegistry.revoke(event.getJti(), event.getExpiresAt(), event.getRevokedAt());
+            meterRegistry.counter("gateway.revocation.events", "reason", String.valueOf(event.getReason())).increment();
+            LOGGER.debug("Token revoked: device={}, reason={}", event.getDeviceId(), event.getReason());
+        } catch (Exception e) {
+            LOGGER.error("Failed to process revocation event: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        revocationRegistry.loadSnapshot();
+    }
+}
@@ -0,0 +1,111 @@
+package com.ezpay.apigateway.service;
+
+import com.ezpay.infraservice.util.BloomFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory set of revoked access tokens, fed by auth-service revocation events.
+ * A Bloom filter answers the common "not revoked" case; positives are confirmed against an exact
+ * map keyed by jti. Entries are dropped once the token would have expired anyway, and the filters
+ * rotate on the same horizon so memory stays bounded by recent revocations.
+ */
+@Service
+public class TokenRevocationRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRevocationRegistry.class);
+    private static final String SNAPSHOT_KEY = "revocation:tokens";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final AtomicLong lastEventAt = new AtomicLong();
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile long rotatedAt = System.currentTimeMillis();
+
+    @Value("${auth.revocation.max-token-lifetime-seconds:3600}")
+    private long maxTokenLifetimeSeconds;
+
+    public TokenRevocationRegistry(RedisTemplate<String, String> redisTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${auth.revocation.expected-entries:100000}") int expectedEntries,
+                                   @Value("${auth.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.redisTemplate = redisTemplate;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.current = new BloomFilter(expectedEntries, falsePositiveRate);
+        this.previous = new BloomFilter(expectedEntries, falsePositiveRate);
+        meterRegistry.gauge("gateway.revocation.entries", revoked, Map::size);
+        meterRegistry.gauge("gateway.revocation.staleness.seconds", lastEventAt,
+                t -> t.get() == 0 ? 0 : Instant.now().getEpochSecond() - t.get());
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        if (!current.mightContain(jti) && !previous.mightContain(jti)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(jti);
+        return expiresAt != null && expiresAt > Instant.now().getEpochSecond();
+    }
+
+    public void revoke(String jti, long expiresAt, long revokedAt) {
+        if (jti == null || expiresAt <= Instant.now().getEpochSecond()) {
+            return;
+        }
+        revoked.put(jti, expiresAt);
+        current.put(jti);
+        lastEventAt.accumulateAndGet(revokedAt, Math::max);
+    }
+
+    /**
+     * Loads every revocation whose token has not yet expired. Called whenever the listener gets
+     * its partitions, which covers events published while this gateway was down.
+     */
+    public void loadSnapshot() {
+        try {
+            long now = Instant.now().getEpochSecond();
+            Set<ZSetOperations.TypedTuple<String>> entries =
+                    redisTemplate.opsForZSet().rangeByScoreWithScores(SNAPSHOT_KEY, now, Double.MAX_VALUE);
+            if (entries == null) {
+                return;
+            }
+            entries.forEach(e -> revoke(e.getValue(), e.getScore() == null ? 0 : e.getScore().longValue(), now));
+            LOGGER.info("Loaded {} token revocations from snapshot at {}", entries.size(), Instant.now());
+        } catch (Exception e) {
+            LOGGER.error("Failed to load token revocation snapshot: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.revocation.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        long now = Instant.now().getEpochSecond();
+        revoked.entrySet().removeIf(e -> e.getValue() <= now);
+
+        // Everything added before the last rotation has expired by now, so the older filter can go
+        if (System.currentTimeMillis() - rotatedAt >= maxTokenLifetimeSeconds * 1000) {
+            previous = current;
+            current = new BloomFilter(expectedEntries, falsePositiveRate);
+            rotatedAt = System.currentTimeMillis();
+            // Re-seed from the exact map so nothing live is lost if lifetimes exceed the horizon
+            revoked.keySet().forEach(current::put);
+        }
+    }
+}
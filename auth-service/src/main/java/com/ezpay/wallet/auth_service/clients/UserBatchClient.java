@@ -0,0 +1,157 @@
+package com.ezpay.wallet.auth_service.clients;
+
+import com.ezpay.wallet.auth_service.dto.response.UserSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Groups single user lookups into calls to user-service's {@code /internal/user/batch}. The first
+ * lookup in a window schedules a flush {@code window-ms} later; every lookup arriving before then
+ * rides along, and duplicate keys share one future. Futures complete with {@code null} when the
+ * user does not exist.
+ */
+@Service
+public class UserBatchClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserBatchClient.class);
+    private static final ParameterizedTypeReference<List<UserSummary>> SUMMARY_LIST = new ParameterizedTypeReference<>() {};
+
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final String batchUrl;
+    private final long windowMs;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<UserSummary>> pendingIds = new HashMap<>();
+    private Map<String, CompletableFuture<UserSummary>> pendingMobiles = new HashMap<>();
+    private boolean flushScheduled;
+
+    public UserBatchClient(RestTemplate restTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${url.service.user}") String userServiceUrl,
+                           @Value("${user.batch.window-ms:5}") long windowMs,
+                           @Value("${user.batch.max-size:200}") int maxBatchSize,
+                           @Value("${user.batch.threads:2}") int threads) {
+        this.restTemplate = restTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchUrl = userServiceUrl + "/internal/user/batch";
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        AtomicInteger counter = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread t = new Thread(r, "user-batch-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CompletableFuture<UserSummary> findByMobile(String mobileNumber) {
+        synchronized (lock) {
+            CompletableFuture<UserSummary> future = pendingMobiles.computeIfAbsent(mobileNumber, k -> new CompletableFuture<>());
+            scheduleFlushLocked();
+            return future;
+        }
+    }
+
+    public CompletableFuture<UserSummary> findById(Long id) {
+        synchronized (lock) {
+            CompletableFuture<UserSummary> future = pendingIds.computeIfAbsent(id, k -> new CompletableFuture<>());
+            scheduleFlushLocked();
+            return future;
+        }
+    }
+
+    private void scheduleFlushLocked() {
+        if (pendingIds.size() + pendingMobiles.size() >= maxBatchSize) {
+            flushScheduled = true;
+            scheduler.execute(this::flush);
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<Long, CompletableFuture<UserSummary>> ids;
+        Map<String, CompletableFuture<UserSummary>> mobiles;
+        synchronized (lock) {
+            if (pendingIds.isEmpty() && pendingMobiles.isEmpty()) {
+                flushScheduled = false;
+                return;
+            }
+            ids = pendingIds;
+            mobiles = pendingMobiles;
+            pendingIds = new HashMap<>();
+            pendingMobiles = new HashMap<>();
+            flushScheduled = false;
+        }
+        // Stragglers that joined after the size trigger can push a window past the server's limit
+        List<Long> idKeys = new ArrayList<>(ids.keySet());
+        List<String> mobileKeys = new ArrayList<>(mobiles.keySet());
+        int idFrom = 0;
+        int mobileFrom = 0;
+        while (idFrom < idKeys.size() || mobileFrom < mobileKeys.size()) {
+            int idTo = Math.min(idKeys.size(), idFrom + maxBatchSize);
+            int mobileTo = Math.min(mobileKeys.size(), mobileFrom + maxBatchSize - (idTo - idFrom));
+            send(idKeys.subList(idFrom, idTo), mobileKeys.subList(mobileFrom, mobileTo), ids, mobiles);
+            idFrom = idTo;
+            mobileFrom = mobileTo;
+        }
+    }
+
+    private void send(List<Long> idKeys, List<String> mobileKeys,
+                      Map<Long, CompletableFuture<UserSummary>> ids,
+                      Map<String, CompletableFuture<UserSummary>> mobiles) {
+        meterRegistry.summary("auth.user_batch.size").record(idKeys.size() + mobileKeys.size());
+        List<UserSummary> found;
+        try {
+            Map<String, Object> body = Map.of("ids", idKeys, "mobileNumbers", mobileKeys);
+            found = restTemplate.exchange(batchUrl, HttpMethod.POST, new HttpEntity<>(body), SUMMARY_LIST).getBody();
+        } catch (Exception e) {
+            logger.error("Batch user lookup of {} keys failed", idKeys.size() + mobileKeys.size(), e);
+            meterRegistry.counter("auth.user_batch.failures").increment();
+            idKeys.forEach(k -> ids.get(k).completeExceptionally(e));
+            mobileKeys.forEach(k -> mobiles.get(k).completeExceptionally(e));
+            return;
+        }
+        if (found != null) {
+            for (UserSummary summary : found) {
+                CompletableFuture<UserSummary> byId = ids.get(summary.id());
+                if (byId != null) {
+                    byId.complete(summary);
+                }
+                CompletableFuture<UserSummary> byMobile = mobiles.get(summary.mobileNumber());
+                if (byMobile != null) {
+                    byMobile.complete(summary);
+                }
+            }
+        }
+        // Keys user-service did not return have no user; complete() is a no-op for the ones already set
+        idKeys.forEach(k -> ids.get(k).complete(null));
+        mobileKeys.forEach(k -> mobiles.get(k).complete(null));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
@@ -1,13 +1,17 @@
 package com.ezpay.wallet.auth_service.clients;
 
 import com.ezpay.infraservice.exception.ApiException;
+import com.ezpay.wallet.auth_service.dto.response.UserSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class UserServiceClient {
     private static final Logger logger = LoggerFactory.getLogger(UserServiceClient.class);
@@ -15,11 +19,21 @@ public class UserServiceClient {
     private String userServiceUrl;
     private final RestTemplate restTemplate = new RestTemplate();
 
+    @Autowired
+    private UserBatchClient userBatchClient;
+
+    @Value("${user.batch.timeout-ms:2000}")
+    private long batchTimeoutMs;
+
+    // Concurrent lookups are grouped into one batch call by UserBatchClient
     public Long getUserIdByMobile(String mobile) {
         try {
-            String response = restTemplate.getForObject(userServiceUrl + "/users/" + mobile, String.class);
+            UserSummary summary = userBatchClient.findByMobile(mobile).get(batchTimeoutMs, TimeUnit.MILLISECONDS);
             logger.debug("Fetched user ID for mobile: {}", mobile);
-            return response != null ? Long.parseLong(response) : null;
+            return summary != null ? summary.id() : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "Failed to fetch user from UserService");
         } catch (Exception e) {
             logger.error("Failed to fetch user ID for mobile: {}", mobile, e);
             throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "Failed to fetch user from UserService");
@@ -28,7 +42,7 @@ public class UserServiceClient {
 
     public boolean validatePin(String userId, String pin) {
         try {
-            Boolean valid = restTemplate.postForObject(userServiceUrl + "/users/validate-pin",
+            Boolean valid = restTemplate.postForObject(userServiceUrl + "/internal/user/validate-pin",
                     new PinValidationRequest(userId, pin), Boolean.class);
             logger.debug("PIN validation result for user: {}: {}", userId, valid);
             return valid != null ? valid : false;
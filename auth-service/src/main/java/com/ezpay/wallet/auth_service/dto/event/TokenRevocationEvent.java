@@ -0,0 +1,68 @@
+package com.ezpay.wallet.auth_service.dto.event;
+
+/**
+ * Published when an access token stops being valid before its natural expiry.
+ */
+public class TokenRevocationEvent {
+
+    public static final String REVOKED = "REVOKED";
+    public static final String SESSION_REPLACED = "SESSION_REPLACED";
+
+    private String jti;
+    private String deviceId;
+    private String reason;
+    private long expiresAt;
+    private long revokedAt;
+
+    public TokenRevocationEvent() {
+    }
+
+    public TokenRevocationEvent(String jti, String deviceId, String reason, long expiresAt, long revokedAt) {
+        this.jti = jti;
+        this.deviceId = deviceId;
+        this.reason = reason;
+        this.expiresAt = expiresAt;
+        this.revokedAt = revokedAt;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    /** Token expiry, epoch seconds. Gateways may forget the revocation after this. */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public long getRevokedAt() {
+        return revokedAt;
+    }
+
+    public void setRevokedAt(long revokedAt) {
+        this.revokedAt = revokedAt;
+    }
+}
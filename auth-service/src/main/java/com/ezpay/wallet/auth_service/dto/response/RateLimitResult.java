@@ -0,0 +1,42 @@
+package com.ezpay.wallet.auth_service.dto.response;
+
+/**
+ * Outcome of a rate limit check. Callers decide how to surface a rejection.
+ */
+public class RateLimitResult {
+    private final boolean allowed;
+    private final long limit;
+    private final long remaining;
+    private final long retryAfterSeconds;
+
+    private RateLimitResult(boolean allowed, long limit, long remaining, long retryAfterSeconds) {
+        this.allowed = allowed;
+        this.limit = limit;
+        this.remaining = remaining;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public static RateLimitResult allow(long limit, long remaining) {
+        return new RateLimitResult(true, limit, Math.max(0, remaining), 0);
+    }
+
+    public static RateLimitResult reject(long limit, long retryAfterSeconds) {
+        return new RateLimitResult(false, limit, 0, retryAfterSeconds);
+    }
+
+    public boolean allowed() {
+        return allowed;
+    }
+
+    public long limit() {
+        return limit;
+    }
+
+    public long remaining() {
+        return remaining;
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
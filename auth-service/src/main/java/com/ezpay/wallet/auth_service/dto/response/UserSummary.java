@@ -0,0 +1,12 @@
+package com.ezpay.wallet.auth_service.dto.response;
+
+/**
+ * Compact user view returned by user-service's batch lookup.
+ */
+public record UserSummary(
+        Long id,
+        String userName,
+        String mobileNumber,
+        boolean temporaryUser,
+        String verificationStatus
+) {}
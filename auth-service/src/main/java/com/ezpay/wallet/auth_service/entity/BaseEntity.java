@@ -6,12 +6,9 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.Instant;
 
 
+// Audit timestamps only; each entity maps its own id so it can use its own sequence
 @MappedSuperclass
 public abstract class BaseEntity {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-
     @CreationTimestamp
     private Instant createdAt;
 
@@ -26,14 +23,6 @@ public abstract class BaseEntity {
         this.createdAt = createdAt;
     }
 
-    public Long getId() {
-        return id;
-    }
-
-    public void setId(Long id) {
-        this.id = id;
-    }
-
     public Instant getUpdatedAt() {
         return updatedAt;
     }
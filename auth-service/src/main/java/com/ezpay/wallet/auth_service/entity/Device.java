@@ -8,7 +8,8 @@ import java.time.Instant;
 public class Device extends BaseEntity{
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "devices_seq")
+    @SequenceGenerator(name = "devices_seq", sequenceName = "devices_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -24,16 +25,18 @@ public class Device extends BaseEntity{
     @Column(columnDefinition = "TEXT")
     private String publicKeyPem;
 
+    /** RFC 7638 thumbprint of {@link #publicKeyPem}, computed once at registration. */
+    @Column(length = 64)
+    private String jkt;
+
     private String fingerPrint;
 
     private boolean verified;
 
-    @Override
     public Long getId() {
         return id;
     }
 
-    @Override
     public void setId(Long id) {
         this.id = id;
     }
@@ -78,6 +81,14 @@ public class Device extends BaseEntity{
         this.publicKeyPem = publicKeyPem;
     }
 
+    public String getJkt() {
+        return jkt;
+    }
+
+    public void setJkt(String jkt) {
+        this.jkt = jkt;
+    }
+
     public String getFingerPrint() {
         return fingerPrint;
     }
@@ -4,6 +4,7 @@ import com.ezpay.infraservice.exception.ApiException;
 import com.ezpay.wallet.auth_service.clients.UserServiceClient;
 import com.ezpay.wallet.auth_service.dto.request.AccessRequest;
 import com.ezpay.wallet.auth_service.dto.request.StepUpRequest;
+import com.ezpay.wallet.auth_service.dto.response.RateLimitResult;
 import com.ezpay.wallet.auth_service.dto.response.StepUpResponse;
 import com.ezpay.wallet.auth_service.dto.response.TokenResponse;
 import com.ezpay.wallet.auth_service.entity.Device;
@@ -48,8 +49,10 @@ public class AuthServices {
      * Checks if the rate limit is exceeded for the given key.
      */
     private void checkRateLimit(String key ,String userType) {
-        if (!rateLimiterService.allowRequest(key ,userType)) {
-            throw new ApiException(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded");
+        RateLimitResult result = rateLimiterService.allowRequest(key ,userType);
+        if (!result.allowed()) {
+            throw new ApiException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Rate limit exceeded. Please try again after " + result.retryAfterSeconds() + " seconds.");
         }
     }
 
@@ -127,6 +130,7 @@ public class AuthServices {
             token.setRotatedAt(Instant.now());
         });
         refreshTokenRepository.saveAll(tokens);
+        jwtService.revokeSession(deviceId);
         logger.info("All tokens revoked for device: {}", deviceId);
     }
 
@@ -0,0 +1,235 @@
+package com.ezpay.wallet.auth_service.service;
+
+import com.ezpay.wallet.auth_service.entity.Device;
+import com.ezpay.wallet.auth_service.repository.DeviceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-tier device lookup: a node-local map in front of a Redis hash, backed by the devices table.
+ * Entries carry the parsed public key and its thumbprint so token issuance never re-parses PEMs.
+ * Re-registration evicts the entry everywhere through a Redis pub/sub channel.
+ */
+@Service
+public class DeviceRegistry implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceRegistry.class);
+    private static final String KEY_PREFIX = "device:registry:";
+    private static final String INVALIDATION_CHANNEL = "device:registry:invalidate";
+    private static final long REDIS_TTL_DAYS = 365;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final DeviceRepository deviceRepository;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CachedDevice> local = new ConcurrentHashMap<>();
+
+    @Value("${device.cache.local-ttl-seconds:300}")
+    private long localTtlSeconds;
+
+    @Value("${device.cache.local-max-size:10000}")
+    private int localMaxSize;
+
+    public DeviceRegistry(RedisTemplate<String, Object> redisTemplate,
+                          DeviceRepository deviceRepository,
+                          MeterRegistry meterRegistry,
+                          RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.deviceRepository = deviceRepository;
+        this.meterRegistry = meterRegistry;
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+        meterRegistry.gauge("device.cache.local.size", local, Map::size);
+    }
+
+    public Optional<CachedDevice> get(String deviceId) {
+        if (deviceId == null) {
+            return Optional.empty();
+        }
+        CachedDevice cached = local.get(deviceId);
+        if (cached != null && !cached.isExpired(localTtlSeconds)) {
+            meterRegistry.counter("device.cache.lookup", "tier", "local").increment();
+            return Optional.of(cached);
+        }
+
+        cached = readFromRedis(deviceId);
+        if (cached != null) {
+            meterRegistry.counter("device.cache.lookup", "tier", "redis").increment();
+            putLocal(cached);
+            return Optional.of(cached);
+        }
+
+        meterRegistry.counter("device.cache.lookup", "tier", "db").increment();
+        // Return the loaded copy itself; the local entry could already be evicted again
+        return deviceRepository.findByDeviceId(deviceId).map(this::put);
+    }
+
+    /**
+     * Write-through after the device row has been saved. Other nodes drop their local copy and
+     * reload from Redis on next access. Returns the cached view of the device.
+     */
+    public CachedDevice put(Device device) {
+        CachedDevice cached = CachedDevice.from(device);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("userId", String.valueOf(cached.userId));
+        fields.put("verified", String.valueOf(cached.verified));
+        fields.put("createdAt", cached.createdAt != null ? cached.createdAt.toString() : "");
+        fields.put("publicKeyPem", cached.publicKeyPem != null ? cached.publicKeyPem : "");
+        fields.put("jkt", cached.jkt != null ? cached.jkt : "");
+        try {
+            String key = KEY_PREFIX + cached.deviceId;
+            redisTemplate.opsForHash().putAll(key, fields);
+            redisTemplate.expire(key, REDIS_TTL_DAYS, TimeUnit.DAYS);
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to cache device [{}] in Redis: {}", cached.deviceId, ex.getMessage());
+        }
+        putLocal(cached);
+        return cached;
+    }
+
+    public void invalidate(String deviceId) {
+        local.remove(deviceId);
+        try {
+            redisTemplate.delete(KEY_PREFIX + deviceId);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, deviceId);
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to broadcast device [{}] invalidation: {}", deviceId, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        // Values go through the JSON serializer, so the device id arrives quoted.
+        String deviceId = body.startsWith("\"") && body.endsWith("\"") ? body.substring(1, body.length() - 1) : body;
+        if (local.remove(deviceId) != null) {
+            logger.debug("Evicted device [{}] after remote invalidation", deviceId);
+        }
+    }
+
+    private CachedDevice readFromRedis(String deviceId) {
+        try {
+            Map<Object, Object> fields = redisTemplate.opsForHash().entries(KEY_PREFIX + deviceId);
+            if (fields == null || fields.isEmpty()) {
+                return null;
+            }
+            return CachedDevice.from(deviceId, fields);
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to read device [{}] from Redis: {}", deviceId, ex.getMessage());
+            return null;
+        }
+    }
+
+    private void putLocal(CachedDevice cached) {
+        if (local.size() >= localMaxSize) {
+            Iterator<String> it = local.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        local.put(cached.deviceId, cached);
+    }
+
+    /**
+     * Immutable view of a device as needed on the token path.
+     */
+    public static final class CachedDevice {
+        private final String deviceId;
+        private final Long userId;
+        private final boolean verified;
+        private final Instant createdAt;
+        private final String publicKeyPem;
+        private final String jkt;
+        private final long loadedAt = System.currentTimeMillis();
+        private volatile RSAPublicKey publicKey;
+
+        private CachedDevice(String deviceId, Long userId, boolean verified, Instant createdAt,
+                             String publicKeyPem, String jkt) {
+            this.deviceId = deviceId;
+            this.userId = userId;
+            this.verified = verified;
+            this.createdAt = createdAt;
+            this.publicKeyPem = publicKeyPem;
+            this.jkt = jkt;
+        }
+
+        static CachedDevice from(Device device) {
+            String jkt = device.getJkt();
+            if (jkt == null && device.getPublicKeyPem() != null) {
+                // Rows registered before thumbprints were stored
+                jkt = DeviceService.computeJkt(JwtService.parseRSAPublicKeyFromPEM(device.getPublicKeyPem()));
+            }
+            return new CachedDevice(device.getDeviceId(), device.getUserId(), device.isVerified(),
+                    device.getCreatedAt(), device.getPublicKeyPem(), jkt);
+        }
+
+        static CachedDevice from(String deviceId, Map<Object, Object> fields) {
+            String userId = blankToNull(fields.get("userId"));
+            String createdAt = blankToNull(fields.get("createdAt"));
+            return new CachedDevice(deviceId,
+                    userId != null && !"null".equals(userId) ? Long.valueOf(userId) : null,
+                    Boolean.parseBoolean(String.valueOf(fields.get("verified"))),
+                    createdAt != null ? Instant.parse(createdAt) : null,
+                    blankToNull(fields.get("publicKeyPem")),
+                    blankToNull(fields.get("jkt")));
+        }
+
+        private static String blankToNull(Object value) {
+            return value == null || value.toString().isBlank() ? null : value.toString();
+        }
+
+        private boolean isExpired(long ttlSeconds) {
+            return System.currentTimeMillis() - loadedAt > ttlSeconds * 1000;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public boolean isVerified() {
+            return verified;
+        }
+
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+
+        public String getPublicKeyPem() {
+            return publicKeyPem;
+        }
+
+        public String getJkt() {
+            return jkt;
+        }
+
+        public RSAPublicKey getPublicKey() {
+            RSAPublicKey key = publicKey;
+            if (key == null && publicKeyPem != null) {
+                key = JwtService.parseRSAPublicKeyFromPEM(publicKeyPem);
+                publicKey = key;
+            }
+            return key;
+        }
+    }
+}
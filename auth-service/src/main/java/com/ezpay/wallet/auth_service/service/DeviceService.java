@@ -3,6 +3,8 @@ package com.ezpay.wallet.auth_service.service;
 import com.ezpay.infraservice.exception.ApiException;
 import com.ezpay.wallet.auth_service.entity.Device;
 import com.ezpay.wallet.auth_service.repository.DeviceRepository;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.RSAKey;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
@@ -13,18 +15,18 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.security.interfaces.RSAPublicKey;
 import java.time.Duration;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
 
 @Service
 public class DeviceService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeviceService.class);
-    private static final long TTL_DAYS = 365;
 
     private final RedisTemplate<String, Object> redisTemplate;
     private final DeviceRepository deviceRepository;
+    private final DeviceRegistry deviceRegistry;
     private final MeterRegistry meterRegistry;
 
     @Value("${device.key.rotation.days:30}")
@@ -33,9 +35,11 @@ public class DeviceService {
     @Autowired
     public DeviceService(RedisTemplate<String, Object> redisTemplate,
                          DeviceRepository deviceRepository,
+                         DeviceRegistry deviceRegistry,
                          MeterRegistry meterRegistry) {
         this.redisTemplate = redisTemplate;
         this.deviceRepository = deviceRepository;
+        this.deviceRegistry = deviceRegistry;
         this.meterRegistry = meterRegistry;
     }
 
@@ -75,14 +79,23 @@ public class DeviceService {
         }
         device.setFingerPrint(fingerprint);
 
-        // Save PEM-encoded public key
+        // Save PEM-encoded public key along with its thumbprint, so issuance never re-parses it
+        RSAPublicKey publicKey;
+        try {
+            publicKey = JwtService.parseRSAPublicKeyFromPEM(publicKeyPem.trim());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid public key for device: {}", deviceId);
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Invalid public key");
+        }
         device.setPublicKeyPem(publicKeyPem.trim());
+        device.setJkt(computeJkt(publicKey));
 
         // Persist device
         Device savedDevice = deviceRepository.save(device);
 
-        // Cache public key for quick lookup
-        cacheDevicePublicKey(savedDevice);
+        // Replace any cached copy of the previous registration
+        deviceRegistry.invalidate(deviceId);
+        deviceRegistry.put(savedDevice);
 
         logger.info("Device [{}] registered/updated successfully", deviceId);
         meterRegistry.counter("device.registration.success", "deviceId", deviceId).increment();
@@ -96,18 +109,18 @@ public class DeviceService {
         return java.util.Base64.getEncoder().encodeToString((userAgent + ":" + ipAddress).getBytes());
     }
 
-    private void cacheDevicePublicKey(Device device) {
-        String key = getRedisKey(device.getDeviceId());
-        redisTemplate.opsForValue().set(key, device.getPublicKeyPem(), TTL_DAYS, TimeUnit.DAYS);
-    }
-
     public String getPublicKeyFromCache(String deviceId) {
-        String key = getRedisKey(deviceId);
-        Object cached = redisTemplate.opsForValue().get(key);
-        return cached != null ? cached.toString() : null;
+        return deviceRegistry.get(deviceId).map(DeviceRegistry.CachedDevice::getPublicKeyPem).orElse(null);
     }
 
-    private String getRedisKey(String deviceId) {
-        return "device:" + deviceId;
+    /**
+     * RFC 7638 SHA-256 thumbprint, as carried in the access token's cnf.jkt claim.
+     */
+    static String computeJkt(RSAPublicKey publicKey) {
+        try {
+            return new RSAKey.Builder(publicKey).build().computeThumbprint().toString();
+        } catch (JOSEException e) {
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to compute JWK thumbprint: " + e.getMessage());
+        }
     }
 }
@@ -6,9 +6,8 @@ import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.ezpay.infraservice.exception.ApiException;
 import com.ezpay.wallet.auth_service.config.KeyStoreConfig;
-import com.ezpay.wallet.auth_service.entity.Device;
+import com.ezpay.wallet.auth_service.dto.event.TokenRevocationEvent;
 import com.nimbusds.jose.JOSEException;
-import com.nimbusds.jose.jwk.RSAKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +16,6 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.cert.Certificate;
 import java.security.interfaces.RSAPrivateKey;
@@ -28,6 +26,7 @@ import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Service for JWT token generation and validation.
@@ -57,7 +56,7 @@ public class JwtService {
     private KeyStoreConfig keyStoreConfig;
 
     @Autowired
-    private DeviceService deviceService;
+    private DeviceRegistry deviceRegistry;
 
     @Value("${dpop.validation.enabled:false}")
     private boolean dpopValidationEnabled;
@@ -65,6 +64,9 @@ public class JwtService {
     @Autowired
     private  RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private TokenRevocationPublisher revocationPublisher;
+
     public String issueAccess(String mobileNumber, String userId, String deviceId) throws JOSEException {
         logger.debug("Issuing access token for user: {}, device: {}", userId, deviceId);
 
@@ -74,16 +76,13 @@ public class JwtService {
                 .withClaim("deviceId", deviceId)
                 .withIssuer(issuer)
                 .withAudience(jwtAudience)
+                .withJWTId(UUID.randomUUID().toString())
+                .withIssuedAt(new Date())
                 .withExpiresAt(new Date(System.currentTimeMillis() + accessExp * 1000));
 
         if (dpopValidationEnabled) {
-            String publicKeyPem = deviceService.getPublicKeyFromCache(deviceId);
-            RSAPublicKey publicKey = parseRSAPublicKeyFromPEM(publicKeyPem);
-
-            // Compute JWK + thumbprint (RFC 7638)
-            RSAKey rsaJwk = new RSAKey.Builder(publicKey).build();
-            String jkt = rsaJwk.computeThumbprint().toString();
-
+            // Thumbprint (RFC 7638) is precomputed at device registration
+            String jkt = deviceJkt(deviceId);
             jwtBuilder.withClaim("cnf", Map.of("jkt", jkt));
             logger.debug("Added cnf.jkt claim for DPoP binding: {}", jkt);
         }
@@ -100,27 +99,28 @@ public class JwtService {
         }
         String sessionKey = "session:token:" + deviceId;
         String storedToken = redisTemplate.opsForValue().setGet(sessionKey,token, Duration.ofMillis(accessExp * 1000));
+        if (storedToken != null && !storedToken.equals(token)) {
+            revocationPublisher.revoke(storedToken, deviceId, TokenRevocationEvent.SESSION_REPLACED);
+        }
     }
 
-
     /**
-     * Computes JWK SHA-256 thumbprint for the given RSA public key.
+     * Ends the device's current session and broadcasts the revocation of its access token.
      */
-    private String computeJwkThumbprint(RSAPublicKey publicKey) {
-        try {
-            // Create JWK representation (RFC 7638)
-            String jwkJson = String.format(
-                    "{\"e\":\"%s\",\"kty\":\"RSA\",\"n\":\"%s\"}",
-                    Base64.getUrlEncoder().withoutPadding().encodeToString(publicKey.getPublicExponent().toByteArray()),
-                    Base64.getUrlEncoder().withoutPadding().encodeToString(publicKey.getModulus().toByteArray())
-            );
-            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(sha256.digest(jwkJson.getBytes(StandardCharsets.UTF_8)));
-        } catch (Exception e) {
-            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to compute JWK thumbprint: " + e.getMessage());
+    public void revokeSession(String deviceId) {
+        String storedToken = redisTemplate.opsForValue().getAndDelete("session:token:" + deviceId);
+        if (storedToken != null) {
+            revocationPublisher.revoke(storedToken, deviceId, TokenRevocationEvent.REVOKED);
         }
     }
 
+
+    private String deviceJkt(String deviceId) {
+        return deviceRegistry.get(deviceId)
+                .map(DeviceRegistry.CachedDevice::getJkt)
+                .orElseThrow(() -> new ApiException(HttpStatus.UNAUTHORIZED, "Device not registered"));
+    }
+
     public String issueAccessByExp(String mobileNumber, String userId, String deviceId, long customExp) {
         logger.debug("Issuing custom exp access token for user: {}, device: {}", userId, deviceId);
 
@@ -130,11 +130,12 @@ public class JwtService {
                 .withClaim("deviceId", deviceId)
                 .withIssuer(issuer)
                 .withAudience(jwtAudience)
+                .withJWTId(UUID.randomUUID().toString())
+                .withIssuedAt(new Date())
                 .withExpiresAt(new Date(System.currentTimeMillis() + customExp * 1000));
 
         if (dpopValidationEnabled) {
-            String publickey = deviceService.getPublicKeyFromCache(deviceId);
-            String jkt = computeJwkThumbprint(parseRSAPublicKeyFromPEM(publickey));
+            String jkt = deviceJkt(deviceId);
             jwtBuilder.withClaim("cnf", Map.of("jkt", jkt));
             logger.debug("Added cnf.jkt claim for DPoP binding: {}", jkt);
         }
@@ -1,30 +1,43 @@
 package com.ezpay.wallet.auth_service.service;
 
-import com.ezpay.infraservice.exception.ApiException;
+import com.ezpay.wallet.auth_service.dto.response.RateLimitResult;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.http.HttpStatus;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Hybrid fixed-window rate limiter. Each node counts hits locally and flushes the deltas to a
+ * shared Redis counter on a short interval, so most requests never touch Redis. A node only
+ * admits its share of the remaining global budget (plus the configured error bound) before it
+ * falls back to a synchronous, exact Redis increment. Each counter's check and increment happen
+ * under its own lock, so concurrent callers cannot admit past the local share.
+ */
 @Service
 public class RateLimiterService {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimiterService.class);
     private static final int DEFAULT_LIMIT = 5; // Aligns with Paytm/PhonePe typical limits
-    private static final long DEFAULT_WINDOW_MINUTES = 1; // 1-minute sliding window
+    private static final String KEY_PREFIX = "rate:limit:";
 
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
-    @Autowired
-    private MeterRegistry meterRegistry;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, LocalCounter> counters = new ConcurrentHashMap<>();
 
     @Value("${rate.limiter.limit.per.minute:5}")
     private int rateLimitPerMinute;
@@ -32,26 +45,139 @@ public class RateLimiterService {
     @Value("${rate.limiter.window.minutes:1}")
     private long rateLimitWindowMinutes;
 
-    public boolean allowRequest(String key, String userType) {
-        String redisKey = "rate:limit:" + userType + ":" + key + ":" + Instant.now().toEpochMilli() / (rateLimitWindowMinutes * 60 * 1000);
-        Long count = redisTemplate.opsForValue().increment(redisKey);
+    @Value("${rate.limiter.expected-nodes:2}")
+    private int expectedNodes;
+
+    @Value("${rate.limiter.error-bound:0.1}")
+    private double errorBound;
+
+    public RateLimiterService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("auth.rate_limit.local_counters", counters, Map::size);
+    }
+
+    public RateLimitResult allowRequest(String key, String userType) {
+        long now = System.currentTimeMillis();
+        long windowMillis = rateLimitWindowMinutes * 60 * 1000;
+        long windowId = now / windowMillis;
+        int limit = getEffectiveLimit(userType);
+        String redisKey = KEY_PREFIX + userType + ":" + key;
 
-        if (count == 1) {
-            redisTemplate.expire(redisKey, rateLimitWindowMinutes, TimeUnit.MINUTES);
+        LocalCounter counter = counters.compute(redisKey, (k, existing) ->
+                existing == null || existing.windowId != windowId ? new LocalCounter(windowId) : existing);
+
+        long count;
+        synchronized (counter) {
+            if (counter.global + counter.pending < limit && counter.pending < localSlack(limit, counter.global)) {
+                counter.pending++;
+                long remaining = limit - counter.global - counter.pending;
+                return allowed(userType, limit, remaining);
+            }
+
+            // Local share is exhausted: settle with Redis so decisions near the limit are exact.
+            long delta = counter.pending + 1;
+            counter.pending = 0;
+            try {
+                Long result = redisTemplate.opsForValue().increment(redisKey, delta);
+                count = result == null ? counter.global + delta : result;
+                if (count == delta) {
+                    redisTemplate.expireAt(redisKey, new Date((windowId + 1) * windowMillis));
+                }
+            } catch (RuntimeException ex) {
+                logger.warn("Rate limiter could not reach Redis for userType: {}, deciding locally: {}", userType, ex.getMessage());
+                count = counter.global + delta;
+            }
+            counter.global = count;
         }
 
-        meterRegistry.counter("auth.rate_limit.requests", "key", key, "userType", userType, "window", String.valueOf(rateLimitWindowMinutes)).increment();
-        int effectiveLimit = getEffectiveLimit(userType);
+        if (count > limit) {
+            long retryAfterSeconds = Math.max(1, ((windowId + 1) * windowMillis - now) / 1000);
+            logger.warn("Rate limit exceeded for userType: {}, count: {}, retryAfter: {}s", userType, count, retryAfterSeconds);
+            meterRegistry.counter("auth.rate_limit.requests", "userType", userType, "outcome", "rejected").increment();
+            return RateLimitResult.reject(limit, retryAfterSeconds);
+        }
+        return allowed(userType, limit, limit - count);
+    }
 
-        if (count > effectiveLimit) {
-            long retryAfterSeconds = rateLimitWindowMinutes * 60 - (Instant.now().toEpochMilli() % (rateLimitWindowMinutes * 60 * 1000)) / 1000;
-            logger.warn("Rate limit exceeded for key: {}, userType: {}, count: {}, retryAfter: {}s", key, userType, count, retryAfterSeconds);
-            meterRegistry.counter("auth.rate_limit.exceeded", "key", key, "userType", userType).increment();
-            throw new ApiException(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded. Please try again after " + retryAfterSeconds + " seconds.");
+    /**
+     * Pushes locally aggregated hits to Redis in one pipeline and refreshes each counter's view of
+     * the global count. Counters from finished windows are dropped.
+     */
+    @Scheduled(fixedDelayString = "${rate.limiter.flush-interval-ms:50}")
+    public void flush() {
+        if (counters.isEmpty()) {
+            return;
         }
+        long windowMillis = rateLimitWindowMinutes * 60 * 1000;
+        long windowId = System.currentTimeMillis() / windowMillis;
+        counters.entrySet().removeIf(e -> e.getValue().windowId != windowId);
 
-        logger.debug("Allowed request for key: {}, userType: {}, count: {}", key, userType, count);
-        return true;
+        List<String> keys = new ArrayList<>();
+        List<LocalCounter> flushed = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        counters.forEach((key, counter) -> {
+            long delta;
+            synchronized (counter) {
+                delta = counter.pending;
+                counter.pending = 0;
+            }
+            if (delta > 0) {
+                keys.add(key);
+                flushed.add(counter);
+                deltas.add(delta);
+            }
+        });
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        long expireAtMillis = (windowId + 1) * windowMillis;
+        RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < keys.size(); i++) {
+                    byte[] rawKey = serializer.serialize(keys.get(i));
+                    connection.stringCommands().incrBy(rawKey, deltas.get(i));
+                    connection.keyCommands().pExpireAt(rawKey, expireAtMillis);
+                }
+                return null;
+            });
+            for (int i = 0; i < flushed.size(); i++) {
+                Object value = results.get(i * 2);
+                if (value instanceof Long count) {
+                    LocalCounter counter = flushed.get(i);
+                    synchronized (counter) {
+                        // A synchronous check may have settled a newer total in the meantime
+                        counter.global = Math.max(counter.global, count);
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Put the hits back so the next flush or a synchronous check accounts for them.
+            for (int i = 0; i < flushed.size(); i++) {
+                LocalCounter counter = flushed.get(i);
+                synchronized (counter) {
+                    counter.pending += deltas.get(i);
+                }
+            }
+            logger.warn("Rate limiter flush failed for {} keys: {}", keys.size(), ex.getMessage());
+        }
+    }
+
+    private RateLimitResult allowed(String userType, int limit, long remaining) {
+        meterRegistry.counter("auth.rate_limit.requests", "userType", userType, "outcome", "allowed").increment();
+        return RateLimitResult.allow(limit, remaining);
+    }
+
+    /**
+     * Hits a node may admit without consulting Redis: its even share of the remaining budget plus
+     * its share of the tolerated overshoot.
+     */
+    private long localSlack(int limit, long global) {
+        int nodes = Math.max(1, expectedNodes);
+        long share = Math.max(0, limit - global) / nodes;
+        long tolerance = (long) (limit * errorBound / nodes);
+        return share + tolerance;
     }
 
     private int getEffectiveLimit(String userType) {
@@ -62,4 +188,15 @@ public class RateLimiterService {
             default -> DEFAULT_LIMIT; // Default limit
         };
     }
-}
\ No newline at end of file
+
+    private static final class LocalCounter {
+        private final long windowId;
+        // Both guarded by the counter's monitor
+        private long pending;
+        private long global;
+
+        private LocalCounter(long windowId) {
+            this.windowId = windowId;
+        }
+    }
+}
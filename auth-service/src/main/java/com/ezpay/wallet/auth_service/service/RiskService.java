@@ -33,6 +33,9 @@ public class RiskService {
     @Autowired
     private DeviceRepository deviceRepository;
 
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
     @Autowired
     private UserServiceClient userServiceClient;
 
@@ -102,7 +105,8 @@ public class RiskService {
     }
 
     public boolean requiresStepUp(String userId, String deviceId) {
-        Device device = deviceRepository.findByDeviceIdAndUserId(deviceId, Long.parseLong(userId))
+        DeviceRegistry.CachedDevice device = deviceRegistry.get(deviceId)
+                .filter(d -> Long.valueOf(userId).equals(d.getUserId()))
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Device not found"));
         boolean requiresStepUp = device.getCreatedAt().isAfter(Instant.now().minus(Duration.ofDays(1))) || !device.isVerified() ;
         logger.info("Step-up required for device: {}: {}", deviceId, requiresStepUp);
@@ -0,0 +1,105 @@
+package com.ezpay.wallet.auth_service.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.ezpay.wallet.auth_service.dto.event.TokenRevocationEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * Broadcasts access-token revocations to the gateways. Each revocation is also kept in a Redis
+ * sorted set scored by token expiry, which gateways read as a catch-up snapshot on start.
+ */
+@Service
+public class TokenRevocationPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationPublisher.class);
+    public static final String SNAPSHOT_KEY = "revocation:tokens";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.revocation.topic:auth-token-revocations}")
+    private String topic;
+
+    public TokenRevocationPublisher(KafkaTemplate<String, String> kafkaTemplate,
+                                    RedisTemplate<String, String> redisTemplate,
+                                    MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Revokes the given access token. Tokens without a jti predate revocation support and are
+     * left to expire.
+     */
+    public void revoke(String accessToken, String deviceId, String reason) {
+        DecodedJWT decoded;
+        try {
+            decoded = JWT.decode(accessToken);
+        } catch (JWTDecodeException e) {
+            logger.warn("Skipping revocation of undecodable token for device: {}", deviceId);
+            return;
+        }
+        if (decoded.getId() == null || decoded.getExpiresAt() == null) {
+            return;
+        }
+        long expiresAt = decoded.getExpiresAt().toInstant().getEpochSecond();
+        TokenRevocationEvent event = new TokenRevocationEvent(decoded.getId(), deviceId, reason,
+                expiresAt, Instant.now().getEpochSecond());
+
+        // Publish only once the surrounding transaction, if any, has committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+
+    private void publish(TokenRevocationEvent event) {
+        long now = Instant.now().getEpochSecond();
+        try {
+            redisTemplate.opsForZSet().add(SNAPSHOT_KEY, event.getJti(), event.getExpiresAt());
+            redisTemplate.opsForZSet().removeRangeByScore(SNAPSHOT_KEY, 0, now);
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to record revocation snapshot for jti: {}: {}", event.getJti(), ex.getMessage());
+        }
+
+        String json;
+        try {
+            json = MAPPER.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize revocation event for jti: {}", event.getJti(), e);
+            return;
+        }
+        kafkaTemplate.send(topic, event.getDeviceId(), json).whenComplete((result, ex) -> {
+            if (ex != null) {
+                logger.error("Failed to publish revocation for device: {}", event.getDeviceId(), ex);
+                meterRegistry.counter("auth.revocation.published", "reason", event.getReason(), "outcome", "failed").increment();
+            } else {
+                meterRegistry.counter("auth.revocation.published", "reason", event.getReason(), "outcome", "sent").increment();
+            }
+        });
+    }
+}
@@ -0,0 +1,32 @@
+-- Schema as previously generated from the entities. Existing databases are baselined at V0
+-- (spring.flyway.baseline-version), so this also runs there and creates whichever tables are
+-- missing; later migrations can rely on every table existing.
+
+CREATE TABLE IF NOT EXISTS devices (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at     TIMESTAMP(6) WITH TIME ZONE,
+    updated_at     TIMESTAMP(6) WITH TIME ZONE,
+    device_id      VARCHAR(255) NOT NULL UNIQUE,
+    user_id        BIGINT NOT NULL,
+    model          VARCHAR(255),
+    platform       VARCHAR(255),
+    public_key_pem TEXT,
+    jkt            VARCHAR(64),
+    finger_print   VARCHAR(255),
+    verified       BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE TABLE IF NOT EXISTS refresh_token (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at    TIMESTAMP(6) WITH TIME ZONE,
+    updated_at    TIMESTAMP(6) WITH TIME ZONE,
+    token_hash    VARCHAR(255),
+    user_id       BIGINT,
+    expires_at    TIMESTAMP(6) WITH TIME ZONE,
+    revoked       BOOLEAN NOT NULL DEFAULT FALSE,
+    rotated_at    TIMESTAMP(6) WITH TIME ZONE,
+    ip            VARCHAR(255),
+    user_agent    VARCHAR(255),
+    mobile_number VARCHAR(255),
+    device_id     VARCHAR(255)
+);
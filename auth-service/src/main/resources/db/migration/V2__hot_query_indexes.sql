@@ -0,0 +1,10 @@
+-- Indexes for the token refresh and device lookups (findByTokenHash, findByDeviceId,
+-- findByDeviceIdAndUserId). devices.device_id is already covered by its unique constraint.
+-- Built CONCURRENTLY so live tables keep taking writes; Flyway runs this file outside a transaction.
+-- If a build is interrupted, drop the INVALID index before re-running.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_refresh_token_token_hash ON refresh_token (token_hash);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_refresh_token_device_user ON refresh_token (device_id, user_id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_devices_device_user ON devices (device_id, user_id);
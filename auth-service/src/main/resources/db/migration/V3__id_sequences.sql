@@ -0,0 +1,8 @@
+-- Sequences for the pooled id optimizer (allocationSize = 50 on the entities, so INCREMENT BY
+-- must match). Each value handed out covers the 50 ids below it, hence the +50 seed past MAX(id).
+
+CREATE SEQUENCE IF NOT EXISTS devices_seq INCREMENT BY 50;
+SELECT setval('devices_seq', COALESCE((SELECT MAX(id) FROM devices), 0) + 50, false);
+
+CREATE SEQUENCE IF NOT EXISTS refresh_token_seq INCREMENT BY 50;
+SELECT setval('refresh_token_seq', COALESCE((SELECT MAX(id) FROM refresh_token), 0) + 50, false);
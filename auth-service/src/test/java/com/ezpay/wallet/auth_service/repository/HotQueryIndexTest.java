@@ -0,0 +1,73 @@
+package com.ezpay.wallet.auth_service.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Applies the Flyway migrations to a throwaway Postgres and EXPLAINs the SQL behind the hot
+ * repository queries. Sequential scans are disabled for the session, so a plan that still shows
+ * one means no index can serve the query. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class HotQueryIndexTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    // Same baseline settings as application.yml
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // RefreshTokenRepository.findByTokenHash
+            "SELECT * FROM refresh_token WHERE token_hash = 'abc'",
+            // RefreshTokenRepository.findByDeviceId / findByDeviceIdAndUserId
+            "SELECT * FROM refresh_token WHERE device_id = 'dev-1'",
+            "SELECT * FROM refresh_token WHERE device_id = 'dev-1' AND user_id = 42",
+            // DeviceRepository.findByDeviceId / findByDeviceIdAndUserId
+            "SELECT * FROM devices WHERE device_id = 'dev-1'",
+            "SELECT * FROM devices WHERE device_id = 'dev-1' AND user_id = 42"
+    })
+    void hotQueriesUseAnIndex(String sql) throws SQLException {
+        String plan = explain(sql);
+        assertFalse(plan.contains("Seq Scan"), () -> "Sequential scan for: " + sql + "\n" + plan);
+    }
+
+    private static String explain(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
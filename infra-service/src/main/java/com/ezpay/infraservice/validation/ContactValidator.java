@@ -0,0 +1,164 @@
+package com.ezpay.infraservice.validation;
+
+import java.util.List;
+
+/**
+ * Allocation-light checks for phone numbers, e-mail addresses and OTP codes shared by the services.
+ * Everything is a single hand-written scan; no regex is compiled or run per call.
+ *
+ * <p>Supported onboarding countries live in {@link #PHONE_RULES}. A number may carry its
+ * {@code +<country code>} prefix or be given in national form. A national number that fits more
+ * than one rule (every Indian mobile is also a valid-looking Canadian number) is still a valid
+ * mobile, but has no canonical form: the country has to be given explicitly.
+ */
+public final class ContactValidator {
+
+    /**
+     * National number of {@code nationalLength} digits whose first digit is in
+     * {@code firstDigits}, dialled with {@code countryCode}.
+     */
+    public record PhoneRule(String country, String countryCode, int nationalLength, String firstDigits) {
+
+        boolean matchesNational(char[] digits, int from, int to) {
+            return to - from == nationalLength && firstDigits.indexOf(digits[from]) >= 0;
+        }
+
+        boolean matchesCountryCode(char[] digits, int length) {
+            if (length < countryCode.length()) {
+                return false;
+            }
+            for (int i = 0; i < countryCode.length(); i++) {
+                if (digits[i] != countryCode.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static final List<PhoneRule> PHONE_RULES = List.of(
+            new PhoneRule("IN", "91", 10, "6789"),
+            new PhoneRule("CA", "1", 10, "23456789")
+    );
+
+    private static final int MAX_PHONE_DIGITS = 15;
+
+    private ContactValidator() {
+    }
+
+    /**
+     * Canonical E.164 form ({@code +919876543210}) of a supported-country number, ignoring
+     * whitespace, or {@code null} when the input is not a valid number for any rule or is a
+     * national number that fits more than one.
+     */
+    public static String normalizeMobile(String mobile) {
+        return normalize(mobile, false);
+    }
+
+    public static boolean isValidMobile(String mobile) {
+        return normalize(mobile, true) != null;
+    }
+
+    // With firstMatch, an ambiguous national number takes the first rule in table order
+    private static String normalize(String mobile, boolean firstMatch) {
+        if (mobile == null) {
+            return null;
+        }
+        char[] digits = new char[MAX_PHONE_DIGITS];
+        int length = 0;
+        boolean plus = false;
+        for (int i = 0; i < mobile.length(); i++) {
+            char c = mobile.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (c == '+' && length == 0 && !plus) {
+                plus = true;
+            } else if (c >= '0' && c <= '9' && length < MAX_PHONE_DIGITS) {
+                digits[length++] = c;
+            } else {
+                return null;
+            }
+        }
+        if (length == 0) {
+            return null;
+        }
+        PhoneRule national = null;
+        for (PhoneRule rule : PHONE_RULES) {
+            if (plus) {
+                if (rule.matchesCountryCode(digits, length)
+                        && rule.matchesNational(digits, rule.countryCode().length(), length)) {
+                    return "+" + new String(digits, 0, length);
+                }
+            } else if (rule.matchesNational(digits, 0, length)) {
+                if (national != null) {
+                    return null;
+                }
+                national = rule;
+                if (firstMatch) {
+                    break;
+                }
+            }
+        }
+        return national != null ? "+" + national.countryCode() + new String(digits, 0, length) : null;
+    }
+
+    /**
+     * Generic E.164 shape: {@code +} followed by 10 to 15 digits, any country.
+     */
+    public static boolean isE164(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.isEmpty() || phoneNumber.charAt(0) != '+') {
+            return false;
+        }
+        return isDigits(phoneNumber, 1, 10, MAX_PHONE_DIGITS);
+    }
+
+    /**
+     * {@code local@domain}: one {@code @}, both parts non-empty, letters, digits and
+     * {@code + _ . -} in the local part, letters, digits and {@code . -} in the domain.
+     */
+    public static boolean isValidEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        int at = -1;
+        for (int i = 0; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                if (at >= 0) {
+                    return false;
+                }
+                at = i;
+            } else if (!isAsciiAlphanumeric(c) && c != '.' && c != '-'
+                    && (at >= 0 || (c != '+' && c != '_'))) {
+                return false;
+            }
+        }
+        return at > 0 && at < email.length() - 1;
+    }
+
+    /**
+     * Numeric one-time code of {@code minLength} to {@code maxLength} digits.
+     */
+    public static boolean isOtpCode(String code, int minLength, int maxLength) {
+        return code != null && isDigits(code, 0, minLength, maxLength);
+    }
+
+    private static boolean isDigits(String value, int from, int minLength, int maxLength) {
+        int length = value.length() - from;
+        if (length < minLength || length > maxLength) {
+            return false;
+        }
+        for (int i = from; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiAlphanumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
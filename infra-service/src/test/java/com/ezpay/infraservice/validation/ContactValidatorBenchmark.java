@@ -0,0 +1,85 @@
+package com.ezpay.infraservice.validation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Per-call cost of the scanners against the {@code String.matches} checks they replaced in
+ * {@code UserServiceImpl}, which compiled the regex on every call and stripped whitespace with
+ * {@code replaceAll} first. Inputs mix valid and invalid values so neither path only sees its
+ * early exit.
+ *
+ * <p>Opt-in, since it takes a while:
+ * {@code mvn -pl infra-service test -Dtest=ContactValidatorBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ContactValidatorBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(ContactValidatorBenchmark.class);
+    private static final int CALLS = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    // Written after each timed loop so the JIT cannot drop the checks
+    private static volatile int sink;
+
+    private static final String[] MOBILES = {"+919876543210", "98765 43210", "+14165550123", "4165550123",
+            "12345", "+44 20 7946 0958", "+1 416 555 0123", "98765432a0"};
+    private static final String[] EMAILS = {"user@example.com", "first.last+tag@mail.example.in", "user@",
+            "us er@example.com", "a_b-c@d", "@example.com"};
+
+    @Test
+    void mobile() {
+        compare("mobile", MOBILES,
+                mobile -> {
+                    String stripped = mobile.replaceAll("\\s+", "");
+                    return stripped.matches("^(\\+91)?[6-9]\\d{9}$") || stripped.matches("^(\\+1)?[2-9]\\d{9}$");
+                },
+                ContactValidator::isValidMobile);
+    }
+
+    @Test
+    void email() {
+        compare("email", EMAILS,
+                email -> email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$"),
+                ContactValidator::isValidEmail);
+    }
+
+    private static void compare(String name, String[] inputs, Predicate<String> regex, Predicate<String> scanner) {
+        long regexNanos = Long.MAX_VALUE;
+        long scannerNanos = Long.MAX_VALUE;
+        // First round warms up the JIT for both paths
+        for (int round = 0; round <= ROUNDS; round++) {
+            long regexRound = time(inputs, regex);
+            long scannerRound = time(inputs, scanner);
+            if (round > 0) {
+                regexNanos = Math.min(regexNanos, regexRound);
+                scannerNanos = Math.min(scannerNanos, scannerRound);
+            }
+        }
+        log.info("{}: String.matches {} ns/call, scanner {} ns/call ({}x)", name,
+                String.format("%.1f", (double) regexNanos / CALLS), String.format("%.1f", (double) scannerNanos / CALLS),
+                String.format("%.1f", (double) regexNanos / scannerNanos));
+        for (String input : inputs) {
+            assertEquals(regex.test(input), scanner.test(input), input);
+        }
+    }
+
+    private static long time(String[] inputs, Predicate<String> check) {
+        int valid = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            if (check.test(inputs[i % inputs.length])) {
+                valid++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        sink = valid;
+        return elapsed;
+    }
+}
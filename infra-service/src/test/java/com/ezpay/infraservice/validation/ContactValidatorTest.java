@@ -0,0 +1,87 @@
+package com.ezpay.infraservice.validation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The scanners must accept exactly what the regexes they replaced accepted.
+ */
+class ContactValidatorTest {
+
+    private static final String OLD_INDIA = "^(\\+91)?[6-9]\\d{9}$";
+    private static final String OLD_CANADA = "^(\\+1)?[2-9]\\d{9}$";
+    private static final String OLD_EMAIL = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$";
+
+    @ParameterizedTest
+    @CsvSource({
+            "+919876543210, +919876543210",
+            "'+91 98765 43210', +919876543210",
+            "+14165550123, +14165550123",
+            "4165550123, +14165550123",
+            "' 416 555 0123 ', +14165550123"
+    })
+    void normalizesToE164(String input, String expected) {
+        assertEquals(expected, ContactValidator.normalizeMobile(input));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "+", "12345", "+915876543210", "+11165550123", "919876543210",
+            "98765432101", "+44 20 7946 0958", "98765-43210", "98765432a0", "++919876543210", "9876+543210"})
+    void rejectsUnsupportedNumbers(String input) {
+        assertNull(ContactValidator.normalizeMobile(input));
+    }
+
+    // 613 is Ottawa and 987 could be India; neither can be told apart from the other country
+    @ParameterizedTest
+    @ValueSource(strings = {"6135550123", "9055550123", "9876543210", " 98765 43210 "})
+    void nationalNumbersOfTwoCountriesHaveNoCanonicalForm(String input) {
+        assertNull(ContactValidator.normalizeMobile(input));
+        assertTrue(ContactValidator.isValidMobile(input));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"9876543210", "+919876543210", "+14165550123", "4165550123", "5876543210",
+            "1876543210", "+15876543210", "+915876543210", "919876543210", " 98765 43210 ", "+9198765432101",
+            "", "+", "abc", "+1 416 555 0123"})
+    void mobileMatchesLegacyRegex(String input) {
+        String stripped = input.trim().replaceAll("\\s+", "");
+        boolean legacy = stripped.matches(OLD_INDIA) || stripped.matches(OLD_CANADA);
+        assertEquals(legacy, ContactValidator.isValidMobile(input), input);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"user@example.com", "first.last+tag@mail.example.in", "a_b-c@d", "@example.com",
+            "user@", "user", "us@er@example.com", "user@exa_mple.com", "us er@example.com", "user@exa+mple.com",
+            "", "ü@example.com", "user.@.", "-@-"})
+    void emailMatchesLegacyRegex(String input) {
+        assertEquals(input.matches(OLD_EMAIL), ContactValidator.isValidEmail(input), input);
+    }
+
+    @Test
+    void nullsAreInvalid() {
+        assertFalse(ContactValidator.isValidMobile(null));
+        assertFalse(ContactValidator.isValidEmail(null));
+        assertFalse(ContactValidator.isE164(null));
+        assertFalse(ContactValidator.isOtpCode(null, 4, 6));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"+1234567890", "+123456789012345", "+123456789", "+1234567890123456", "1234567890",
+            "+12345x7890", ""})
+    void e164MatchesLegacyRegex(String input) {
+        assertEquals(input.matches("\\+\\d{10,15}"), ContactValidator.isE164(input), input);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1234", "123456", "123", "1234567", "12a4", ""})
+    void otpCodeMatchesLegacyRegex(String input) {
+        assertEquals(input.matches("\\d{4,6}"), ContactValidator.isOtpCode(input, 4, 6), input);
+    }
+}
@@ -0,0 +1,27 @@
+package com.ezpay.notificationservice.clients;
+
+import com.ezpay.notificationservice.dto.RecipientPage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+@Component
+public class UserServiceClient {
+
+    private static final String RECIPIENTS_URL = "http://user-service/internal/user/recipients?after={after}&limit={limit}";
+
+    private final RestTemplate restTemplate;
+
+    public UserServiceClient(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Users with an email address whose id is greater than {@code afterId}, in id order.
+     */
+    public RecipientPage fetchRecipients(long afterId, int limit) {
+        RecipientPage page = restTemplate.getForObject(RECIPIENTS_URL, RecipientPage.class, afterId, limit);
+        return page != null ? page : new RecipientPage(List.of(), null);
+    }
+}
@@ -0,0 +1,45 @@
+package com.ezpay.notificationservice.config;
+
+import com.ezpay.notificationservice.service.EmailRetryRouter;
+import com.ezpay.notificationservice.service.KafkaConsumer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.KafkaListenerConfigurer;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistrar;
+import org.springframework.kafka.config.SimpleKafkaListenerEndpoint;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+
+/**
+ * One listener container per retry tier. A tier that is waiting for its next record to become due
+ * pauses only its own consumer, so a ten-minute tier never holds back the ten-second one.
+ */
+@Configuration
+public class EmailRetryListenerConfig implements KafkaListenerConfigurer {
+
+    private final EmailRetryRouter retryRouter;
+    private final KafkaConsumer kafkaConsumer;
+    private final ConcurrentKafkaListenerContainerFactory<String, String> retryListenerContainerFactory;
+
+    public EmailRetryListenerConfig(EmailRetryRouter retryRouter,
+                                    KafkaConsumer kafkaConsumer,
+                                    @Qualifier("retryListenerContainerFactory")
+                                    ConcurrentKafkaListenerContainerFactory<String, String> retryListenerContainerFactory) {
+        this.retryRouter = retryRouter;
+        this.kafkaConsumer = kafkaConsumer;
+        this.retryListenerContainerFactory = retryListenerContainerFactory;
+    }
+
+    @Override
+    public void configureKafkaListeners(KafkaListenerEndpointRegistrar registrar) {
+        for (String topic : retryRouter.retryTopics()) {
+            SimpleKafkaListenerEndpoint<String, String> endpoint = new SimpleKafkaListenerEndpoint<>();
+            endpoint.setId("email-retry-" + topic);
+            endpoint.setGroupId("notification-retry-group");
+            endpoint.setTopics(topic);
+            endpoint.setBatchListener(true);
+            endpoint.setMessageListener((BatchAcknowledgingMessageListener<String, String>) kafkaConsumer::consumeRetry);
+            registrar.registerEndpoint(endpoint, retryListenerContainerFactory);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.ezpay.notificationservice.config;
+
+import com.ezpay.notificationservice.service.EmailRetryRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    @Value("${notification.consumer.concurrency:3}")
+    private int concurrency;
+
+    @Value("${notification.consumer.max-poll-records:100}")
+    private int maxPollRecords;
+
+    @Bean
+    public ConsumerFactory<String, String> consumerFactory(KafkaProperties kafkaProperties, MeterRegistry meterRegistry) {
+        Map<String, Object> props = kafkaProperties.buildConsumerProperties(null);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        DefaultKafkaConsumerFactory<String, String> factory = new DefaultKafkaConsumerFactory<>(props);
+        // Publishes the client metrics, including records-lag-max per partition
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+
+    // Whole polls are handed to the listener; offsets are committed once the listener returns.
+    // Per-event failures go to the retry topics. A record that cannot even be forwarded fails the
+    // batch with a BatchListenerFailedException: offsets before it are committed, and only it and
+    // the records after it are redelivered.
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory, KafkaTemplate<String, String> kafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.getContainerProperties().setMicrometerEnabled(true);
+        factory.setCommonErrorHandler(deadLetterErrorHandler(kafkaTemplate));
+        return factory;
+    }
+
+    // Retry tiers acknowledge manually so a record that is not due yet can pause its partition;
+    // EmailRetryListenerConfig creates one container per tier from this factory
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> retryListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory, KafkaTemplate<String, String> kafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setMicrometerEnabled(true);
+        factory.setCommonErrorHandler(deadLetterErrorHandler(kafkaTemplate));
+        return factory;
+    }
+
+    // The failed record is retried in place a couple of times, then published to the DLT on its own
+    private static DefaultErrorHandler deadLetterErrorHandler(KafkaTemplate<String, String> kafkaTemplate) {
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, ex) -> new TopicPartition(EmailRetryRouter.DLT_TOPIC, -1));
+        return new DefaultErrorHandler(recoverer, new FixedBackOff(1000L, 2));
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics emailRetryTopics(EmailRetryRouter retryRouter,
+                                                 @Value("${notification.email.retry.partitions:3}") int partitions) {
+        List<NewTopic> topics = new ArrayList<>();
+        for (String topic : retryRouter.retryTopics()) {
+            topics.add(TopicBuilder.name(topic).partitions(partitions).build());
+        }
+        topics.add(TopicBuilder.name(EmailRetryRouter.DLT_TOPIC).partitions(partitions).build());
+        return new KafkaAdmin.NewTopics(topics.toArray(NewTopic[]::new));
+    }
+
+    // SMTP sends for consumed events; a full queue makes the listener thread send, slowing the poll loop
+    @Bean
+    public ThreadPoolTaskExecutor emailDispatchExecutor(@Value("${notification.dispatch.pool-size:16}") int poolSize,
+                                                       @Value("${notification.dispatch.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("email-dispatch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ezpay.notificationservice.config;
+
+import com.ezpay.notificationservice.service.PooledJavaMailSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Properties;
+
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+public class MailConfig {
+
+    // Replaces Boot's per-message-connection sender; still configured from spring.mail.*
+    @Bean
+    public PooledJavaMailSender mailSender(MailProperties mailProperties,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${notification.smtp.pool.max-connections:8}") int maxConnections,
+                                           @Value("${notification.smtp.pool.borrow-timeout-ms:5000}") long borrowTimeoutMs,
+                                           @Value("${notification.smtp.pool.validate-after-idle-ms:30000}") long validateAfterIdleMs,
+                                           @Value("${notification.smtp.pool.max-idle-ms:120000}") long maxIdleMs,
+                                           @Value("${notification.smtp.pool.max-messages-per-connection:100}") int maxMessagesPerConnection) {
+        PooledJavaMailSender sender = new PooledJavaMailSender(meterRegistry, maxConnections, borrowTimeoutMs,
+                validateAfterIdleMs, maxIdleMs, maxMessagesPerConnection);
+        sender.setHost(mailProperties.getHost());
+        if (mailProperties.getPort() != null) {
+            sender.setPort(mailProperties.getPort());
+        }
+        sender.setUsername(mailProperties.getUsername());
+        sender.setPassword(mailProperties.getPassword());
+        sender.setProtocol(mailProperties.getProtocol());
+        if (mailProperties.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(mailProperties.getDefaultEncoding().name());
+        }
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.putAll(mailProperties.getProperties());
+        sender.setJavaMailProperties(javaMailProperties);
+        return sender;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ezpay.notificationservice.controller;
+
+import com.ezpay.notificationservice.domain.Campaign;
+import com.ezpay.notificationservice.service.CampaignService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/notifications/campaigns")
+public class CampaignController {
+
+    public record CampaignRequest(String name, String templateName, Map<String, String> variables) {
+    }
+
+    private final CampaignService campaignService;
+
+    public CampaignController(CampaignService campaignService) {
+        this.campaignService = campaignService;
+    }
+
+    /**
+     * Sends a stored email template to every user with an email address.
+     * @param request name, templateName and variables shared by all recipients
+     * @return the campaign; poll GET /{id} for progress
+     */
+    @PostMapping
+    public ResponseEntity<?> create(@RequestBody CampaignRequest request) {
+        try {
+            Campaign campaign = campaignService.create(request.name(), request.templateName(), request.variables());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(campaign);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable Long id) {
+        return campaignService.find(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<?> pause(@PathVariable Long id) {
+        return campaignService.pause(id)
+                ? ResponseEntity.ok(Map.of("status", Campaign.PAUSED))
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Campaign is not running"));
+    }
+
+    // Continues from the last checkpoint
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable Long id) {
+        return campaignService.start(id)
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("status", Campaign.RUNNING))
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Campaign is running or completed"));
+    }
+}
@@ -0,0 +1,31 @@
+package com.ezpay.notificationservice.controller;
+
+import com.ezpay.notificationservice.service.DeadLetterReplayer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/notifications/dlt")
+public class DeadLetterController {
+
+    private final DeadLetterReplayer deadLetterReplayer;
+
+    public DeadLetterController(DeadLetterReplayer deadLetterReplayer) {
+        this.deadLetterReplayer = deadLetterReplayer;
+    }
+
+    /**
+     * Moves dead-lettered email events back to the main topic.
+     * @param max upper bound on events moved in this call
+     * @return
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<?> replay(@RequestParam(defaultValue = "1000") int max) {
+        return ResponseEntity.ok(Map.of("replayed", deadLetterReplayer.replay(max)));
+    }
+}
@@ -0,0 +1,48 @@
+package com.ezpay.notificationservice.controller;
+
+import com.ezpay.notificationservice.dto.ScheduledNotification;
+import com.ezpay.notificationservice.service.NotificationScheduler;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/notifications/scheduled")
+public class ScheduledNotificationController {
+
+    private final NotificationScheduler notificationScheduler;
+
+    public ScheduledNotificationController(NotificationScheduler notificationScheduler) {
+        this.notificationScheduler = notificationScheduler;
+    }
+
+    /**
+     * Schedules an email or SMS for later, e.g. a KYC follow-up or a payment-due reminder.
+     * @param notification channel, dueAt (epoch millis) and the email event or SMS text
+     * @return the id and due time, both needed to cancel
+     */
+    @PostMapping
+    public ResponseEntity<?> schedule(@RequestBody ScheduledNotification notification) {
+        try {
+            String id = notificationScheduler.schedule(notification);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("id", id, "dueAt", notification.getDueAt()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancel(@PathVariable String id, @RequestParam long dueAt) {
+        return notificationScheduler.cancel(id, dueAt)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
@@ -1,8 +1,8 @@
 package com.ezpay.notificationservice.controller;
 
 import com.ezpay.notificationservice.service.SmsService;
-import com.twilio.rest.verify.v2.service.Verification;
-import com.twilio.rest.verify.v2.service.VerificationCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,10 +11,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 @RestController
 @RequestMapping("/api/otp")
 public class SmsController {
 
+    private static final Logger log = LoggerFactory.getLogger(SmsController.class);
+
     private final SmsService smsService;
     public SmsController(SmsService smsService) {
         this.smsService = smsService;
@@ -22,19 +27,19 @@ public class SmsController {
 
     /**
      * this Api is for otp verification and the otp is valid for 10 minutes.
+     * The request thread is released while the SMS waits for the provider.
      * @param request
      * @return
      */
     @PostMapping("/send")
-    public ResponseEntity<?> sendOtp(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<?>> sendOtp(@RequestBody Map<String, String> request) {
         try{
             String phoneNumber = request.get("phoneNumber");
-            Verification verification = smsService.sendVerification(phoneNumber);
-//            return ResponseEntity.ok("OTP sent with status: " + verification.getStatus());
-            return ResponseEntity.ok("OTP sent with status: 121");
+            return smsService.sendVerification(phoneNumber)
+                    .<ResponseEntity<?>>thenApply(status -> ResponseEntity.ok("OTP sent with status: " + status))
+                    .exceptionally(this::failed);
         }catch (Exception e){
-            e.printStackTrace();
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(failed(e));
         }
     }
 
@@ -44,21 +49,27 @@ public class SmsController {
      * @return
      */
     @PostMapping("/verify")
-    public ResponseEntity<?> verifyOtp(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<?>> verifyOtp(@RequestBody Map<String, String> request) {
         try{
             String mobileNumber = request.get("mobileNumber");
             String otp = request.get("otp");
 
-            // Optional: if request is nul
-            VerificationCheck check = smsService.checkVerification(mobileNumber, otp);
-            if ("approved".equals(check.getStatus())) {
-                return ResponseEntity.ok("OTP verified successfully");
-            } else {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid or expired OTP");
-            }
+            return smsService.checkVerification(mobileNumber, otp)
+                    .<ResponseEntity<?>>thenApply(status -> "approved".equals(status)
+                            ? ResponseEntity.ok("OTP verified successfully")
+                            : ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid or expired OTP"))
+                    .exceptionally(this::failed);
         }catch (Exception e) {
-            e.printStackTrace();
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(failed(e));
+        }
+    }
+
+    private ResponseEntity<?> failed(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", cause.getMessage()));
         }
+        log.error("OTP request failed: {}", cause.getMessage());
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.ezpay.notificationservice.controller;
+
+import com.ezpay.notificationservice.service.TemplateRegistry;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/notifications/templates")
+public class TemplateController {
+
+    private final TemplateRegistry templateRegistry;
+
+    public TemplateController(TemplateRegistry templateRegistry) {
+        this.templateRegistry = templateRegistry;
+    }
+
+    /**
+     * Creates or replaces an email template; every instance picks it up without a restart.
+     * @param name
+     * @param request subject and body
+     * @return
+     */
+    @PutMapping("/{name}")
+    public ResponseEntity<?> saveTemplate(@PathVariable String name, @RequestBody Map<String, String> request) {
+        String subject = request.get("subject");
+        String body = request.get("body");
+        if (subject == null || body == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "subject and body are required"));
+        }
+        templateRegistry.save(name, subject, body);
+        return ResponseEntity.ok(Map.of("template", name));
+    }
+
+    /**
+     * Reloads a template that was changed directly in the database.
+     * @param name
+     * @return
+     */
+    @PostMapping("/{name}/reload")
+    public ResponseEntity<?> reloadTemplate(@PathVariable String name) {
+        templateRegistry.reload(name);
+        return ResponseEntity.ok(Map.of("template", name, "loaded", templateRegistry.contains(name)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.ezpay.notificationservice.domain;
+
+import com.ezpay.notificationservice.dto.RecipientPage;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "campaign_retry")
+public class CampaignRetry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "campaign_retry_seq")
+    @SequenceGenerator(name = "campaign_retry_seq", sequenceName = "campaign_retry_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "campaign_id", nullable = false)
+    private Long campaignId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(name = "first_name")
+    private String firstName;
+
+    @Column(name = "user_name")
+    private String userName;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    public CampaignRetry() {
+    }
+
+    public CampaignRetry(Long campaignId, RecipientPage.Recipient recipient, int attempts) {
+        this.campaignId = campaignId;
+        this.userId = recipient.id();
+        this.email = recipient.email();
+        this.firstName = recipient.firstName();
+        this.userName = recipient.userName();
+        this.attempts = attempts;
+    }
+
+    public RecipientPage.Recipient toRecipient() {
+        return new RecipientPage.Recipient(userId, email, firstName, userName);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getCampaignId() {
+        return campaignId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
@@ -6,7 +6,8 @@ import jakarta.persistence.*;
 @Table(name = "email_template")
 public class EmailTemplate {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_template_seq")
+    @SequenceGenerator(name = "email_template_seq", sequenceName = "email_template_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "template_name", unique = true, nullable = false)
@@ -0,0 +1,12 @@
+package com.ezpay.notificationservice.dto;
+
+import java.util.List;
+
+/**
+ * One page of user-service's recipients endpoint. {@code nextCursor} is null on the last page.
+ */
+public record RecipientPage(List<Recipient> items, Long nextCursor) {
+
+    public record Recipient(Long id, String email, String firstName, String userName) {
+    }
+}
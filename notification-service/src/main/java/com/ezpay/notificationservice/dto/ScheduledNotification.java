@@ -0,0 +1,79 @@
+package com.ezpay.notificationservice.dto;
+
+import java.io.Serializable;
+
+/**
+ * A notification to send at {@code dueAt} (epoch millis). Email notifications carry the
+ * {@link UserEvent} that would otherwise be published to {@code email-topic}; SMS notifications
+ * carry the number and text. Low-priority SMS may be merged with others to the same number.
+ */
+public class ScheduledNotification implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String EMAIL = "email";
+    public static final String SMS = "sms";
+
+    private String id;
+    private String channel;
+    private long dueAt;
+    private UserEvent event;
+    private String to;
+    private String text;
+    private String priority;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    public long getDueAt() {
+        return dueAt;
+    }
+
+    public void setDueAt(long dueAt) {
+        this.dueAt = dueAt;
+    }
+
+    public UserEvent getEvent() {
+        return event;
+    }
+
+    public void setEvent(UserEvent event) {
+        this.event = event;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+}
@@ -6,11 +6,23 @@ import java.util.Map;
 
 public class UserEvent implements Serializable {
     private static final long serialVersionUID = 1L;
+    // Unique per notification; the same id on a redelivery lets the consumer drop the duplicate
+    private String eventId;
     private String UserId;
     private String email;
     private String name;
     private String eventType;
     private String redirectUrl;
+    // critical, high, normal or low; low-priority events may be merged into a per-user digest
+    private String priority;
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
 
     public String getUserId() {
         return UserId;
@@ -51,4 +63,12 @@ public class UserEvent implements Serializable {
     public void setRedirectUrl(String redirectUrl) {
         this.redirectUrl = redirectUrl;
     }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
 }
@@ -0,0 +1,81 @@
+package com.ezpay.notificationservice.repository;
+
+import com.ezpay.notificationservice.domain.Campaign;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface CampaignRepository extends JpaRepository<Campaign, Long> {
+
+    /**
+     * Marks the campaign running under the {@code owner} lease if nobody else is running it. A
+     * RUNNING campaign whose checkpoint has not moved since {@code staleBefore} is treated as
+     * abandoned by a dead instance, and the new owner takes the lease over.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE Campaign c
+    SET c.status = 'RUNNING', c.owner = :owner, c.updatedAt = :now
+    WHERE c.id = :id
+      AND (c.status IN ('PENDING', 'PAUSED', 'FAILED') OR (c.status = 'RUNNING' AND c.updatedAt < :staleBefore))
+""")
+    int claim(@Param("id") Long id,
+              @Param("owner") String owner,
+              @Param("now") Instant now,
+              @Param("staleBefore") Instant staleBefore);
+
+    /**
+     * Records progress and renews the lease. Returns 0 once the campaign is paused or another
+     * runner has taken it over, and the caller must stop.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE Campaign c
+    SET c.lastUserId = :lastUserId, c.sent = c.sent + :sent, c.failed = c.failed + :failed, c.updatedAt = :now
+    WHERE c.id = :id AND c.owner = :owner AND c.status = 'RUNNING'
+""")
+    int checkpoint(@Param("id") Long id,
+                   @Param("owner") String owner,
+                   @Param("lastUserId") long lastUserId,
+                   @Param("sent") long sent,
+                   @Param("failed") long failed,
+                   @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE Campaign c
+    SET c.status = :status, c.updatedAt = :now
+    WHERE c.id = :id AND c.status = :expected
+""")
+    int transition(@Param("id") Long id,
+                   @Param("expected") String expected,
+                   @Param("status") String status,
+                   @Param("now") Instant now);
+
+    // Ends a run; only the lease holder can complete or fail the campaign
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE Campaign c
+    SET c.status = :status, c.updatedAt = :now
+    WHERE c.id = :id AND c.owner = :owner AND c.status = 'RUNNING'
+""")
+    int finish(@Param("id") Long id,
+               @Param("owner") String owner,
+               @Param("status") String status,
+               @Param("now") Instant now);
+
+    @Query("SELECT c.id FROM Campaign c WHERE c.status = 'RUNNING' AND c.updatedAt < :staleBefore")
+    List<Long> findStaleRunningIds(@Param("staleBefore") Instant staleBefore);
+
+    @Query("SELECT COUNT(c) > 0 FROM Campaign c WHERE c.id = :id AND c.owner = :owner AND c.status = 'RUNNING'")
+    boolean isRunningBy(@Param("id") Long id, @Param("owner") String owner);
+}
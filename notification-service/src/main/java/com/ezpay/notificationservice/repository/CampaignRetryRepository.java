@@ -0,0 +1,18 @@
+package com.ezpay.notificationservice.repository;
+
+import com.ezpay.notificationservice.domain.CampaignRetry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface CampaignRetryRepository extends JpaRepository<CampaignRetry, Long> {
+
+    // Keyset page of the campaign's retries that still have attempts left
+    List<CampaignRetry> findByCampaignIdAndAttemptsLessThanAndUserIdGreaterThanOrderByUserId(
+            Long campaignId, int maxAttempts, Long afterUserId, Pageable page);
+
+    boolean existsByCampaignIdAndUserId(Long campaignId, Long userId);
+
+    boolean existsByCampaignIdAndAttemptsLessThan(Long campaignId, int maxAttempts);
+}
@@ -0,0 +1,383 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.clients.UserServiceClient;
+import com.ezpay.notificationservice.domain.Campaign;
+import com.ezpay.notificationservice.domain.CampaignRetry;
+import com.ezpay.notificationservice.dto.RecipientPage;
+import com.ezpay.notificationservice.repository.CampaignRepository;
+import com.ezpay.notificationservice.repository.CampaignRetryRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends one email template to every user with an address. Recipients are streamed from
+ * user-service in keyset pages, each message is rendered from the registry's compiled template,
+ * and chunks go out over one pooled SMTP connection. A token bucket caps the send rate across all
+ * campaigns on this instance. The last user id is checkpointed after every chunk, so a paused,
+ * failed or abandoned campaign resumes where it stopped. Each run holds a lease token, and only
+ * the holder can checkpoint or finish the campaign. Recipients whose send failed are parked in
+ * {@code campaign_retry} and retried after the main pass, up to {@code max-attempts} sends each.
+ */
+@Service
+public class CampaignService {
+
+    private static final Logger log = LoggerFactory.getLogger(CampaignService.class);
+
+    private final CampaignRepository campaignRepository;
+    private final CampaignRetryRepository retryRepository;
+    private final UserServiceClient userServiceClient;
+    private final TemplateRegistry templateRegistry;
+    private final EmailService emailService;
+    private final DeliveryLedger deliveryLedger;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TokenBucket throttle;
+    private final ExecutorService executor;
+    private final AtomicInteger active = new AtomicInteger();
+    private final int pageSize;
+    private final int chunkSize;
+    private final Duration staleAfter;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+
+    public CampaignService(CampaignRepository campaignRepository,
+                           CampaignRetryRepository retryRepository,
+                           UserServiceClient userServiceClient,
+                           TemplateRegistry templateRegistry,
+                           EmailService emailService,
+                           DeliveryLedger deliveryLedger,
+                           MeterRegistry meterRegistry,
+                           @Value("${notification.campaign.rate-per-second:50}") double ratePerSecond,
+                           @Value("${notification.campaign.page-size:500}") int pageSize,
+                           @Value("${notification.campaign.chunk-size:50}") int chunkSize,
+                           @Value("${notification.campaign.threads:2}") int threads,
+                           @Value("${notification.campaign.stale-after-ms:300000}") long staleAfterMs,
+                           @Value("${notification.campaign.max-attempts:3}") int maxAttempts,
+                           @Value("${notification.campaign.retry-delay-ms:60000}") long retryDelayMs) {
+        this.campaignRepository = campaignRepository;
+        this.retryRepository = retryRepository;
+        this.userServiceClient = userServiceClient;
+        this.templateRegistry = templateRegistry;
+        this.emailService = emailService;
+        this.deliveryLedger = deliveryLedger;
+        this.meterRegistry = meterRegistry;
+        this.throttle = new TokenBucket(ratePerSecond, chunkSize);
+        this.pageSize = pageSize;
+        this.chunkSize = chunkSize;
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+        this.maxAttempts = maxAttempts;
+        // The lease is not renewed while waiting, so the wait must stay well under staleAfter
+        this.retryDelay = Duration.ofMillis(Math.min(retryDelayMs, staleAfterMs / 2));
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "campaign-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        meterRegistry.gauge("notification.campaign.active", active);
+    }
+
+    public Campaign create(String name, String templateName, Map<String, String> variables) {
+        if (name == null || templateName == null) {
+            throw new IllegalArgumentException("name and templateName are required");
+        }
+        if (!templateRegistry.contains(templateName)) {
+            throw new IllegalArgumentException("Unknown email template: " + templateName);
+        }
+        Campaign campaign = new Campaign();
+        campaign.setName(name);
+        campaign.setTemplateName(templateName);
+        campaign.setVariables(toJson(variables != null ? variables : Map.of()));
+        campaign.setCreatedAt(Instant.now());
+        campaign.setUpdatedAt(campaign.getCreatedAt());
+        campaign = campaignRepository.save(campaign);
+        start(campaign.getId());
+        return campaign;
+    }
+
+    /**
+     * Starts or resumes from the last checkpoint. Returns false if the campaign is already running
+     * elsewhere or has completed.
+     */
+    public boolean start(Long id) {
+        String owner = UUID.randomUUID().toString();
+        if (campaignRepository.claim(id, owner, Instant.now(), Instant.now().minus(staleAfter)) == 0) {
+            return false;
+        }
+        executor.execute(() -> run(id, owner));
+        return true;
+    }
+
+    /**
+     * The runner stops after the chunk in flight.
+     */
+    public boolean pause(Long id) {
+        return campaignRepository.transition(id, Campaign.RUNNING, Campaign.PAUSED, Instant.now()) > 0;
+    }
+
+    public Optional<Campaign> find(Long id) {
+        return campaignRepository.findById(id);
+    }
+
+    // Picks up campaigns whose instance died or shut down mid-run
+    @Scheduled(fixedDelayString = "${notification.campaign.stale-after-ms:300000}")
+    public void resumeAbandoned() {
+        for (Long id : campaignRepository.findStaleRunningIds(Instant.now().minus(staleAfter))) {
+            if (start(id)) {
+                log.info("Resuming abandoned campaign {}", id);
+            }
+        }
+    }
+
+    private void run(Long id, String owner) {
+        active.incrementAndGet();
+        try {
+            Campaign campaign = campaignRepository.findById(id).orElseThrow();
+            Map<String, Object> shared = fromJson(campaign.getVariables());
+            long cursor = campaign.getLastUserId();
+            log.info("Campaign {} running from user id {}", id, cursor);
+            while (true) {
+                Timer.Sample fetch = Timer.start(meterRegistry);
+                RecipientPage page = userServiceClient.fetchRecipients(cursor, pageSize);
+                fetch.stop(meterRegistry.timer("notification.campaign.page.fetch"));
+                List<RecipientPage.Recipient> items = page.items();
+                for (int from = 0; from < items.size(); from += chunkSize) {
+                    if (!campaignRepository.isRunningBy(id, owner)) {
+                        log.info("Campaign {} stopped at user id {}", id, cursor);
+                        return;
+                    }
+                    List<RecipientPage.Recipient> chunk = items.subList(from, Math.min(items.size(), from + chunkSize));
+                    Claimed claimed = claim(id, chunk);
+                    List<RecipientPage.Recipient> fresh = claimed.fresh();
+                    List<RecipientPage.Recipient> failed = fresh.isEmpty()
+                            ? List.of() : sendChunk(id, campaign.getTemplateName(), shared, fresh);
+                    int givenUp = parkForRetry(id, failed, claimed.busy());
+                    cursor = chunk.get(chunk.size() - 1).id();
+                    if (campaignRepository.checkpoint(id, owner, cursor, fresh.size() - failed.size(), givenUp, Instant.now()) == 0) {
+                        log.info("Campaign {} lost its lease at user id {}", id, cursor);
+                        return;
+                    }
+                    count(fresh.size() - failed.size(), chunk.size() - fresh.size() - claimed.busy().size(),
+                            failed.size() - givenUp + claimed.busy().size(), givenUp);
+                }
+                if (page.nextCursor() == null || items.isEmpty()) {
+                    break;
+                }
+            }
+            if (retryFailed(id, owner, campaign.getTemplateName(), shared, cursor)
+                    && campaignRepository.finish(id, owner, Campaign.COMPLETED, Instant.now()) > 0) {
+                log.info("Campaign {} completed", id);
+            }
+        } catch (InterruptedException e) {
+            // Shutting down: stays RUNNING so another instance resumes it once the checkpoint goes stale
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Campaign {} failed: {}", id, e.getMessage(), e);
+            campaignRepository.finish(id, owner, Campaign.FAILED, Instant.now());
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    /**
+     * Resends parked recipients in rounds, {@code retryDelay} apart, until every one was sent or
+     * used up its attempts. Returns false if the run was paused or lost its lease meanwhile.
+     */
+    private boolean retryFailed(Long id, String owner, String templateName, Map<String, Object> shared, long cursor)
+            throws InterruptedException {
+        while (retryRepository.existsByCampaignIdAndAttemptsLessThan(id, maxAttempts)) {
+            Thread.sleep(retryDelay.toMillis());
+            long after = 0;
+            while (true) {
+                if (!campaignRepository.isRunningBy(id, owner)) {
+                    log.info("Campaign {} stopped while retrying", id);
+                    return false;
+                }
+                List<CampaignRetry> batch = retryRepository.findByCampaignIdAndAttemptsLessThanAndUserIdGreaterThanOrderByUserId(
+                        id, maxAttempts, after, PageRequest.of(0, chunkSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                after = batch.get(batch.size() - 1).getUserId();
+                List<RecipientPage.Recipient> recipients = batch.stream().map(CampaignRetry::toRecipient).toList();
+                Claimed claimed = claim(id, recipients);
+                List<RecipientPage.Recipient> fresh = claimed.fresh();
+                List<RecipientPage.Recipient> failed = fresh.isEmpty()
+                        ? List.of() : sendChunk(id, templateName, shared, fresh);
+                Set<Long> failedIds = new HashSet<>(failed.stream().map(RecipientPage.Recipient::id).toList());
+                Set<Long> busyIds = new HashSet<>(claimed.busy().stream().map(RecipientPage.Recipient::id).toList());
+                List<CampaignRetry> done = new ArrayList<>();
+                List<CampaignRetry> again = new ArrayList<>();
+                int givenUp = 0;
+                for (CampaignRetry retry : batch) {
+                    if (busyIds.contains(retry.getUserId())) {
+                        // Still pending under an older claim; next round, without using an attempt
+                        continue;
+                    }
+                    // Not failed means sent just now, or already delivered by an earlier run
+                    if (!failedIds.contains(retry.getUserId())) {
+                        done.add(retry);
+                        continue;
+                    }
+                    retry.setAttempts(retry.getAttempts() + 1);
+                    again.add(retry);
+                    if (retry.getAttempts() >= maxAttempts) {
+                        givenUp++;
+                    }
+                }
+                retryRepository.deleteAll(done);
+                retryRepository.saveAll(again);
+                if (campaignRepository.checkpoint(id, owner, cursor, fresh.size() - failed.size(), givenUp, Instant.now()) == 0) {
+                    log.info("Campaign {} lost its lease while retrying", id);
+                    return false;
+                }
+                count(fresh.size() - failed.size(), batch.size() - fresh.size() - busyIds.size(), failed.size() - givenUp, givenUp);
+            }
+        }
+        return true;
+    }
+
+    // A chunk resent after a crash before its checkpoint only reaches users who missed it. Users
+    // still pending under the crashed run's claim are busy until that claim expires.
+    private Claimed claim(Long id, List<RecipientPage.Recipient> recipients) {
+        List<DeliveryLedger.Claim> claims = deliveryLedger.claim(recipients.stream().map(r -> key(id, r)).toList());
+        List<RecipientPage.Recipient> fresh = new ArrayList<>(recipients.size());
+        List<RecipientPage.Recipient> busy = new ArrayList<>();
+        for (int i = 0; i < recipients.size(); i++) {
+            if (claims.get(i) == DeliveryLedger.Claim.SEND) {
+                fresh.add(recipients.get(i));
+            } else if (claims.get(i) == DeliveryLedger.Claim.IN_FLIGHT) {
+                busy.add(recipients.get(i));
+            }
+        }
+        return new Claimed(fresh, busy);
+    }
+
+    /**
+     * Busy recipients are parked without using an attempt.
+     * @return how many of the failed recipients are out of attempts already
+     */
+    private int parkForRetry(Long id, List<RecipientPage.Recipient> failed, List<RecipientPage.Recipient> busy) {
+        List<CampaignRetry> parked = new ArrayList<>(failed.size() + busy.size());
+        for (RecipientPage.Recipient recipient : failed) {
+            park(id, recipient, 1, parked);
+        }
+        for (RecipientPage.Recipient recipient : busy) {
+            park(id, recipient, 0, parked);
+        }
+        retryRepository.saveAll(parked);
+        return maxAttempts <= 1 ? failed.size() : 0;
+    }
+
+    private void park(Long id, RecipientPage.Recipient recipient, int attempts, List<CampaignRetry> parked) {
+        // A chunk replayed after a crash may have parked the same user before
+        if (!retryRepository.existsByCampaignIdAndUserId(id, recipient.id())) {
+            parked.add(new CampaignRetry(id, recipient, attempts));
+        }
+    }
+
+    private void count(int sent, int duplicate, int retry, int failed) {
+        // Campaign ids are unbounded, so they stay out of the tags; per-campaign totals live on the row
+        meterRegistry.counter("notification.campaign.recipients", "outcome", "sent").increment(sent);
+        meterRegistry.counter("notification.campaign.recipients", "outcome", "duplicate").increment(duplicate);
+        meterRegistry.counter("notification.campaign.recipients", "outcome", "retry").increment(retry);
+        meterRegistry.counter("notification.campaign.recipients", "outcome", "failed").increment(failed);
+    }
+
+    /**
+     * @return the recipients in the chunk that could not be sent; their ledger claims are released
+     */
+    private List<RecipientPage.Recipient> sendChunk(Long id, String templateName, Map<String, Object> shared, List<RecipientPage.Recipient> chunk)
+            throws InterruptedException {
+        String date = LocalDate.now().toString();
+        Map<MimeMessage, RecipientPage.Recipient> messages = new LinkedHashMap<>();
+        try {
+            for (RecipientPage.Recipient recipient : chunk) {
+                throttle.acquire();
+                Map<String, Object> variables = new HashMap<>(shared);
+                variables.put("name", recipient.firstName() != null ? recipient.firstName() : recipient.userName());
+                variables.put("email", recipient.email());
+                variables.put("userId", String.valueOf(recipient.id()));
+                variables.put("date", date);
+                TemplateRegistry.RenderedEmail email = templateRegistry.render(templateName, variables)
+                        .orElseThrow(() -> new IllegalStateException("Email template " + templateName + " was removed"));
+                messages.put(emailService.createMessage(recipient.email(), email.subject(), email.body()), recipient);
+            }
+            emailService.sendAll(new ArrayList<>(messages.keySet()));
+            deliveryLedger.confirm(chunk.stream().map(r -> key(id, r)).toList());
+            return List.of();
+        } catch (MailSendException e) {
+            List<RecipientPage.Recipient> failed = e.getFailedMessages().isEmpty()
+                    ? new ArrayList<>(messages.values())
+                    : e.getFailedMessages().keySet().stream().map(messages::get).filter(Objects::nonNull).toList();
+            release(id, failed);
+            deliveryLedger.confirm(chunk.stream().filter(r -> !failed.contains(r)).map(r -> key(id, r)).toList());
+            log.warn("{} of {} campaign emails failed: {}", failed.size(), messages.size(), e.getMessage());
+            return failed;
+        } catch (InterruptedException | RuntimeException e) {
+            // Nothing in the chunk went out; the resumed run must not skip these users
+            release(id, chunk);
+            throw e;
+        }
+    }
+
+    private void release(Long id, List<RecipientPage.Recipient> recipients) {
+        recipients.forEach(r -> deliveryLedger.release(key(id, r)));
+    }
+
+    private static String key(Long id, RecipientPage.Recipient recipient) {
+        return "campaign:" + id + ":" + recipient.id();
+    }
+
+    private String toJson(Map<String, String> variables) {
+        try {
+            return objectMapper.writeValueAsString(variables);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid campaign variables", e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String json) {
+        try {
+            return json != null ? objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {}) : Map.of();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable campaign variables", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record Claimed(List<RecipientPage.Recipient> fresh, List<RecipientPage.Recipient> busy) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Moves dead-lettered email events back onto {@code email-topic} in bulk, after the cause (an SMTP
+ * outage, a missing template) has been fixed. Retry headers are dropped, so replayed events get the
+ * full set of retry tiers again. Offsets are committed per poll once the copies are acknowledged.
+ */
+@Service
+public class DeadLetterReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterReplayer.class);
+    private static final String GROUP_ID = "notification-dlt-replay";
+    private static final int MAX_EMPTY_POLLS = 3;
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public DeadLetterReplayer(ConsumerFactory<String, String> consumerFactory,
+                              KafkaTemplate<String, String> kafkaTemplate,
+                              MeterRegistry meterRegistry) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Replays up to {@code max} events and returns how many were moved.
+     */
+    public synchronized int replay(int max) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        int moved = 0;
+        try (Consumer<String, String> consumer = consumerFactory.createConsumer(GROUP_ID, null, null, overrides)) {
+            consumer.subscribe(List.of(EmailRetryRouter.DLT_TOPIC));
+            int emptyPolls = 0;
+            while (moved < max && emptyPolls < MAX_EMPTY_POLLS) {
+                ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(1));
+                if (records.isEmpty()) {
+                    emptyPolls++;
+                    continue;
+                }
+                emptyPolls = 0;
+                List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>();
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                for (ConsumerRecord<String, String> record : records) {
+                    if (moved >= max) {
+                        break;
+                    }
+                    ProducerRecord<String, String> copy = new ProducerRecord<>(EmailRetryRouter.EMAIL_TOPIC, record.key(), record.value());
+                    copy.headers().add("x-replayed-from", (record.topic() + "-" + record.partition() + "@" + record.offset())
+                            .getBytes(StandardCharsets.UTF_8));
+                    sends.add(kafkaTemplate.send(copy));
+                    offsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+                    moved++;
+                }
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+                consumer.commitSync(offsets);
+                meterRegistry.counter("notification.email.dlt.replayed").increment(sends.size());
+            }
+        }
+        log.info("Replayed {} email events from {}", moved, EmailRetryRouter.DLT_TOPIC);
+        return moved;
+    }
+}
@@ -0,0 +1,213 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Records which event ids have been delivered so redelivered Kafka records and upstream retries
+ * do not send twice. Delivered ids go into a Redis set per hour ({@code notif:{ledger}:<hour>}) that
+ * expires as a whole after the retention window, so there are no per-member TTLs.
+ *
+ * <p>Delivery is two-phase. {@link #claim(List)} checks every hour in the window and, for ids not
+ * delivered yet, sets a short-lived pending marker; the caller then {@link #confirm(List)}s after a
+ * successful send or {@link #release(String)}s after a failed one. A claimant that crashes leaves
+ * only the marker behind, which expires after {@code pending-ttl-seconds}, so the redelivered
+ * event is sent rather than dropped. Claims for the whole batch are one script call.
+ *
+ * <p>Every key the scripts touch is passed in {@code KEYS} and shares the {@code {ledger}} hash
+ * tag, so the scripts also run on a Redis Cluster.
+ */
+@Component
+public class DeliveryLedger {
+
+    /**
+     * Outcome of a claim. {@code IN_FLIGHT} ids are being sent under someone else's claim right
+     * now; they are neither sent nor dropped, but tried again later.
+     */
+    public enum Claim {
+        SEND, DUPLICATE, IN_FLIGHT
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryLedger.class);
+    private static final String PREFIX = "notif:{ledger}:";
+    private static final String PENDING_PREFIX = "notif:{ledger}:pending:";
+    private static final long HOUR_MS = Duration.ofHours(1).toMillis();
+
+    // KEYS = the ARGV[1] hours in the window, then one pending key per id;
+    // ARGV = hour count, pending ttl ms, owner, ids...
+    // One reply per id: 1 = claimed, 0 = delivered already, 2 = pending under another claim
+    private static final RedisScript<List> CLAIM = new DefaultRedisScript<>("""
+            local hours = tonumber(ARGV[1])
+            local result = {}
+            for j = 4, #ARGV do
+              local state = 1
+              for i = 1, hours do
+                if redis.call('SISMEMBER', KEYS[i], ARGV[j]) == 1 then
+                  state = 0
+                  break
+                end
+              end
+              if state == 1 and not redis.call('SET', KEYS[hours + j - 3], ARGV[3], 'NX', 'PX', ARGV[2]) then
+                state = 2
+              end
+              result[#result + 1] = state
+            end
+            return result
+            """, List.class);
+
+    // KEYS[1] is the current hour, then one pending key per id; ARGV = set ttl seconds, owner, ids...
+    private static final RedisScript<Long> CONFIRM = new DefaultRedisScript<>("""
+            for j = 3, #ARGV do
+              redis.call('SADD', KEYS[1], ARGV[j])
+              if redis.call('GET', KEYS[j - 1]) == ARGV[2] then
+                redis.call('DEL', KEYS[j - 1])
+              end
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // Drops the pending marker only if this instance still holds it
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String owner = UUID.randomUUID().toString();
+    private final int retentionHours;
+    private final Duration pendingTtl;
+
+    public DeliveryLedger(StringRedisTemplate redisTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${notification.ledger.retention-hours:24}") int retentionHours,
+                          @Value("${notification.ledger.pending-ttl-seconds:120}") long pendingTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.retentionHours = retentionHours;
+        this.pendingTtl = Duration.ofSeconds(pendingTtlSeconds);
+    }
+
+    /**
+     * Claims each id for delivery, one outcome per id. A null id cannot be checked and is always
+     * sent. If Redis is unavailable the events are sent.
+     */
+    public List<Claim> claim(List<String> eventIds) {
+        List<Claim> result = new ArrayList<>(Collections.nCopies(eventIds.size(), Claim.SEND));
+        List<Integer> keyed = new ArrayList<>(eventIds.size());
+        for (int i = 0; i < eventIds.size(); i++) {
+            if (eventIds.get(i) == null) {
+                meterRegistry.counter("notification.ledger.unkeyed").increment();
+            } else {
+                keyed.add(i);
+            }
+        }
+        if (keyed.isEmpty()) {
+            return result;
+        }
+        List<String> keys = windowKeys();
+        List<String> args = new ArrayList<>(keyed.size() + 3);
+        args.add(String.valueOf(keys.size()));
+        args.add(String.valueOf(pendingTtl.toMillis()));
+        args.add(owner);
+        for (int i : keyed) {
+            keys.add(PENDING_PREFIX + eventIds.get(i));
+            args.add(eventIds.get(i));
+        }
+        List<?> replies;
+        try {
+            replies = redisTemplate.execute(CLAIM, keys, args.toArray());
+        } catch (DataAccessException e) {
+            log.warn("Delivery ledger unavailable, sending {} events unchecked: {}", keyed.size(), e.getMessage());
+            return result;
+        }
+        for (int j = 0; j < keyed.size(); j++) {
+            long state = replies != null && replies.get(j) instanceof Long reply ? reply : 1;
+            Claim claim = state == 0 ? Claim.DUPLICATE : state == 2 ? Claim.IN_FLIGHT : Claim.SEND;
+            result.set(keyed.get(j), claim);
+            if (claim == Claim.DUPLICATE) {
+                meterRegistry.counter("notification.ledger.duplicates.dropped").increment();
+            } else if (claim == Claim.IN_FLIGHT) {
+                meterRegistry.counter("notification.ledger.in_flight").increment();
+            }
+        }
+        return result;
+    }
+
+    public Claim claim(String eventId) {
+        return claim(Collections.singletonList(eventId)).get(0);
+    }
+
+    /**
+     * Marks claimed ids as delivered after a successful send and drops their pending markers.
+     */
+    public void confirm(List<String> eventIds) {
+        List<String> ids = eventIds.stream().filter(Objects::nonNull).toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        long hour = System.currentTimeMillis() / HOUR_MS;
+        List<String> keys = new ArrayList<>(ids.size() + 1);
+        keys.add(PREFIX + hour);
+        ids.forEach(id -> keys.add(PENDING_PREFIX + id));
+        List<String> args = new ArrayList<>(ids.size() + 2);
+        args.add(String.valueOf(ttlSeconds()));
+        args.add(owner);
+        args.addAll(ids);
+        try {
+            redisTemplate.execute(CONFIRM, keys, args.toArray());
+        } catch (DataAccessException e) {
+            // The pending markers expire, so a redelivery of these ids would be sent again
+            log.warn("Failed to confirm {} ledger entries: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    public void confirm(String eventId) {
+        confirm(Collections.singletonList(eventId));
+    }
+
+    /**
+     * Drops the pending marker after a failed send so the retry is not held back as in flight.
+     */
+    public void release(String eventId) {
+        if (eventId == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE, List.of(PENDING_PREFIX + eventId), owner);
+        } catch (DataAccessException e) {
+            log.warn("Failed to release ledger entry {}: {}", eventId, e.getMessage());
+        }
+    }
+
+    // Every hour set that can still hold an id confirmed within the retention window
+    private List<String> windowKeys() {
+        long hour = System.currentTimeMillis() / HOUR_MS;
+        List<String> keys = new ArrayList<>(retentionHours + 1);
+        for (int i = 0; i <= retentionHours; i++) {
+            keys.add(PREFIX + (hour - i));
+        }
+        return keys;
+    }
+
+    private long ttlSeconds() {
+        return (retentionHours + 1) * 3600L;
+    }
+}
@@ -0,0 +1,75 @@
+package com.ezpay.notificationservice.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-key buffers of pending items. A key's buffer opens with its first item and is due
+ * {@code windowMs} later, so no item waits longer than the window however busy the key is.
+ * A buffer that reaches {@code maxItems} is handed back straight away.
+ */
+class DigestBuffer<T> {
+
+    private final long windowMs;
+    private final int maxItems;
+    private final Map<String, Pending<T>> buffers = new ConcurrentHashMap<>();
+
+    DigestBuffer(long windowMs, int maxItems) {
+        if (windowMs <= 0 || maxItems < 1) {
+            throw new IllegalArgumentException("Window and max items must be positive");
+        }
+        this.windowMs = windowMs;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Adds the item to the key's buffer. Returns the buffer's items if this one filled it, which
+     * also closes it; otherwise null.
+     */
+    List<T> add(String key, T item, long now) {
+        List<List<T>> full = new ArrayList<>(1);
+        buffers.compute(key, (k, pending) -> {
+            if (pending == null) {
+                pending = new Pending<>(now + windowMs, new ArrayList<>());
+            }
+            pending.items().add(item);
+            if (pending.items().size() >= maxItems) {
+                full.add(pending.items());
+                return null;
+            }
+            return pending;
+        });
+        return full.isEmpty() ? null : full.get(0);
+    }
+
+    /**
+     * Removes and returns every buffer whose window has closed, in the order they were found.
+     */
+    Map<String, List<T>> drainDue(long now) {
+        Map<String, List<T>> due = new LinkedHashMap<>();
+        for (String key : buffers.keySet()) {
+            buffers.computeIfPresent(key, (k, pending) -> {
+                if (pending.dueAt() > now) {
+                    return pending;
+                }
+                due.put(k, pending.items());
+                return null;
+            });
+        }
+        return due;
+    }
+
+    Map<String, List<T>> drainAll() {
+        return drainDue(Long.MAX_VALUE);
+    }
+
+    int size() {
+        return buffers.size();
+    }
+
+    private record Pending<T>(long dueAt, List<T> items) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+/**
+ * Moves failed email events through tiered retry topics ({@code email-topic-retry-1..n}), each
+ * with a longer delay, and finally to {@code email-topic-dlt}. The attempt number and the time the
+ * event becomes due travel as record headers, so the retry consumer never blocks the main topic.
+ */
+@Component
+public class EmailRetryRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailRetryRouter.class);
+
+    public static final String EMAIL_TOPIC = "email-topic";
+    public static final String DLT_TOPIC = EMAIL_TOPIC + "-dlt";
+    static final String ATTEMPT_HEADER = "x-retry-attempt";
+    static final String DUE_AT_HEADER = "x-retry-due-at";
+    static final String ERROR_HEADER = "x-retry-error";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long[] delaysMs;
+
+    public EmailRetryRouter(KafkaTemplate<String, String> kafkaTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${notification.email.retry.delays-ms:10000,60000,600000}") long[] delaysMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.delaysMs = delaysMs;
+    }
+
+    public String[] retryTopics() {
+        return IntStream.rangeClosed(1, delaysMs.length).mapToObj(EmailRetryRouter::retryTopic).toArray(String[]::new);
+    }
+
+    /**
+     * Publishes the record to the next tier, or to the DLT once every tier has been tried. Blocks
+     * until the broker has it, so the caller can commit the original offset afterwards.
+     */
+    public void forward(ConsumerRecord<String, String> record, Exception cause) {
+        forward(record.key(), record.value(), attemptOf(record) + 1, cause,
+                record.topic() + "-" + record.partition() + "@" + record.offset());
+    }
+
+    /**
+     * Publishes an event taken off {@code email-topic} earlier, such as one held for a digest, to
+     * the first tier.
+     */
+    public void forward(String key, String value, Exception cause) {
+        forward(key, value, 1, cause, "digest buffer");
+    }
+
+    private void forward(String key, String value, int attempt, Exception cause, String source) {
+        String topic = attempt > delaysMs.length ? DLT_TOPIC : retryTopic(attempt);
+        ProducerRecord<String, String> out = new ProducerRecord<>(topic, key, value);
+        out.headers().add(ATTEMPT_HEADER, bytes(String.valueOf(attempt)));
+        if (attempt <= delaysMs.length) {
+            out.headers().add(DUE_AT_HEADER, bytes(String.valueOf(System.currentTimeMillis() + delaysMs[attempt - 1])));
+        }
+        if (cause != null) {
+            out.headers().add(ERROR_HEADER, bytes(String.valueOf(cause.getMessage())));
+        }
+        kafkaTemplate.send(out).join();
+        boolean dead = DLT_TOPIC.equals(topic);
+        meterRegistry.counter("notification.email.retry", "tier", topic, "outcome", dead ? "dead_lettered" : "scheduled").increment();
+        if (dead) {
+            log.error("Email event from {} moved to {} after {} attempts", source, DLT_TOPIC, attempt - 1);
+        } else {
+            log.warn("Email event from {} scheduled on {}", source, topic);
+        }
+    }
+
+    /**
+     * Event that cannot succeed on retry, such as unreadable JSON, goes straight to the DLT.
+     */
+    public void deadLetter(ConsumerRecord<String, String> record, Exception cause) {
+        ProducerRecord<String, String> out = new ProducerRecord<>(DLT_TOPIC, record.key(), record.value());
+        out.headers().add(ATTEMPT_HEADER, bytes(String.valueOf(attemptOf(record))));
+        if (cause != null) {
+            out.headers().add(ERROR_HEADER, bytes(String.valueOf(cause.getMessage())));
+        }
+        kafkaTemplate.send(out).join();
+        meterRegistry.counter("notification.email.retry", "tier", DLT_TOPIC, "outcome", "dead_lettered").increment();
+    }
+
+    public long dueAt(ConsumerRecord<String, String> record) {
+        String value = header(record, DUE_AT_HEADER);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    private static int attemptOf(ConsumerRecord<String, String> record) {
+        String value = header(record, ATTEMPT_HEADER);
+        return value != null ? Integer.parseInt(value) : 0;
+    }
+
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static String retryTopic(int attempt) {
+        return EMAIL_TOPIC + "-retry-" + attempt;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -18,7 +18,9 @@ import jakarta.mail.internet.MimeMessage;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class EmailService {
@@ -32,33 +34,32 @@ public class EmailService {
     @Autowired
     private EmailTemplateRepository emailTemplateRepository;
 
+    @Autowired
+    private TemplateRegistry templateRegistry;
+
+    @Autowired
+    private DeliveryLedger deliveryLedger;
+
     private static final Logger log = LoggerFactory.getLogger(EmailService.class);
+    private static final String DIGEST_TEMPLATE = "digest";
 
 
     /**
      * method to send email with template , going forward we will store variables also in the db
      * @param request
      */
-//    public void sendEmailWithTemplate(UserEvent request) {
-//        log.info("Inside sendEmailWithTemplate()");
-//        Map<String, String> variables = new HashMap<>();
-//        variables.put("name", request.getName());
-//        variables.put("email", request.getEmail());
-//        variables.put("userId", request.getUserId() != null ? request.getUserId().toString() : "");
-//        variables.put("eventType", request.getEventType());
-//        variables.put("date", LocalDate.now().toString());
-//
-////        EmailTemplate template = emailTemplateRepository.findByTemplateName("registration")
-////                .orElseThrow(() -> new RuntimeException("Email template not found: registration"));
-//
-//        String subject = replacePlaceholders(template.getSubject(), variables);
-//        String body = replacePlaceholders(template.getBody(), variables);
-//        sendEmail(request.getEmail(), subject, body);
-//
-//    }
-
     public void sendEmailWithTemplate(UserEvent request) {
-        log.info("Inside sendEmailWithTemplate()");
+        mailSender.send(buildTemplateMessage(request));
+    }
+
+    /**
+     * Renders the event's template into a ready-to-send message without sending it, so callers
+     * can hand several messages to {@link #sendAll(List)} at once.
+     * @param request
+     * @return
+     */
+    public MimeMessage buildTemplateMessage(UserEvent request) {
+        log.info("Inside buildTemplateMessage()");
         Map<String, Object> variables = new HashMap<>();
         variables.put("name", request.getName());
         variables.put("email", request.getEmail());
@@ -66,12 +67,41 @@ public class EmailService {
         variables.put("eventType", request.getEventType());
         variables.put("date", LocalDate.now().toString());
         variables.put("redirectUrl", request.getRedirectUrl());
-        // Render HTML from Thymeleaf template in resources/templates/registration.html
+        Optional<TemplateRegistry.RenderedEmail> cached = templateRegistry.render(request.getEventType(), variables);
+        if (cached.isPresent()) {
+            return createMessage(request.getEmail(), cached.get().subject(), cached.get().body());
+        }
+        // Not in the database yet: render HTML from Thymeleaf template in resources/templates/registration.html
         Context context = new Context();
         context.setVariables(variables);
         String body = templateEngine.process(request.getEventType(), context); // "registration" means registration.html
         String subject = "Welcome to EZPay"; // hardcoded or from properties for now
-        sendEmail(request.getEmail(), subject, body);
+        return createMessage(request.getEmail(), subject, body);
+    }
+
+    /**
+     * Renders several events for one recipient into a single digest email, from the {@code digest}
+     * template in the database if present, otherwise resources/templates/digest.html.
+     * @param to
+     * @param name
+     * @param events
+     * @return
+     */
+    public MimeMessage buildDigestMessage(String to, String name, List<UserEvent> events) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", name);
+        variables.put("email", to);
+        variables.put("count", events.size());
+        variables.put("events", events);
+        variables.put("date", LocalDate.now().toString());
+        Optional<TemplateRegistry.RenderedEmail> cached = templateRegistry.render(DIGEST_TEMPLATE, variables);
+        if (cached.isPresent()) {
+            return createMessage(to, cached.get().subject(), cached.get().body());
+        }
+        Context context = new Context();
+        context.setVariables(variables);
+        String body = templateEngine.process(DIGEST_TEMPLATE, context);
+        return createMessage(to, "Your EZPay updates (" + events.size() + ")", body);
     }
 
 
@@ -82,14 +112,35 @@ public class EmailService {
      * @param body
      */
     public void sendEmail(String to, String subject, String body) {
+        mailSender.send(createMessage(to, subject, body));
+    }
+
+    /**
+     * Sends the messages back to back over one pooled SMTP connection. Messages that fail are
+     * listed in {@link org.springframework.mail.MailSendException#getFailedMessages()}.
+     * @param messages
+     */
+    public void sendAll(List<MimeMessage> messages) {
+        if (!messages.isEmpty()) {
+            mailSender.send(messages.toArray(MimeMessage[]::new));
+        }
+    }
+
+    /**
+     * Builds an HTML message without sending it.
+     * @param to
+     * @param subject
+     * @param body
+     * @return
+     */
+    public MimeMessage createMessage(String to, String subject, String body) {
         MimeMessage mimeMessage = mailSender.createMimeMessage();
         try {
             MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, StandardCharsets.UTF_8.name());
             helper.setTo(to);
             helper.setSubject(subject);
             helper.setText(body, true); // true = HTML
-
-            mailSender.send(mimeMessage);
+            return mimeMessage;
         } catch (MessagingException e) {
             throw new RuntimeException("Email sending failed", e);
         }
@@ -137,7 +188,20 @@ public class EmailService {
             if(to==null || subject==null || body==null){
                 throw new IllegalArgumentException("Some fields are missing");
             }
-            sendEmail(to, subject, body);
+            // Callers that retry should pass the same eventId so the email is sent once
+            String eventId = emailRequest.get("eventId");
+            DeliveryLedger.Claim claim = deliveryLedger.claim(eventId);
+            if (claim != DeliveryLedger.Claim.SEND) {
+                log.info("Dropping {} email request {}", claim == DeliveryLedger.Claim.DUPLICATE ? "duplicate" : "in-flight", eventId);
+                return;
+            }
+            try {
+                sendEmail(to, subject, body);
+                deliveryLedger.confirm(eventId);
+            } catch (RuntimeException e) {
+                deliveryLedger.release(eventId);
+                throw e;
+            }
         } catch (Exception e) {
             log.error("Error while calling sendEmailNotification()");
             e.printStackTrace();
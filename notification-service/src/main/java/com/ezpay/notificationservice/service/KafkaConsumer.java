@@ -1,37 +1,252 @@
 package com.ezpay.notificationservice.service;
 
 import com.ezpay.notificationservice.dto.UserEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class KafkaConsumer {
 
-    @Autowired
-    private JavaMailSender mailSender;
+    private static final Logger log = LoggerFactory.getLogger(KafkaConsumer.class);
 
-    @Autowired
-    private EmailService emailService;
+    private final EmailService emailService;
+    private final EmailRetryRouter retryRouter;
+    private final DeliveryLedger deliveryLedger;
+    private final NotificationCoalescer coalescer;
+    private final ThreadPoolTaskExecutor dispatchExecutor;
+    private final MeterRegistry meterRegistry;
+    private final ObjectReader eventReader = new ObjectMapper().readerFor(UserEvent.class);
+    private final int chunkSize;
 
-    private static final Logger log = LoggerFactory.getLogger(KafkaConsumer.class);
+    public KafkaConsumer(EmailService emailService,
+                         EmailRetryRouter retryRouter,
+                         DeliveryLedger deliveryLedger,
+                         NotificationCoalescer coalescer,
+                         @Qualifier("emailDispatchExecutor") ThreadPoolTaskExecutor dispatchExecutor,
+                         MeterRegistry meterRegistry,
+                         @Value("${notification.dispatch.chunk-size:20}") int chunkSize) {
+        this.emailService = emailService;
+        this.retryRouter = retryRouter;
+        this.deliveryLedger = deliveryLedger;
+        this.coalescer = coalescer;
+        this.chunkSize = chunkSize;
+        this.dispatchExecutor = dispatchExecutor;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("notification.email.dispatch.queue", dispatchExecutor,
+                e -> e.getThreadPoolExecutor().getQueue().size());
+    }
 
     /**
-     * this method is to consume the event produced by user service to send email notification
-     * @param message
-     * @throws JsonProcessingException
+     * this method is to consume the events produced by user service to send email notification.
+     * A poll's records are split into chunks; each chunk is rendered and sent over one pooled SMTP
+     * connection on the dispatch pool. Events that fail are handed to the retry tiers, so the batch
+     * offsets are committed once every chunk has either sent or forwarded its events. An event that
+     * cannot be forwarded either fails the batch at that record, so the error handler redelivers
+     * from there instead of replaying the whole poll.
+     * Low-priority events are stored by the {@link NotificationCoalescer} and sent later as a digest;
+     * once stored, their offsets are committed with the rest.
+     * @param records
      */
-    @KafkaListener(topics = "email-topic", groupId = "notification-group")
-    public void consume(String message) throws JsonProcessingException {
-        log.info("Inside kafka consume()");
-        ObjectMapper objectMapper = new ObjectMapper();
-        UserEvent event = objectMapper.readValue(message, UserEvent.class);
-        emailService.sendEmailWithTemplate(event);
-        log.info("Triggered email send method");
+    @KafkaListener(topics = EmailRetryRouter.EMAIL_TOPIC, groupId = "notification-group", containerFactory = "batchListenerContainerFactory")
+    public void consume(List<ConsumerRecord<String, String>> records) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<Received> events = new ArrayList<>(records.size());
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<String, String> record : records) {
+            meterRegistry.timer("notification.email.consumer.delay")
+                    .record(Duration.ofMillis(Math.max(0, now - record.timestamp())));
+            Received received = read(record);
+            if (received != null) {
+                events.add(received);
+            }
+        }
+        // Digest events are claimed when their digest goes out, not while they wait in the buffer
+        events.removeIf(received -> coalescer.offerEmail(received.record().value(), received.event()));
+        Map<ConsumerRecord<String, String>, Exception> unrouted = new HashMap<>();
+        events = firstDeliveries(events, unrouted);
+        List<CompletableFuture<Map<ConsumerRecord<String, String>, Exception>>> sends = new ArrayList<>();
+        for (int from = 0; from < events.size(); from += chunkSize) {
+            List<Received> chunk = events.subList(from, Math.min(events.size(), from + chunkSize));
+            sends.add(CompletableFuture.supplyAsync(() -> sendChunk(chunk), dispatchExecutor));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        sends.forEach(send -> unrouted.putAll(send.join()));
+        failAtFirst(records, unrouted);
+        meterRegistry.summary("notification.email.batch.size").record(records.size());
+        sample.stop(meterRegistry.timer("notification.email.batch.duration"));
+        log.info("Processed batch of {} email events", records.size());
+    }
+
+    /**
+     * Consumes one retry tier; each tier has its own container (see EmailRetryListenerConfig).
+     * Records in a tier share one delay, so they become due in order; the first one that is not due
+     * yet pauses the tier until it is, and the rest are redelivered.
+     * @param records
+     * @param ack
+     */
+    public void consumeRetry(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, String> record = records.get(i);
+            long wait = retryRouter.dueAt(record) - System.currentTimeMillis();
+            if (wait > 0) {
+                ack.nack(i, Duration.ofMillis(wait));
+                return;
+            }
+            Received received = read(record);
+            if (received == null) {
+                continue;
+            }
+            DeliveryLedger.Claim claim = deliveryLedger.claim(received.event().getEventId());
+            if (claim == DeliveryLedger.Claim.DUPLICATE) {
+                continue;
+            }
+            if (claim == DeliveryLedger.Claim.IN_FLIGHT) {
+                Map<ConsumerRecord<String, String>, Exception> unrouted = new HashMap<>();
+                forward(received, new IllegalStateException("Email event is being sent elsewhere"), unrouted);
+                failAtFirst(records, unrouted);
+                continue;
+            }
+            try {
+                emailService.sendAll(List.of(emailService.buildTemplateMessage(received.event())));
+                deliveryLedger.confirm(received.event().getEventId());
+                meterRegistry.counter("notification.email.retry", "tier", record.topic(), "outcome", "recovered").increment();
+            } catch (Exception e) {
+                log.error("Retry of {} email for {} failed", received.event().getEventType(), received.event().getEmail(), e);
+                Map<ConsumerRecord<String, String>, Exception> unrouted = new HashMap<>();
+                retryLater(received, e, unrouted);
+                failAtFirst(records, unrouted);
+            }
+        }
+        ack.acknowledge();
+    }
+
+    // Throws for the earliest record that could be neither sent nor forwarded; the error handler
+    // commits everything before it and redelivers from there
+    private static void failAtFirst(List<ConsumerRecord<String, String>> records,
+                                    Map<ConsumerRecord<String, String>, Exception> unrouted) {
+        if (unrouted.isEmpty()) {
+            return;
+        }
+        for (ConsumerRecord<String, String> record : records) {
+            Exception cause = unrouted.get(record);
+            if (cause != null) {
+                throw new BatchListenerFailedException("Email event could not be sent or forwarded", cause, record);
+            }
+        }
+    }
+
+    // Drops events the delivery ledger has already delivered; events another claim is sending right
+    // now go to the retry tiers, by which time that send has either been confirmed or released
+    private List<Received> firstDeliveries(List<Received> events, Map<ConsumerRecord<String, String>, Exception> unrouted) {
+        List<DeliveryLedger.Claim> claims = deliveryLedger.claim(events.stream().map(r -> r.event().getEventId()).toList());
+        List<Received> fresh = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            if (claims.get(i) == DeliveryLedger.Claim.SEND) {
+                fresh.add(events.get(i));
+            } else if (claims.get(i) == DeliveryLedger.Claim.IN_FLIGHT) {
+                forward(events.get(i), new IllegalStateException("Email event is being sent elsewhere"), unrouted);
+            } else {
+                log.info("Dropping duplicate {} email event {}", events.get(i).event().getEventType(), events.get(i).event().getEventId());
+                meterRegistry.counter("notification.email.consumed", "outcome", "duplicate").increment();
+            }
+        }
+        return fresh;
+    }
+
+    private Received read(ConsumerRecord<String, String> record) {
+        try {
+            return new Received(record, eventReader.readValue(record.value()));
+        } catch (Exception e) {
+            log.error("Skipping unreadable email event at {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+            meterRegistry.counter("notification.email.consumed", "outcome", "unreadable").increment();
+            try {
+                retryRouter.deadLetter(record, e);
+            } catch (RuntimeException deadLetterFailure) {
+                throw new BatchListenerFailedException("Unreadable email event could not be dead-lettered", deadLetterFailure, record);
+            }
+            return null;
+        }
+    }
+
+    // Returns the records that failed and could not be forwarded to a retry tier either
+    private Map<ConsumerRecord<String, String>, Exception> sendChunk(List<Received> chunk) {
+        Map<ConsumerRecord<String, String>, Exception> unrouted = new HashMap<>();
+        Map<MimeMessage, Received> messages = new LinkedHashMap<>();
+        for (Received received : chunk) {
+            try {
+                messages.put(emailService.buildTemplateMessage(received.event()), received);
+            } catch (Exception e) {
+                log.error("Failed to render {} email for {}", received.event().getEventType(), received.event().getEmail(), e);
+                meterRegistry.counter("notification.email.consumed", "outcome", "failed").increment();
+                retryLater(received, e, unrouted);
+            }
+        }
+        Map<Received, Exception> failed = new LinkedHashMap<>();
+        try {
+            emailService.sendAll(new ArrayList<>(messages.keySet()));
+        } catch (MailSendException e) {
+            e.getFailedMessages().forEach((message, ex) -> {
+                Received received = messages.get(message);
+                if (received != null) {
+                    failed.put(received, ex);
+                }
+            });
+            if (failed.isEmpty()) {
+                messages.values().forEach(received -> failed.put(received, e));
+            }
+        } catch (Exception e) {
+            messages.values().forEach(received -> failed.put(received, e));
+        }
+        failed.forEach((received, ex) -> {
+            log.error("Failed to send {} email to {}", received.event().getEventType(), received.event().getEmail(), ex);
+            retryLater(received, ex, unrouted);
+        });
+        deliveryLedger.confirm(messages.values().stream()
+                .filter(received -> !failed.containsKey(received))
+                .map(received -> received.event().getEventId())
+                .toList());
+        meterRegistry.counter("notification.email.consumed", "outcome", "sent").increment(messages.size() - failed.size());
+        meterRegistry.counter("notification.email.consumed", "outcome", "failed").increment(failed.size());
+        return unrouted;
+    }
+
+    private void retryLater(Received received, Exception cause, Map<ConsumerRecord<String, String>, Exception> unrouted) {
+        deliveryLedger.release(received.event().getEventId());
+        forward(received, cause, unrouted);
+    }
+
+    private void forward(Received received, Exception cause, Map<ConsumerRecord<String, String>, Exception> unrouted) {
+        try {
+            retryRouter.forward(received.record(), cause);
+        } catch (RuntimeException e) {
+            log.error("Could not forward {} email event {} to a retry tier", received.event().getEventType(),
+                    received.event().getEventId(), e);
+            unrouted.put(received.record(), e);
+        }
+    }
+
+    private record Received(ConsumerRecord<String, String> record, UserEvent event) {
     }
 }
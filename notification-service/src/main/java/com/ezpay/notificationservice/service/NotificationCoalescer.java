@@ -0,0 +1,360 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.dto.UserEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Merges bursts of low-priority notifications for one user into a single digest. Email events
+ * marked {@code low}, or whose type is listed in {@code notification.digest.event-types}, wait in a
+ * per-address buffer for up to {@code notification.digest.window-ms}; everything that arrived in
+ * the window goes out as one email. Low-priority scheduled SMS are merged per number the same way.
+ * Critical and high-priority events, OTP traffic and retries are never buffered.
+ *
+ * <p>Email digests are kept in Redis, so the consumer can commit an event's offset as soon as it
+ * is buffered. Each address has a list of raw events ({@code notif:{digest}:<address>}) and
+ * {@code notif:{digest}:due} scores the addresses by when their digest is due. Whichever instance
+ * takes a due digest holds a lease on it while sending, and the events leave Redis only once the
+ * digest has been sent or every event in it forwarded to the retry tiers. A digest whose holder
+ * crashes is taken again when the lease runs out.
+ *
+ * <p>Buffered events are claimed in the {@link DeliveryLedger} only when their digest goes out, so
+ * a redelivery while they wait is buffered again rather than dropped as a duplicate, and the
+ * second copy is dropped at send time instead.
+ *
+ * <p>SMS buffers are in memory and flushed on shutdown; their events were already taken off the
+ * schedule, so a crash loses at most one window of low-priority texts.
+ */
+@Component
+public class NotificationCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationCoalescer.class);
+    private static final String LOW = "low";
+    private static final String PREFIX = "notif:{digest}:";
+    private static final String DUE = PREFIX + "due";
+
+    // KEYS = address list, due index; ARGV = address, event, due at, max items, now
+    private static final RedisScript<Long> OFFER = new DefaultRedisScript<>("""
+            local size = redis.call('RPUSH', KEYS[1], ARGV[2])
+            redis.call('ZADD', KEYS[2], 'NX', ARGV[3], ARGV[1])
+            if size >= tonumber(ARGV[4]) then
+              redis.call('ZADD', KEYS[2], 'LT', ARGV[5], ARGV[1])
+            end
+            return size
+            """, Long.class);
+
+    // KEYS = address list, due index, lease; ARGV = address, token, lease ms, lease end, max items
+    // Returns the digest's events, or nothing if another instance holds it
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TAKE = new DefaultRedisScript<>("""
+            if not redis.call('SET', KEYS[3], ARGV[2], 'NX', 'PX', ARGV[3]) then return {} end
+            local events = redis.call('LRANGE', KEYS[1], 0, tonumber(ARGV[5]) - 1)
+            if #events == 0 then
+              redis.call('ZREM', KEYS[2], ARGV[1])
+              redis.call('DEL', KEYS[3])
+            else
+              redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1])
+            end
+            return events
+            """, List.class);
+
+    // KEYS = address list, due index, lease; ARGV = address, token, events taken, next due, max items, now
+    // Drops the settled events if the lease is still ours; events that arrived meanwhile stay queued
+    private static final RedisScript<Long> SETTLE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[3]) ~= ARGV[2] then return 0 end
+            redis.call('LTRIM', KEYS[1], ARGV[3], -1)
+            local left = redis.call('LLEN', KEYS[1])
+            if left == 0 then
+              redis.call('ZREM', KEYS[2], ARGV[1])
+            elseif left >= tonumber(ARGV[5]) then
+              redis.call('ZADD', KEYS[2], ARGV[6], ARGV[1])
+            else
+              redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1])
+            end
+            redis.call('DEL', KEYS[3])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final EmailService emailService;
+    private final EmailRetryRouter retryRouter;
+    private final DeliveryLedger deliveryLedger;
+    private final SmsDispatcher smsDispatcher;
+    private final ThreadPoolTaskExecutor dispatchExecutor;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Set<String> digestTypes;
+    private final long windowMs;
+    private final int maxItems;
+    private final long leaseMs;
+    private final int flushBatch;
+    private final ObjectReader eventReader = new ObjectMapper().readerFor(UserEvent.class);
+    private final DigestBuffer<SmsItem> texts;
+
+    public NotificationCoalescer(StringRedisTemplate redisTemplate,
+                                 EmailService emailService,
+                                 EmailRetryRouter retryRouter,
+                                 DeliveryLedger deliveryLedger,
+                                 SmsDispatcher smsDispatcher,
+                                 @Qualifier("emailDispatchExecutor") ThreadPoolTaskExecutor dispatchExecutor,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${notification.digest.enabled:true}") boolean enabled,
+                                 @Value("${notification.digest.event-types:activity}") Set<String> digestTypes,
+                                 @Value("${notification.digest.window-ms:10000}") long windowMs,
+                                 @Value("${notification.digest.max-items:20}") int maxItems,
+                                 @Value("${notification.digest.lease-ms:60000}") long leaseMs,
+                                 @Value("${notification.digest.flush-batch:100}") int flushBatch) {
+        this.redisTemplate = redisTemplate;
+        this.emailService = emailService;
+        this.retryRouter = retryRouter;
+        this.deliveryLedger = deliveryLedger;
+        this.smsDispatcher = smsDispatcher;
+        this.dispatchExecutor = dispatchExecutor;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.digestTypes = digestTypes.stream().map(String::trim).filter(t -> !t.isEmpty())
+                .map(t -> t.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        this.windowMs = windowMs;
+        this.maxItems = maxItems;
+        this.leaseMs = leaseMs;
+        this.flushBatch = flushBatch;
+        this.texts = new DigestBuffer<>(windowMs, maxItems);
+        meterRegistry.gauge("notification.digest.open", texts, DigestBuffer::size);
+    }
+
+    /**
+     * Stores the event for the user's next digest. Returns false if it should be sent now, which
+     * includes when Redis cannot take it. {@code payload} is the event as consumed; it is what a
+     * failed digest forwards to the retry tiers.
+     */
+    public boolean offerEmail(String payload, UserEvent event) {
+        if (!enabled || event.getEmail() == null || !coalescible(event)) {
+            return false;
+        }
+        String address = event.getEmail().toLowerCase(Locale.ROOT);
+        long now = System.currentTimeMillis();
+        try {
+            redisTemplate.execute(OFFER, List.of(PREFIX + address, DUE), address, payload,
+                    String.valueOf(now + windowMs), String.valueOf(maxItems), String.valueOf(now));
+        } catch (DataAccessException e) {
+            log.warn("Digest buffer unavailable, sending {} email now: {}", event.getEventType(), e.getMessage());
+            return false;
+        }
+        meterRegistry.counter("notification.digest.buffered", "channel", "email").increment();
+        return true;
+    }
+
+    /**
+     * Buffers a low-priority SMS for the number's next digest. Returns false if it should be sent
+     * now. {@code onFailure} is called if the merged text cannot be sent.
+     */
+    public boolean offerSms(String to, String text, String priority, Consumer<Throwable> onFailure) {
+        if (!enabled || to == null || !LOW.equalsIgnoreCase(priority)) {
+            return false;
+        }
+        meterRegistry.counter("notification.digest.buffered", "channel", "sms").increment();
+        List<SmsItem> full = texts.add(to, new SmsItem(text, onFailure), System.currentTimeMillis());
+        if (full != null) {
+            sendTexts(to, full);
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${notification.digest.flush-interval-ms:1000}")
+    public void flushDue() {
+        long now = System.currentTimeMillis();
+        texts.drainDue(now).forEach(this::sendTexts);
+        Set<String> due;
+        try {
+            due = redisTemplate.opsForZSet().rangeByScore(DUE, Double.NEGATIVE_INFINITY, now, 0, flushBatch);
+        } catch (DataAccessException e) {
+            log.warn("Digest buffer unavailable, email digests wait for the next flush: {}", e.getMessage());
+            return;
+        }
+        if (due != null) {
+            due.forEach(address -> dispatch(() -> flushEmails(address)));
+        }
+    }
+
+    // Email digests stay in Redis; the dispatch pool may already be stopping, so texts send here
+    @PreDestroy
+    public void flushAll() {
+        texts.drainAll().forEach(this::sendTexts);
+    }
+
+    private boolean coalescible(UserEvent event) {
+        String priority = event.getPriority();
+        if (priority != null && !priority.isBlank()) {
+            return LOW.equalsIgnoreCase(priority);
+        }
+        String type = event.getEventType();
+        return type != null && digestTypes.contains(type.toLowerCase(Locale.ROOT));
+    }
+
+    private void dispatch(Runnable send) {
+        try {
+            dispatchExecutor.execute(send);
+        } catch (TaskRejectedException e) {
+            send.run();
+        }
+    }
+
+    private void flushEmails(String address) {
+        String token = UUID.randomUUID().toString();
+        List<String> keys = List.of(PREFIX + address, DUE, PREFIX + "lease:" + address);
+        try {
+            long now = System.currentTimeMillis();
+            @SuppressWarnings("unchecked")
+            List<String> payloads = redisTemplate.execute(TAKE, keys, address, token,
+                    String.valueOf(leaseMs), String.valueOf(now + leaseMs), String.valueOf(maxItems));
+            if (payloads == null || payloads.isEmpty()) {
+                return;
+            }
+            if (sendEmails(read(payloads))) {
+                now = System.currentTimeMillis();
+                redisTemplate.execute(SETTLE, keys, address, token, String.valueOf(payloads.size()),
+                        String.valueOf(now + windowMs), String.valueOf(maxItems), String.valueOf(now));
+            }
+        } catch (RuntimeException e) {
+            // The digest stays in Redis and is taken again once the lease runs out
+            log.error("Failed to flush email digest for {}: {}", address, e.getMessage(), e);
+        }
+    }
+
+    private List<EmailItem> read(List<String> payloads) {
+        List<EmailItem> items = new ArrayList<>(payloads.size());
+        for (String payload : payloads) {
+            try {
+                items.add(new EmailItem(payload, eventReader.readValue(payload)));
+            } catch (Exception e) {
+                // Only readable events are buffered, so this is a corrupted entry
+                log.error("Dropping unreadable buffered email event: {}", e.getMessage());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Sends the digest. Returns true once every event is settled: sent, dropped as a duplicate or
+     * forwarded to a retry tier. Otherwise the digest stays buffered and is sent again.
+     */
+    private boolean sendEmails(List<EmailItem> buffered) {
+        List<EmailItem> items = new ArrayList<>(buffered.size());
+        boolean settled = claim(buffered, items);
+        if (items.isEmpty()) {
+            return settled;
+        }
+        UserEvent first = items.get(0).event();
+        try {
+            MimeMessage message = items.size() == 1
+                    ? emailService.buildTemplateMessage(first)
+                    : emailService.buildDigestMessage(first.getEmail(), first.getName(),
+                    items.stream().map(EmailItem::event).toList());
+            emailService.sendAll(List.of(message));
+            deliveryLedger.confirm(items.stream().map(item -> item.event().getEventId()).toList());
+            record("email", items.size());
+            return settled;
+        } catch (Exception e) {
+            log.error("Failed to send digest of {} events to {}", items.size(), first.getEmail(), e);
+            meterRegistry.counter("notification.digest.failed", "channel", "email").increment();
+            for (EmailItem item : items) {
+                deliveryLedger.release(item.event().getEventId());
+                settled &= forward(item, e);
+            }
+            return settled;
+        }
+    }
+
+    // Adds the events to send to fresh. Drops events that were buffered twice or already delivered;
+    // ones being sent elsewhere right now go to the retry tiers. Returns false if one could not.
+    private boolean claim(List<EmailItem> buffered, List<EmailItem> fresh) {
+        Map<String, EmailItem> byId = new LinkedHashMap<>();
+        List<EmailItem> unique = new ArrayList<>(buffered.size());
+        for (EmailItem item : buffered) {
+            String id = item.event().getEventId();
+            if (id == null || byId.putIfAbsent(id, item) == null) {
+                unique.add(item);
+            }
+        }
+        List<DeliveryLedger.Claim> claims = deliveryLedger.claim(unique.stream().map(item -> item.event().getEventId()).toList());
+        boolean settled = true;
+        for (int i = 0; i < unique.size(); i++) {
+            if (claims.get(i) == DeliveryLedger.Claim.SEND) {
+                fresh.add(unique.get(i));
+            } else if (claims.get(i) == DeliveryLedger.Claim.IN_FLIGHT) {
+                settled &= forward(unique.get(i), new IllegalStateException("Email event is being sent elsewhere"));
+            }
+        }
+        meterRegistry.counter("notification.digest.duplicates", "channel", "email")
+                .increment(buffered.size() - unique.size() + claims.stream().filter(c -> c == DeliveryLedger.Claim.DUPLICATE).count());
+        return settled;
+    }
+
+    private boolean forward(EmailItem item, Exception cause) {
+        try {
+            retryRouter.forward(item.event().getEmail(), item.payload(), cause);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Could not forward {} email event {} to a retry tier", item.event().getEventType(),
+                    item.event().getEventId(), e);
+            return false;
+        }
+    }
+
+    private void sendTexts(String to, List<SmsItem> items) {
+        String body = items.stream().map(SmsItem::text).collect(Collectors.joining("\n"));
+        try {
+            smsDispatcher.sendText(to, body).whenComplete((sid, ex) -> {
+                if (ex != null) {
+                    failTexts(to, items, ex);
+                } else {
+                    record("sms", items.size());
+                }
+            });
+        } catch (RuntimeException e) {
+            failTexts(to, items, e);
+        }
+    }
+
+    private void failTexts(String to, List<SmsItem> items, Throwable cause) {
+        log.error("Failed to send digest of {} texts to {}: {}", items.size(), to, cause.getMessage());
+        meterRegistry.counter("notification.digest.failed", "channel", "sms").increment();
+        items.forEach(item -> item.onFailure().accept(cause));
+    }
+
+    private void record(String channel, int size) {
+        meterRegistry.summary("notification.digest.size", "channel", channel).record(size);
+        meterRegistry.counter("notification.digest.saved", "channel", channel).increment(size - 1);
+    }
+
+    private record EmailItem(String payload, UserEvent event) {
+    }
+
+    private record SmsItem(String text, Consumer<Throwable> onFailure) {
+    }
+}
@@ -0,0 +1,426 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.dto.ScheduledNotification;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delayed email and SMS notifications. Pending items live in Redis, one sorted set per time bucket
+ * ({@code notif:sched:<bucket>}, scored by due time) with the payloads in a hash beside it, and
+ * {@code notif:sched:buckets} indexes the buckets that still hold items. Scheduling never scans.
+ *
+ * <p>Each instance leases the buckets that come within the lookahead and loads their ids into an
+ * in-memory {@link TimingWheel}. Every wheel tick claims the due ids in one script call per bucket
+ * (ZREM decides the winner, so an item is sent once even if two instances load it) and promotes
+ * them: email goes to {@code email-topic} like any other event, SMS to {@link SmsDispatcher}, or to
+ * the {@link NotificationCoalescer} when marked low priority. A periodic sweep of the leased
+ * buckets catches items scheduled after their bucket was loaded.
+ *
+ * <p>A claimed item moves to the bucket's in-flight set ({@code notif:sched:<bucket>:inflight},
+ * scored by claim expiry) and keeps its payload until Kafka or the SMS provider acknowledges the
+ * send. The sweep claims again anything whose ack did not arrive within {@code ack-timeout-ms}, so
+ * an instance dying mid-send causes a late duplicate rather than a loss; email duplicates are
+ * dropped by the consumer's delivery ledger, since the event id is stable. Low-priority SMS is
+ * acknowledged once the coalescer takes it, and its in-memory buffer remains a loss window.
+ */
+@Service
+public class NotificationScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationScheduler.class);
+    private static final String PREFIX = "notif:sched:";
+    private static final String INDEX = PREFIX + "buckets";
+    private static final long RETRY_DELAY_MS = 30_000;
+
+    // KEYS: bucket, payloads, in-flight. ARGV[1] is the claim expiry. Returns id, payload pairs.
+    private static final String CLAIM_LOOP = """
+            for _, id in ipairs(ids) do
+              if redis.call('ZREM', KEYS[1], id) == 1 then
+                local payload = redis.call('HGET', KEYS[2], id)
+                if payload then
+                  redis.call('ZADD', KEYS[3], ARGV[1], id)
+                  table.insert(out, id)
+                  table.insert(out, payload)
+                end
+              end
+            end
+            return out
+            """;
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_IDS = new DefaultRedisScript<>(
+            "local out = {}\nlocal ids = {unpack(ARGV, 2)}\n" + CLAIM_LOOP, List.class);
+    // ARGV[2] is now, ARGV[3] the batch size, ARGV[4] the latest due time to take. Claims that
+    // expired before now are taken again.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_DUE = new DefaultRedisScript<>("""
+            local out = {}
+            local expired = redis.call('ZRANGEBYSCORE', KEYS[3], '-inf', '(' .. ARGV[2], 'LIMIT', 0, ARGV[3])
+            for _, id in ipairs(expired) do
+              local payload = redis.call('HGET', KEYS[2], id)
+              if payload then
+                redis.call('ZADD', KEYS[3], ARGV[1], id)
+                table.insert(out, id)
+                table.insert(out, payload)
+              else
+                redis.call('ZREM', KEYS[3], id)
+              end
+            end
+            local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[4], 'LIMIT', 0, ARGV[3])
+            """ + CLAIM_LOOP, List.class);
+    // KEYS: in-flight, bucket, payloads. A retry rescheduled into the same bucket keeps the payload.
+    private static final RedisScript<Long> ACK = new DefaultRedisScript<>("""
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            if not redis.call('ZSCORE', KEYS[2], ARGV[1]) then
+              redis.call('HDEL', KEYS[3], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    private record Pending(String id, long bucket) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final SmsDispatcher smsDispatcher;
+    private final NotificationCoalescer coalescer;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final long bucketMs;
+    private final long lookaheadMs;
+    private final long tickMs;
+    private final int batchSize;
+    private final long ackTimeoutMs;
+    private final Duration leaseTtl;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Set<Long> leased = ConcurrentHashMap.newKeySet();
+    private final TimingWheel<Pending> wheel;
+    private final ScheduledExecutorService ticker;
+
+    public NotificationScheduler(StringRedisTemplate redisTemplate,
+                                 KafkaTemplate<String, String> kafkaTemplate,
+                                 SmsDispatcher smsDispatcher,
+                                 NotificationCoalescer coalescer,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${notification.schedule.bucket-ms:60000}") long bucketMs,
+                                 @Value("${notification.schedule.lookahead-ms:120000}") long lookaheadMs,
+                                 @Value("${notification.schedule.tick-ms:100}") long tickMs,
+                                 @Value("${notification.schedule.batch-size:500}") int batchSize,
+                                 @Value("${notification.schedule.ack-timeout-ms:150000}") long ackTimeoutMs) {
+        this.redisTemplate = redisTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.smsDispatcher = smsDispatcher;
+        this.coalescer = coalescer;
+        this.meterRegistry = meterRegistry;
+        this.bucketMs = bucketMs;
+        this.lookaheadMs = lookaheadMs;
+        this.tickMs = tickMs;
+        this.batchSize = batchSize;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.leaseTtl = Duration.ofMillis(2 * bucketMs + lookaheadMs);
+        // 64 slots over 3 levels: 100 ms ticks reach about 7 hours ahead, far beyond the lookahead
+        this.wheel = new TimingWheel<>(tickMs, 64, 3, System.currentTimeMillis());
+        meterRegistry.gauge("notification.schedule.wheel.size", wheel, w -> {
+            synchronized (w) {
+                return w.size();
+            }
+        });
+        meterRegistry.gauge("notification.schedule.buckets.leased", leased, Set::size);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notification-timing-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stores the notification and returns its id. The due time is needed again to cancel it.
+     */
+    public String schedule(ScheduledNotification notification) {
+        validate(notification);
+        if (notification.getId() == null) {
+            notification.setId(UUID.randomUUID().toString());
+        }
+        if (notification.getEvent() != null && notification.getEvent().getEventId() == null) {
+            notification.getEvent().setEventId("scheduled:" + notification.getId());
+        }
+        long bucket = bucketOf(notification.getDueAt());
+        String payload = toJson(notification);
+        redisTemplate.opsForHash().put(payloadKey(bucket), notification.getId(), payload);
+        redisTemplate.opsForZSet().add(bucketKey(bucket), notification.getId(), notification.getDueAt());
+        redisTemplate.opsForZSet().add(INDEX, String.valueOf(bucket), bucket);
+        if (leased.contains(bucket)) {
+            synchronized (wheel) {
+                wheel.add(new Pending(notification.getId(), bucket), notification.getDueAt());
+            }
+        }
+        meterRegistry.counter("notification.schedule.scheduled", "channel", notification.getChannel()).increment();
+        return notification.getId();
+    }
+
+    public boolean cancel(String id, long dueAt) {
+        long bucket = bucketOf(dueAt);
+        Long removed = redisTemplate.opsForZSet().remove(bucketKey(bucket), id);
+        redisTemplate.opsForHash().delete(payloadKey(bucket), id);
+        boolean cancelled = removed != null && removed > 0;
+        if (cancelled) {
+            meterRegistry.counter("notification.schedule.cancelled").increment();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Leases and loads buckets entering the lookahead, sweeps leased buckets for items the wheel
+     * does not know about, and releases buckets that have been drained.
+     */
+    @Scheduled(fixedDelayString = "${notification.schedule.poll-ms:1000}")
+    public void poll() {
+        long now = System.currentTimeMillis();
+        try {
+            Set<String> pending = redisTemplate.opsForZSet().rangeByScore(INDEX, Double.NEGATIVE_INFINITY, bucketOf(now + lookaheadMs));
+            if (pending != null) {
+                for (String value : pending) {
+                    long bucket = Long.parseLong(value);
+                    if (leased.contains(bucket)) {
+                        redisTemplate.expire(leaseKey(bucket), leaseTtl);
+                    } else if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(leaseKey(bucket), instanceId, leaseTtl))) {
+                        leased.add(bucket);
+                        load(bucket, now);
+                    }
+                }
+            }
+            for (Long bucket : List.copyOf(leased)) {
+                // Leave items due this instant to the wheel
+                promote(bucket, claim(CLAIM_DUE, bucket, List.of(String.valueOf(now), String.valueOf(batchSize),
+                        String.valueOf(now - 2 * tickMs))), "sweep");
+                if ((bucket + 1) * bucketMs <= now && drained(bucket)) {
+                    release(bucket);
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.error("Scheduled notification poll failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    private void load(long bucket, long now) {
+        Set<ZSetOperations.TypedTuple<String>> items = redisTemplate.opsForZSet().rangeWithScores(bucketKey(bucket), 0, -1);
+        List<String> overdue = new ArrayList<>();
+        if (items != null) {
+            synchronized (wheel) {
+                for (ZSetOperations.TypedTuple<String> item : items) {
+                    long dueAt = item.getScore() != null ? item.getScore().longValue() : now;
+                    if (!wheel.add(new Pending(item.getValue(), bucket), dueAt)) {
+                        overdue.add(item.getValue());
+                    }
+                }
+            }
+        }
+        log.info("Loaded {} scheduled notifications from bucket {}", items != null ? items.size() : 0, bucket);
+        for (int from = 0; from < overdue.size(); from += batchSize) {
+            promote(bucket, claim(CLAIM_IDS, bucket, overdue.subList(from, Math.min(overdue.size(), from + batchSize))), "overdue");
+        }
+    }
+
+    private void tick() {
+        try {
+            List<TimingWheel.Entry<Pending>> due;
+            synchronized (wheel) {
+                due = wheel.advance(System.currentTimeMillis());
+            }
+            if (due.isEmpty()) {
+                return;
+            }
+            Map<Long, List<String>> byBucket = new LinkedHashMap<>();
+            for (TimingWheel.Entry<Pending> entry : due) {
+                byBucket.computeIfAbsent(entry.value().bucket(), b -> new ArrayList<>()).add(entry.value().id());
+            }
+            byBucket.forEach((bucket, ids) -> {
+                for (int from = 0; from < ids.size(); from += batchSize) {
+                    promote(bucket, claim(CLAIM_IDS, bucket, ids.subList(from, Math.min(ids.size(), from + batchSize))), "wheel");
+                }
+            });
+        } catch (RuntimeException ex) {
+            // Unclaimed items stay in Redis; the next sweep picks them up
+            log.error("Timing wheel tick failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return id, payload pairs of the claimed items
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> claim(RedisScript<List> script, long bucket, List<String> args) {
+        List<String> argv = new ArrayList<>(args.size() + 1);
+        argv.add(String.valueOf(System.currentTimeMillis() + ackTimeoutMs));
+        argv.addAll(args);
+        List<String> claimed = redisTemplate.execute(script,
+                List.of(bucketKey(bucket), payloadKey(bucket), inflightKey(bucket)), argv.toArray());
+        return claimed != null ? claimed : List.of();
+    }
+
+    private void promote(long bucket, List<String> claimed, String path) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i + 1 < claimed.size(); i += 2) {
+            String id = claimed.get(i);
+            ScheduledNotification notification;
+            try {
+                notification = objectMapper.readValue(claimed.get(i + 1), ScheduledNotification.class);
+            } catch (Exception e) {
+                log.error("Dropping unreadable scheduled notification {}: {}", id, e.getMessage());
+                ack(bucket, id);
+                continue;
+            }
+            meterRegistry.timer("notification.schedule.lag", "path", path).record(Duration.ofMillis(Math.max(0, now - notification.getDueAt())));
+            meterRegistry.counter("notification.schedule.promoted", "channel", notification.getChannel(), "path", path).increment();
+            try {
+                if (ScheduledNotification.EMAIL.equals(notification.getChannel())) {
+                    kafkaTemplate.send(EmailRetryRouter.EMAIL_TOPIC, notification.getEvent().getEmail(), toJson(notification.getEvent()))
+                            .whenComplete((result, ex) -> settle(bucket, notification, ex));
+                } else if (coalescer.offerSms(notification.getTo(), notification.getText(), notification.getPriority(),
+                        ex -> retryLater(bucket, notification, ex))) {
+                    ack(bucket, id);
+                } else {
+                    smsDispatcher.sendText(notification.getTo(), notification.getText())
+                            .whenComplete((result, ex) -> settle(bucket, notification, ex));
+                }
+            } catch (RuntimeException ex) {
+                retryLater(bucket, notification, ex);
+            }
+        }
+    }
+
+    private void settle(long bucket, ScheduledNotification notification, Throwable ex) {
+        if (ex != null) {
+            retryLater(bucket, notification, ex);
+        } else {
+            ack(bucket, notification.getId());
+        }
+    }
+
+    // Drops the delivered item; if this fails, the sweep sends it again after the claim expires
+    private void ack(long bucket, String id) {
+        try {
+            redisTemplate.execute(ACK, List.of(inflightKey(bucket), bucketKey(bucket), payloadKey(bucket)), id);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to acknowledge scheduled notification {}: {}", id, ex.getMessage());
+        }
+    }
+
+    private void retryLater(long bucket, ScheduledNotification notification, Throwable cause) {
+        log.warn("Scheduled notification {} could not be promoted, retrying in {} ms: {}",
+                notification.getId(), RETRY_DELAY_MS, cause.getMessage());
+        meterRegistry.counter("notification.schedule.requeued").increment();
+        notification.setDueAt(System.currentTimeMillis() + RETRY_DELAY_MS);
+        try {
+            schedule(notification);
+        } catch (RuntimeException ex) {
+            // Still in flight; the sweep picks it up once the claim expires
+            log.error("Failed to requeue scheduled notification {}: {}", notification.getId(), ex.getMessage());
+            return;
+        }
+        ack(bucket, notification.getId());
+    }
+
+    private void release(long bucket) {
+        leased.remove(bucket);
+        redisTemplate.opsForZSet().remove(INDEX, String.valueOf(bucket));
+        // The bucket's sorted set and payload hash are already gone; Redis drops empty keys
+        redisTemplate.delete(leaseKey(bucket));
+        // Something scheduled between the count and the index removal puts the bucket back
+        if (!drained(bucket)) {
+            redisTemplate.opsForZSet().add(INDEX, String.valueOf(bucket), bucket);
+        }
+    }
+
+    private void validate(ScheduledNotification notification) {
+        if (ScheduledNotification.EMAIL.equals(notification.getChannel())) {
+            if (notification.getEvent() == null || notification.getEvent().getEmail() == null) {
+                throw new IllegalArgumentException("Email notifications need an event with an email address");
+            }
+        } else if (ScheduledNotification.SMS.equals(notification.getChannel())) {
+            if (notification.getTo() == null || notification.getText() == null) {
+                throw new IllegalArgumentException("SMS notifications need a number and text");
+            }
+        } else {
+            throw new IllegalArgumentException("Channel must be email or sms");
+        }
+        if (notification.getDueAt() <= 0) {
+            throw new IllegalArgumentException("dueAt is required");
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Notification could not be serialized", e);
+        }
+    }
+
+    private long bucketOf(long time) {
+        return time / bucketMs;
+    }
+
+    private static String bucketKey(long bucket) {
+        return PREFIX + bucket;
+    }
+
+    private static String payloadKey(long bucket) {
+        return PREFIX + bucket + ":payload";
+    }
+
+    private static String inflightKey(long bucket) {
+        return PREFIX + bucket + ":inflight";
+    }
+
+    private boolean drained(long bucket) {
+        return zeroOrNull(redisTemplate.opsForZSet().zCard(bucketKey(bucket)))
+                && zeroOrNull(redisTemplate.opsForZSet().zCard(inflightKey(bucket)));
+    }
+
+    private static String leaseKey(long bucket) {
+        return PREFIX + bucket + ":lease";
+    }
+
+    private static boolean zeroOrNull(Long value) {
+        return value == null || value == 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdown();
+        for (Long bucket : leased) {
+            try {
+                if (instanceId.equals(redisTemplate.opsForValue().get(leaseKey(bucket)))) {
+                    redisTemplate.delete(leaseKey(bucket));
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Failed to release scheduled bucket {}: {}", bucket, ex.getMessage());
+            }
+        }
+    }
+}
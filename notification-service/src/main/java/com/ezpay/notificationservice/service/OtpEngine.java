@@ -0,0 +1,175 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Issues and checks OTP codes without a provider-side verification service. Codes are HOTP-style
+ * truncations of an HMAC over a random nonce; only an HMAC of the code is kept in Redis, under
+ * {@code otp:<number>} with a TTL and an attempt counter. Checking is one Redis script call, and the
+ * SMS provider only delivers the text.
+ */
+@Service
+public class OtpEngine {
+
+    private static final String KEY_PREFIX = "otp:";
+    private static final String COOLDOWN_PREFIX = "otp:cooldown:";
+
+    // 1 = stored, 0 = still in the resend cooldown; the cooldown and the code are written together
+    private static final RedisScript<Long> ISSUE = new DefaultRedisScript<>("""
+            if not redis.call('SET', KEYS[2], '1', 'NX', 'PX', ARGV[3]) then return 0 end
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], 'hash', ARGV[1], 'attempts', '0')
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // 1 = approved, 0 = wrong or expired, -1 = too many attempts
+    private static final RedisScript<Long> CHECK = new DefaultRedisScript<>("""
+            local stored = redis.call('HGET', KEYS[1], 'hash')
+            if not stored then return 0 end
+            local attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1)
+            if stored == ARGV[1] then
+              redis.call('DEL', KEYS[1], KEYS[2])
+              return 1
+            end
+            if attempts >= tonumber(ARGV[2]) then
+              redis.call('DEL', KEYS[1])
+              return -1
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final SmsDispatcher dispatcher;
+    private final MeterRegistry meterRegistry;
+    private final ThreadLocal<Mac> mac;
+    private final SecureRandom random = new SecureRandom();
+    private final int digits;
+    private final int modulus;
+    private final Duration ttl;
+    private final Duration resendCooldown;
+    private final int maxAttempts;
+    private final String messageTemplate;
+
+    public OtpEngine(StringRedisTemplate redisTemplate,
+                     SmsDispatcher dispatcher,
+                     MeterRegistry meterRegistry,
+                     @Value("${otp.mode:provider}") String mode,
+                     @Value("${otp.secret:}") String secret,
+                     @Value("${otp.digits:6}") int digits,
+                     @Value("${otp.ttl-seconds:600}") long ttlSeconds,
+                     @Value("${otp.resend-cooldown-seconds:30}") long resendCooldownSeconds,
+                     @Value("${otp.max-attempts:5}") int maxAttempts,
+                     @Value("${otp.message:Your EZPay verification code is %s. It expires in %d minutes.}") String messageTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.dispatcher = dispatcher;
+        this.meterRegistry = meterRegistry;
+        this.digits = digits;
+        this.modulus = (int) Math.pow(10, digits);
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.resendCooldown = Duration.ofSeconds(resendCooldownSeconds);
+        this.maxAttempts = maxAttempts;
+        this.messageTemplate = messageTemplate;
+        byte[] keyBytes;
+        if (secret.isBlank()) {
+            // Codes issued by one instance cannot be checked by another without a shared secret
+            if (!"provider".equalsIgnoreCase(mode)) {
+                throw new IllegalStateException("otp.secret must be set when otp.mode is local");
+            }
+            // The provider issues and checks codes, so this key is never used
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        SecretKeySpec key = new SecretKeySpec(keyBytes, "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac m = Mac.getInstance("HmacSHA256");
+                m.init(key);
+                return m;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 unavailable", e);
+            }
+        });
+    }
+
+    /**
+     * Generates a code, stores its hash and hands the text to the SMS dispatcher. Within the resend
+     * cooldown the previous code stays valid and nothing is sent.
+     * @return {@code pending}, like a provider-side verification
+     */
+    public CompletableFuture<String> issue(String phoneNumber) {
+        String code = generate();
+        Long stored = redisTemplate.execute(ISSUE,
+                List.of(KEY_PREFIX + phoneNumber, COOLDOWN_PREFIX + phoneNumber),
+                hash(phoneNumber, code), String.valueOf(ttl.toMillis()), String.valueOf(resendCooldown.toMillis()));
+        if (stored == null || stored == 0) {
+            meterRegistry.counter("notification.otp.issued", "outcome", "cooldown").increment();
+            return CompletableFuture.completedFuture("pending");
+        }
+        meterRegistry.counter("notification.otp.issued", "outcome", "sent").increment();
+        String text = String.format(messageTemplate, code, ttl.toMinutes());
+        CompletableFuture<String> sent;
+        try {
+            sent = dispatcher.sendText(phoneNumber, text);
+        } catch (RuntimeException e) {
+            discard(phoneNumber);
+            throw e;
+        }
+        return sent.thenApply(messageId -> "pending")
+                .whenComplete((status, ex) -> {
+                    if (ex != null) {
+                        discard(phoneNumber);
+                    }
+                });
+    }
+
+    /**
+     * @return {@code approved}, {@code pending} for a wrong or expired code, or
+     * {@code max_attempts_reached} once the code has been burned
+     */
+    public String verify(String phoneNumber, String code) {
+        Long result = redisTemplate.execute(CHECK,
+                List.of(KEY_PREFIX + phoneNumber, COOLDOWN_PREFIX + phoneNumber),
+                hash(phoneNumber, code), String.valueOf(maxAttempts));
+        String status = result == null || result == 0 ? "pending" : result > 0 ? "approved" : "max_attempts_reached";
+        meterRegistry.counter("notification.otp.verified", "status", status).increment();
+        return status;
+    }
+
+    // An undelivered code is dropped so the user can ask again straight away
+    private void discard(String phoneNumber) {
+        redisTemplate.delete(List.of(KEY_PREFIX + phoneNumber, COOLDOWN_PREFIX + phoneNumber));
+    }
+
+    private String generate() {
+        byte[] nonce = new byte[16];
+        random.nextBytes(nonce);
+        byte[] digest = mac.get().doFinal(nonce);
+        // RFC 4226 dynamic truncation
+        int offset = digest[digest.length - 1] & 0x0f;
+        int binary = ByteBuffer.wrap(digest, offset, 4).getInt() & 0x7fffffff;
+        return String.format("%0" + digits + "d", binary % modulus);
+    }
+
+    private String hash(String phoneNumber, String code) {
+        return HexFormat.of().formatHex(mac.get().doFinal((phoneNumber + ":" + code).getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,239 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JavaMailSenderImpl} that keeps authenticated SMTP connections open between sends instead
+ * of connecting, starting TLS and logging in for every message. {@code send(MimeMessage...)}
+ * streams all messages over one borrowed connection. Idle connections are reused most-recent
+ * first, checked with NOOP before reuse once they have been idle for a while, and closed by a
+ * background sweep when unused for {@code maxIdleMillis}.
+ */
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledJavaMailSender.class);
+
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final int maxConnections;
+    private final MeterRegistry meterRegistry;
+    private final long borrowTimeoutMillis;
+    private final long validateAfterIdleMillis;
+    private final long maxIdleMillis;
+    private final int maxMessagesPerConnection;
+    private final ScheduledExecutorService sweeper;
+
+    public PooledJavaMailSender(MeterRegistry meterRegistry, int maxConnections, long borrowTimeoutMillis,
+                                long validateAfterIdleMillis, long maxIdleMillis, int maxMessagesPerConnection) {
+        this.meterRegistry = meterRegistry;
+        this.maxConnections = maxConnections;
+        this.permits = new Semaphore(maxConnections, true);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.maxIdleMillis = maxIdleMillis;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "smtp-pool-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long sweepInterval = Math.max(1000, validateAfterIdleMillis);
+        sweeper.scheduleWithFixedDelay(this::sweepIdle, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        meterRegistry.gauge("notification.smtp.pool.idle", idle, BlockingDeque::size);
+        meterRegistry.gauge("notification.smtp.pool.in_use", permits, p -> maxConnections - p.availablePermits());
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport connection;
+        try {
+            connection = borrow();
+        } catch (MailException ex) {
+            failFrom(0, mimeMessages, originalMessages, ex, failedMessages);
+            throw new MailSendException(failedMessages);
+        }
+        boolean healthy = true;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                MimeMessage message = mimeMessages[i];
+                Object original = originalMessages != null ? originalMessages[i] : message;
+                try {
+                    if (!connection.isUsable(maxMessagesPerConnection)) {
+                        connection.close();
+                        connection = open();
+                    }
+                    prepare(message);
+                    Address[] recipients = message.getAllRecipients();
+                    connection.transport.sendMessage(message, recipients != null ? recipients : new Address[0]);
+                    connection.sent++;
+                    meterRegistry.counter("notification.smtp.messages", "outcome", "sent").increment();
+                } catch (MessagingException | MailException ex) {
+                    meterRegistry.counter("notification.smtp.messages", "outcome", "failed").increment();
+                    failedMessages.put(original, ex);
+                    if (!connection.transport.isConnected()) {
+                        connection.close();
+                        try {
+                            connection = open();
+                        } catch (MailException reconnect) {
+                            // Everything after this message is unsent; report it rather than drop it
+                            healthy = false;
+                            failFrom(i + 1, mimeMessages, originalMessages, reconnect, failedMessages);
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            release(connection, healthy);
+        }
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private void failFrom(int from, MimeMessage[] mimeMessages, Object[] originalMessages, Exception cause,
+                          Map<Object, Exception> failedMessages) {
+        for (int i = from; i < mimeMessages.length; i++) {
+            meterRegistry.counter("notification.smtp.messages", "outcome", "failed").increment();
+            failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessages[i], cause);
+        }
+    }
+
+    private void prepare(MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        String messageId = message.getMessageID();
+        message.saveChanges();
+        if (messageId != null) {
+            // Preserve an explicitly set Message-ID, which saveChanges would otherwise regenerate
+            message.setHeader("Message-ID", messageId);
+        }
+    }
+
+    private PooledTransport borrow() {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                meterRegistry.counter("notification.smtp.pool.exhausted").increment();
+                throw new MailSendException("No SMTP connection available within " + borrowTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted waiting for an SMTP connection");
+        }
+        try {
+            PooledTransport candidate;
+            while ((candidate = idle.pollFirst()) != null) {
+                if (candidate.idleMillis() < validateAfterIdleMillis || candidate.transport.isConnected()) {
+                    return candidate;
+                }
+                meterRegistry.counter("notification.smtp.pool.stale").increment();
+                candidate.close();
+            }
+            return open();
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private void release(PooledTransport connection, boolean healthy) {
+        try {
+            if (connection != null && healthy && connection.isUsable(maxMessagesPerConnection)
+                    && idle.size() < maxConnections) {
+                connection.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(connection);
+            } else if (connection != null) {
+                connection.close();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledTransport open() {
+        try {
+            Transport transport = connectTransport();
+            meterRegistry.counter("notification.smtp.pool.connections.opened").increment();
+            return new PooledTransport(transport);
+        } catch (MessagingException ex) {
+            throw new MailSendException("Failed to connect to SMTP server", ex);
+        }
+    }
+
+    // Oldest connections sit at the tail; check or close them without blocking active senders
+    private void sweepIdle() {
+        List<PooledTransport> keep = new ArrayList<>();
+        PooledTransport candidate;
+        while ((candidate = idle.pollLast()) != null) {
+            long idleFor = candidate.idleMillis();
+            if (idleFor >= maxIdleMillis || (idleFor >= validateAfterIdleMillis && !candidate.transport.isConnected())) {
+                candidate.close();
+            } else {
+                keep.add(candidate);
+            }
+        }
+        for (int i = keep.size() - 1; i >= 0; i--) {
+            idle.offerLast(keep.get(i));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+        PooledTransport connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private long lastUsed = System.currentTimeMillis();
+        private int sent;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        private long idleMillis() {
+            return System.currentTimeMillis() - lastUsed;
+        }
+
+        // Many servers cap messages per session; rotate before hitting the limit
+        private boolean isUsable(int maxMessages) {
+            return sent < maxMessages;
+        }
+
+        private void close() {
+            try {
+                transport.close();
+            } catch (MessagingException ex) {
+                log.debug("Error closing SMTP connection: {}", ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Queues SMS provider calls and releases them at the provider's rate. Callers get a future right
+ * away; a full queue is rejected with {@link RejectedExecutionException} instead of tying up the
+ * request thread. A repeat send to the same number (same text, or another verification) within the
+ * dedupe window shares the first request's result rather than reaching the provider again.
+ */
+@Service
+public class SmsDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(SmsDispatcher.class);
+
+    private final SmsProvider provider;
+    private final MeterRegistry meterRegistry;
+    private final TokenBucket bucket;
+    private final TokenBucket.Ticker ticker;
+    private final BlockingQueue<Job> queue;
+    private final Map<String, Job> recent = new ConcurrentHashMap<>();
+    private final long dedupeWindowNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    @Autowired
+    public SmsDispatcher(SmsProvider provider,
+                         MeterRegistry meterRegistry,
+                         @Value("${sms.dispatch.queue-capacity:1000}") int queueCapacity,
+                         @Value("${sms.dispatch.dedupe-window-ms:30000}") long dedupeWindowMs) {
+        this(provider, meterRegistry, queueCapacity, dedupeWindowMs, TokenBucket.Ticker.SYSTEM);
+    }
+
+    SmsDispatcher(SmsProvider provider, MeterRegistry meterRegistry, int queueCapacity, long dedupeWindowMs,
+                  TokenBucket.Ticker ticker) {
+        this.provider = provider;
+        this.meterRegistry = meterRegistry;
+        this.ticker = ticker;
+        this.bucket = new TokenBucket(provider.ratePerSecond(), provider.burst(), ticker);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.dedupeWindowNanos = dedupeWindowMs * 1_000_000L;
+        meterRegistry.gauge("notification.sms.queue", queue, BlockingQueue::size);
+        this.worker = new Thread(this::drain, "sms-dispatch-" + provider.name());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public CompletableFuture<String> sendText(String to, String body) {
+        return submit("text", "text:" + to + ":" + body, () -> provider.sendText(to, body));
+    }
+
+    public CompletableFuture<String> startVerification(String to) {
+        return submit("verify_start", "verify:" + to, () -> provider.startVerification(to));
+    }
+
+    // Checks are never deduped: each carries its own code
+    public CompletableFuture<String> checkVerification(String to, String code) {
+        return submit("verify_check", null, () -> provider.checkVerification(to, code));
+    }
+
+    private CompletableFuture<String> submit(String operation, String dedupeKey, Supplier<CompletableFuture<String>> call) {
+        Job job = new Job(operation, dedupeKey, call, new CompletableFuture<>(), ticker.read());
+        if (dedupeKey != null) {
+            Job winner = recent.compute(dedupeKey,
+                    (key, previous) -> previous != null && job.createdNanos - previous.createdNanos < dedupeWindowNanos ? previous : job);
+            if (winner != job) {
+                meterRegistry.counter("notification.sms.deduplicated", "operation", operation).increment();
+                return winner.result;
+            }
+        }
+        if (!running || !queue.offer(job)) {
+            forget(job);
+            meterRegistry.counter("notification.sms.rejected", "operation", operation).increment();
+            throw new RejectedExecutionException("SMS queue is full, please try again shortly");
+        }
+        return job.result;
+    }
+
+    private void drain() {
+        while (running) {
+            Job job;
+            try {
+                job = queue.take();
+                bucket.acquire();
+            } catch (InterruptedException e) {
+                break;
+            }
+            meterRegistry.timer("notification.sms.queue.wait", "operation", job.operation)
+                    .record(ticker.read() - job.createdNanos, TimeUnit.NANOSECONDS);
+            Timer.Sample sample = Timer.start(meterRegistry);
+            CompletableFuture<String> call;
+            try {
+                call = job.call.get();
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((value, ex) -> {
+                sample.stop(meterRegistry.timer("notification.sms.provider.duration", "provider", provider.name(),
+                        "operation", job.operation, "outcome", ex == null ? "success" : "failure"));
+                if (ex != null) {
+                    // A failed send must not suppress the user's next attempt
+                    forget(job);
+                    job.result.completeExceptionally(ex);
+                } else {
+                    job.result.complete(value);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sms.dispatch.dedupe-window-ms:30000}")
+    public void expireDedupeEntries() {
+        long now = ticker.read();
+        recent.values().removeIf(job -> now - job.createdNanos >= dedupeWindowNanos);
+    }
+
+    private void forget(Job job) {
+        if (job.dedupeKey != null) {
+            recent.remove(job.dedupeKey, job);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+        Job job;
+        while ((job = queue.poll()) != null) {
+            job.result.completeExceptionally(new RejectedExecutionException("SMS dispatcher is shutting down"));
+        }
+        log.info("SMS dispatcher for {} stopped", provider.name());
+    }
+
+    private record Job(String operation, String dedupeKey, Supplier<CompletableFuture<String>> call,
+                       CompletableFuture<String> result, long createdNanos) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.ezpay.notificationservice.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An SMS gateway. Calls return immediately; the future completes when the provider answers.
+ * {@link SmsDispatcher} is the only caller and applies the provider's rate limit.
+ */
+public interface SmsProvider {
+
+    String name();
+
+    /**
+     * Sustained requests per second the provider account allows.
+     */
+    double ratePerSecond();
+
+    /**
+     * Requests that may be sent back to back before the rate applies.
+     */
+    int burst();
+
+    /**
+     * Delivers a plain text message and returns the provider's message id.
+     */
+    CompletableFuture<String> sendText(String to, String body);
+
+    /**
+     * Starts a provider-side OTP verification and returns its status, e.g. {@code pending}.
+     */
+    CompletableFuture<String> startVerification(String to);
+
+    /**
+     * Checks a code against a provider-side verification and returns its status, e.g. {@code approved}.
+     */
+    CompletableFuture<String> checkVerification(String to, String code);
+}
@@ -1,15 +1,13 @@
 package com.ezpay.notificationservice.service;
 
-import com.ezpay.notificationservice.config.TwilioConfig;
-import com.twilio.exception.ApiException;
-import com.twilio.rest.verify.v2.service.Verification;
-import com.twilio.rest.verify.v2.service.VerificationCheck;
+import com.ezpay.infraservice.validation.ContactValidator;
 import jakarta.validation.constraints.NotBlank;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
+
+import java.util.concurrent.CompletableFuture;
 
 
 @Service
@@ -17,76 +15,90 @@ public class SmsService {
 
     private static final Logger logger = LoggerFactory.getLogger(SmsService.class);
 
-    @Value("${twilio.verify-service-sid}")
-    private String verifyServiceSid;
-
-    private final TwilioConfig config;
+    private final SmsDispatcher dispatcher;
+    private final OtpEngine otpEngine;
+    private final boolean localOtp;
+    private final int minCodeLength;
+    private final int maxCodeLength;
 
-    public SmsService(TwilioConfig config) {
-        this.config = config;
+    public SmsService(SmsDispatcher dispatcher,
+                      OtpEngine otpEngine,
+                      @Value("${otp.mode:provider}") String otpMode,
+                      @Value("${otp.digits:6}") int otpDigits) {
+        this.dispatcher = dispatcher;
+        this.otpEngine = otpEngine;
+        // local: codes are issued and checked here; provider: the SMS provider's verify service does both
+        this.localOtp = !"provider".equalsIgnoreCase(otpMode);
+        // Local codes are always otp.digits long; the provider's length is configured on its side
+        this.minCodeLength = localOtp ? otpDigits : 4;
+        this.maxCodeLength = localOtp ? otpDigits : 6;
     }
 
     /**
      * Sends OTP verification to the specified phone number
-     * @param phoneNumber The phone number to send OTP to (E.164 format)
-     * @return Verification object
+     * @param phoneNumber The phone number to send OTP to (E.164, or the national form of a number only one supported country fits)
+     * @return verification status once the provider has accepted it
      * @throws IllegalArgumentException if phoneNumber is invalid
-     * @throws ApiException if Twilio API call fails
+     * @throws java.util.concurrent.RejectedExecutionException if the SMS queue is full
      */
-    public Verification sendVerification(@NotBlank String phoneNumber) {
-        validatePhoneNumber(phoneNumber);
-
-        try {
-            logger.info("Initiating OTP verification for phone number: {}", phoneNumber);
-            Verification verification = Verification.creator(
-                    verifyServiceSid,
-                    phoneNumber,
-                    "sms"
-            ).create();
-            logger.info("OTP sent successfully to: {}", phoneNumber);
-            return verification;
-        } catch (ApiException e) {
-            logger.error("Failed to send OTP to {}: {}", phoneNumber, e.getMessage());
-            throw e;
-        }
+    public CompletableFuture<String> sendVerification(@NotBlank String rawPhoneNumber) {
+        String phoneNumber = normalizePhoneNumber(rawPhoneNumber);
+        logger.info("Initiating OTP verification for phone number: {}", phoneNumber);
+        CompletableFuture<String> sent = localOtp ? otpEngine.issue(phoneNumber) : dispatcher.startVerification(phoneNumber);
+        return sent
+                .whenComplete((status, ex) -> {
+                    if (ex != null) {
+                        logger.error("Failed to send OTP to {}: {}", phoneNumber, ex.getMessage());
+                    } else {
+                        logger.info("OTP sent successfully to: {}", phoneNumber);
+                    }
+                });
     }
 
     /**
      * Verifies the OTP code for the given phone number
-     * @param phoneNumber The phone number to verify (E.164 format)
+     * @param phoneNumber The phone number to verify (E.164, or the national form of a number only one supported country fits)
      * @param code The OTP code to verify
-     * @return VerificationCheck object
+     * @return verification status, {@code approved} when the code matches
      * @throws IllegalArgumentException if phoneNumber or code is invalid
-     * @throws ApiException if Twilio API call fails
+     * @throws java.util.concurrent.RejectedExecutionException if the SMS queue is full
      */
-    public VerificationCheck checkVerification(@NotBlank String phoneNumber, @NotBlank String code) {
-        validatePhoneNumber(phoneNumber);
+    public CompletableFuture<String> checkVerification(@NotBlank String rawPhoneNumber, @NotBlank String code) {
+        String phoneNumber = normalizePhoneNumber(rawPhoneNumber);
         validateCode(code);
-
-        try {
-            logger.info("Verifying OTP for phone number: {}", phoneNumber);
-            VerificationCheck verificationCheck = VerificationCheck.creator(verifyServiceSid)
-                    .setCode(code)
-                    .setTo(phoneNumber)
-                    .create();
-            logger.info("OTP verification result for {}: {}", phoneNumber, verificationCheck.getStatus());
-            return verificationCheck;
-        } catch (ApiException e) {
-            logger.error("OTP verification failed for {}: {}", phoneNumber, e.getMessage());
-            throw e;
-        }
+        logger.info("Verifying OTP for phone number: {}", phoneNumber);
+        CompletableFuture<String> checked = localOtp
+                ? CompletableFuture.completedFuture(otpEngine.verify(phoneNumber, code))
+                : dispatcher.checkVerification(phoneNumber, code);
+        return checked
+                .whenComplete((status, ex) -> {
+                    if (ex != null) {
+                        logger.error("OTP verification failed for {}: {}", phoneNumber, ex.getMessage());
+                    } else {
+                        logger.info("OTP verification result for {}: {}", phoneNumber, status);
+                    }
+                });
     }
 
     /**
-     * Validates phone number format
+     * Validates the phone number and returns its canonical form, so the send and the check of one
+     * OTP use the same key however the number was typed. Numbers of supported countries are
+     * normalized to E.164; any other number must already be E.164. A national number that could
+     * belong to more than one supported country is rejected rather than sent to a guessed one.
      * @param phoneNumber The phone number to validate
+     * @return the number in E.164 format
      * @throws IllegalArgumentException if phoneNumber is invalid
      */
-    private void validatePhoneNumber(String phoneNumber) {
-        if (!StringUtils.hasText(phoneNumber) || !phoneNumber.matches("\\+\\d{10,15}")) {
+    private String normalizePhoneNumber(String phoneNumber) {
+        String normalized = ContactValidator.normalizeMobile(phoneNumber);
+        if (normalized != null) {
+            return normalized;
+        }
+        if (!ContactValidator.isE164(phoneNumber)) {
             logger.error("Invalid phone number format: {}", phoneNumber);
             throw new IllegalArgumentException("Phone number must be in E.164 format (e.g., +1234567890)");
         }
+        return phoneNumber;
     }
 
     /**
@@ -95,9 +107,11 @@ public class SmsService {
      * @throws IllegalArgumentException if code is invalid
      */
     private void validateCode(String code) {
-        if (!StringUtils.hasText(code) || !code.matches("\\d{4,6}")) {
+        if (!ContactValidator.isOtpCode(code, minCodeLength, maxCodeLength)) {
             logger.error("Invalid OTP code format");
-            throw new IllegalArgumentException("OTP code must be 4-6 digits");
+            throw new IllegalArgumentException(minCodeLength == maxCodeLength
+                    ? "OTP code must be " + minCodeLength + " digits"
+                    : "OTP code must be " + minCodeLength + "-" + maxCodeLength + " digits");
         }
     }
 }
\ No newline at end of file
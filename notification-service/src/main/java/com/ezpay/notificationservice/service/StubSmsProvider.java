@@ -0,0 +1,81 @@
+package com.ezpay.notificationservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a real gateway ({@code sms.provider=stub}): answers after a fixed latency
+ * without holding a thread and approves one configured code. Used to benchmark the dispatcher
+ * offline and in tests.
+ */
+@Component
+@ConditionalOnProperty(name = "sms.provider", havingValue = "stub")
+public class StubSmsProvider implements SmsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(StubSmsProvider.class);
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final String approvedCode;
+    private final Executor delayed;
+    private final AtomicLong sent = new AtomicLong();
+
+    public StubSmsProvider(@Value("${sms.stub.rate-per-second:1000}") double ratePerSecond,
+                           @Value("${sms.stub.burst:100}") int burst,
+                           @Value("${sms.stub.latency-ms:50}") long latencyMs,
+                           @Value("${sms.stub.code:000000}") String approvedCode) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.approvedCode = approvedCode;
+        this.delayed = CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public double ratePerSecond() {
+        return ratePerSecond;
+    }
+
+    @Override
+    public int burst() {
+        return burst;
+    }
+
+    @Override
+    public CompletableFuture<String> sendText(String to, String body) {
+        return CompletableFuture.supplyAsync(() -> {
+            long id = sent.incrementAndGet();
+            log.debug("Stub SMS {} to {}: {}", id, to, body);
+            return "stub-" + id;
+        }, delayed);
+    }
+
+    @Override
+    public CompletableFuture<String> startVerification(String to) {
+        return CompletableFuture.supplyAsync(() -> {
+            sent.incrementAndGet();
+            return "pending";
+        }, delayed);
+    }
+
+    @Override
+    public CompletableFuture<String> checkVerification(String to, String code) {
+        return CompletableFuture.supplyAsync(() -> approvedCode.equals(code) ? "approved" : "pending", delayed);
+    }
+
+    public long sentCount() {
+        return sent.get();
+    }
+}
@@ -0,0 +1,338 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.domain.EmailTemplate;
+import com.ezpay.notificationservice.repository.EmailTemplateRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.AbstractConfigurableTemplateResolver;
+import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.templateresource.StringTemplateResource;
+import org.unbescape.html.HtmlEscape;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Email templates from the {@code email_template} table, held in memory so sending never reads the
+ * database. Bodies are parsed once by a dedicated Thymeleaf engine and subjects ({@code {{var}}}
+ * placeholders) are split into parts at load time. Templates that only substitute plain variables
+ * are also pre-rendered into static segments, so each recipient costs a string concatenation.
+ * Entries change only through {@link #reload(String)}, driven by change notifications, plus a
+ * periodic full refresh as a safety net.
+ */
+@Component
+public class TemplateRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TemplateRegistry.class);
+    private static final Pattern EXPRESSION = Pattern.compile("\\$\\{([^}]*)}");
+    private static final Pattern SIMPLE_VARIABLE = Pattern.compile("\\w+");
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{(\\w+)}}");
+    // Attributes that only write an escaped value; anything else (th:if, th:each, th:utext...) can change structure
+    private static final Pattern STRUCTURAL = Pattern.compile(
+            "th:(?!text=|href=|src=|value=|title=|alt=)[\\w-]+=|\\[\\(");
+
+    public record RenderedEmail(String subject, String body) {
+    }
+
+    private final EmailTemplateRepository repository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String changeTopic;
+    private final Map<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<String, String> sources = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final TemplateEngine engine = new TemplateEngine();
+
+    public TemplateRegistry(EmailTemplateRepository repository,
+                            KafkaTemplate<String, String> kafkaTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${notification.templates.topic:notification-template-changes}") String changeTopic) {
+        this.repository = repository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.changeTopic = changeTopic;
+        AbstractConfigurableTemplateResolver resolver = new AbstractConfigurableTemplateResolver() {
+            @Override
+            protected ITemplateResource computeTemplateResource(IEngineConfiguration configuration, String ownerTemplate,
+                                                                String template, String resourceName,
+                                                                String characterEncoding,
+                                                                Map<String, Object> templateResolutionAttributes) {
+                return new StringTemplateResource(sources.getOrDefault(template, ""));
+            }
+        };
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCacheable(true);
+        engine.setTemplateResolver(resolver);
+        meterRegistry.gauge("notification.templates.loaded", templates, Map::size);
+    }
+
+    /**
+     * Renders the named template, or returns empty when the database has no such template.
+     */
+    public Optional<RenderedEmail> render(String name, Map<String, Object> variables) {
+        CompiledTemplate template = templates.get(name);
+        if (template == null) {
+            return Optional.empty();
+        }
+        boolean precompiled = template.segments != null && template.segments.canRender(variables);
+        String body = precompiled
+                ? template.segments.render(variables)
+                : engine.process(template.key, contextOf(variables));
+        meterRegistry.counter("notification.templates.rendered", "path", precompiled ? "segments" : "engine").increment();
+        return Optional.of(new RenderedEmail(template.subject.render(variables), body));
+    }
+
+    public boolean contains(String name) {
+        return templates.containsKey(name);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${notification.templates.refresh-ms:300000}", initialDelayString = "${notification.templates.refresh-ms:300000}")
+    public void reloadAll() {
+        try {
+            Set<String> seen = new LinkedHashSet<>();
+            for (EmailTemplate row : repository.findAll()) {
+                seen.add(row.getTemplateName());
+                install(row);
+            }
+            for (String name : List.copyOf(templates.keySet())) {
+                if (!seen.contains(name)) {
+                    evict(templates.remove(name));
+                }
+            }
+            log.info("Loaded {} email templates", templates.size());
+        } catch (RuntimeException ex) {
+            log.error("Failed to load email templates, keeping the current set", ex);
+        }
+    }
+
+    /**
+     * Creates or replaces a template, then tells every instance to reload it.
+     */
+    public void save(String name, String subject, String body) {
+        EmailTemplate row = repository.findByTemplateName(name).orElseGet(EmailTemplate::new);
+        row.setTemplateName(name);
+        row.setSubject(subject);
+        row.setBody(body);
+        repository.save(row);
+        install(row);
+        kafkaTemplate.send(changeTopic, name, name);
+        log.info("Saved email template {}", name);
+    }
+
+    // Every instance joins its own group so each one sees every change. The group is named after the
+    // host (notification.templates.instance-id overrides it), so a restart rejoins it instead of
+    // leaving another abandoned group on the broker.
+    @KafkaListener(topics = "${notification.templates.topic:notification-template-changes}",
+            groupId = "notification-templates-${notification.templates.instance-id:#{T(java.net.InetAddress).getLocalHost().getHostName()}}")
+    public void onChange(String name) {
+        try {
+            reload(name);
+        } catch (RuntimeException ex) {
+            log.error("Failed to reload email template {}, the periodic refresh will retry", name, ex);
+        }
+    }
+
+    /**
+     * Re-reads one template after a change notification; a deleted row drops it.
+     */
+    public synchronized void reload(String name) {
+        Optional<EmailTemplate> row = repository.findByTemplateName(name);
+        if (row.isPresent()) {
+            install(row.get());
+        } else {
+            CompiledTemplate removed = templates.remove(name);
+            if (removed != null) {
+                evict(removed);
+            }
+        }
+        meterRegistry.counter("notification.templates.reloaded").increment();
+    }
+
+    private synchronized void install(EmailTemplate row) {
+        CompiledTemplate current = templates.get(row.getTemplateName());
+        if (current != null && current.body.equals(row.getBody()) && current.subjectSource.equals(row.getSubject())) {
+            return;
+        }
+        String key = row.getTemplateName() + "#" + generation.incrementAndGet();
+        sources.put(key, row.getBody());
+        CompiledTemplate compiled = new CompiledTemplate(key, row.getBody(), row.getSubject(),
+                Subject.compile(row.getSubject()), compileSegments(key, row.getBody()));
+        templates.put(row.getTemplateName(), compiled);
+        if (current != null) {
+            evict(current);
+        }
+    }
+
+    private void evict(CompiledTemplate template) {
+        engine.clearTemplateCacheFor(template.key);
+        sources.remove(template.key);
+    }
+
+    /**
+     * Renders the template twice with distinct marker values. If the only difference is the
+     * markers themselves, the output is static text with holes and can be reused across recipients.
+     */
+    private Segments compileSegments(String key, String body) {
+        if (STRUCTURAL.matcher(body).find()) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        Matcher matcher = EXPRESSION.matcher(body);
+        while (matcher.find()) {
+            String expression = matcher.group(1).trim();
+            if (!SIMPLE_VARIABLE.matcher(expression).matches()) {
+                return null;
+            }
+            if (!names.contains(expression)) {
+                names.add(expression);
+            }
+        }
+        try {
+            String first = engine.process(key, contextOf(markers(names, "a")));
+            String second = engine.process(key, contextOf(markers(names, "b")));
+            Segments segments = Segments.split(first, names);
+            if (!segments.render(markers(names, "b"), false).equals(second)) {
+                return null;
+            }
+            return segments;
+        } catch (RuntimeException ex) {
+            log.warn("Template {} could not be pre-rendered: {}", key, ex.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, Object> markers(List<String> names, String round) {
+        Map<String, Object> markers = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            markers.put(names.get(i), marker(round, i));
+        }
+        return markers;
+    }
+
+    private static String marker(String round, int index) {
+        return "ezpaytplslot" + round + index + "x";
+    }
+
+    private static Context contextOf(Map<String, Object> variables) {
+        Context context = new Context();
+        context.setVariables(variables);
+        return context;
+    }
+
+    private record CompiledTemplate(String key, String body, String subjectSource, Subject subject, Segments segments) {
+    }
+
+    /**
+     * Static HTML between variable slots. Values are escaped the way Thymeleaf escapes th:text
+     * and attribute output.
+     */
+    private record Segments(String[] literals, String[] slots, int staticLength) {
+
+        static Segments split(String rendered, List<String> names) {
+            List<String> literals = new ArrayList<>();
+            List<String> slots = new ArrayList<>();
+            int position = 0;
+            int staticLength = 0;
+            while (true) {
+                int next = -1;
+                int slot = -1;
+                for (int i = 0; i < names.size(); i++) {
+                    int found = rendered.indexOf(marker("a", i), position);
+                    if (found >= 0 && (next < 0 || found < next)) {
+                        next = found;
+                        slot = i;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                literals.add(rendered.substring(position, next));
+                staticLength += next - position;
+                slots.add(names.get(slot));
+                position = next + marker("a", slot).length();
+            }
+            literals.add(rendered.substring(position));
+            staticLength += rendered.length() - position;
+            return new Segments(literals.toArray(String[]::new), slots.toArray(String[]::new), staticLength);
+        }
+
+        // A null value can drop an attribute entirely, so those renders go through the engine
+        boolean canRender(Map<String, Object> variables) {
+            for (String slot : slots) {
+                if (variables.get(slot) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String render(Map<String, Object> variables) {
+            return render(variables, true);
+        }
+
+        String render(Map<String, Object> variables, boolean escape) {
+            StringBuilder out = new StringBuilder(staticLength + 64 * slots.length);
+            for (int i = 0; i < slots.length; i++) {
+                out.append(literals[i]);
+                String value = String.valueOf(variables.get(slots[i]));
+                out.append(escape ? HtmlEscape.escapeHtml4Xml(value) : value);
+            }
+            out.append(literals[slots.length]);
+            return out.toString();
+        }
+    }
+
+    /**
+     * Subject line split into literal text and {@code {{var}}} placeholders.
+     */
+    private record Subject(String[] literals, String[] names) {
+
+        static Subject compile(String source) {
+            List<String> literals = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            Matcher matcher = PLACEHOLDER.matcher(source);
+            int position = 0;
+            while (matcher.find()) {
+                literals.add(source.substring(position, matcher.start()));
+                names.add(matcher.group(1));
+                position = matcher.end();
+            }
+            literals.add(source.substring(position));
+            return new Subject(literals.toArray(String[]::new), names.toArray(String[]::new));
+        }
+
+        String render(Map<String, Object> variables) {
+            if (names.length == 0) {
+                return literals[0];
+            }
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < names.length; i++) {
+                Object value = variables.get(names[i]);
+                out.append(literals[i]).append(value != null ? value : "");
+            }
+            return out.append(literals[names.length]).toString();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.ezpay.notificationservice.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Level 0 has {@code wheelSize} slots of {@code tickMs}; each level
+ * above has slots as wide as the whole level below. Adding an entry is constant time, and advancing
+ * one tick touches a single slot per level. Entries in a higher level cascade down as their slot
+ * comes round. Not thread-safe; callers synchronize.
+ */
+final class TimingWheel<T> {
+
+    record Entry<T>(T value, long dueAt) {
+    }
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long[] levelTicks;
+    private final List<ArrayDeque<Entry<T>>[]> levels = new ArrayList<>();
+    private long currentTime;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMs, int wheelSize, int levelCount, long startTime) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.levelTicks = new long[levelCount];
+        long tick = tickMs;
+        for (int level = 0; level < levelCount; level++) {
+            levelTicks[level] = tick;
+            ArrayDeque<Entry<T>>[] slots = new ArrayDeque[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                slots[i] = new ArrayDeque<>();
+            }
+            levels.add(slots);
+            tick *= wheelSize;
+        }
+        this.currentTime = startTime - startTime % tickMs;
+    }
+
+    /**
+     * Latest due time the wheel can hold right now.
+     */
+    long horizon() {
+        int top = levelTicks.length - 1;
+        return currentTime - currentTime % levelTicks[top] + levelTicks[top] * wheelSize - 1;
+    }
+
+    /**
+     * @return false when the entry is already due or beyond {@link #horizon()}; the caller handles it
+     */
+    boolean add(T value, long dueAt) {
+        if (dueAt < currentTime || dueAt > horizon()) {
+            return false;
+        }
+        place(new Entry<>(value, dueAt));
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the wheel up to {@code now} and returns every entry that fell due, in due order per tick.
+     */
+    List<Entry<T>> advance(long now) {
+        List<Entry<T>> due = new ArrayList<>();
+        if (size == 0) {
+            currentTime = Math.max(currentTime, now - now % tickMs);
+            return due;
+        }
+        while (currentTime + tickMs <= now && size > 0) {
+            ArrayDeque<Entry<T>> expired = levels.get(0)[slot(0, currentTime)];
+            size -= expired.size();
+            due.addAll(expired);
+            expired.clear();
+            currentTime += tickMs;
+            for (int level = levelTicks.length - 1; level > 0; level--) {
+                if (currentTime % levelTicks[level] == 0) {
+                    ArrayDeque<Entry<T>> cascading = levels.get(level)[slot(level, currentTime)];
+                    List<Entry<T>> moving = new ArrayList<>(cascading);
+                    cascading.clear();
+                    moving.forEach(this::place);
+                }
+            }
+        }
+        if (size == 0) {
+            currentTime = Math.max(currentTime, now - now % tickMs);
+        }
+        return due;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry) {
+        for (int level = 0; level < levelTicks.length; level++) {
+            long tick = levelTicks[level];
+            long levelStart = currentTime - currentTime % tick;
+            if (entry.dueAt() < levelStart + tick * wheelSize) {
+                levels.get(level)[slot(level, entry.dueAt())].add(entry);
+                return;
+            }
+        }
+        throw new IllegalStateException("Entry beyond the wheel horizon");
+    }
+
+    private int slot(int level, long time) {
+        return (int) ((time / levelTicks[level]) % wheelSize);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ezpay.notificationservice.service;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Classic token bucket: {@code capacity} tokens, refilled continuously at {@code ratePerSecond}.
+ */
+final class TokenBucket {
+
+    /**
+     * Time source the bucket refills from and waits on; tests pass a virtual clock.
+     */
+    interface Ticker {
+        Ticker SYSTEM = new Ticker() {
+            @Override
+            public long read() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void park(long nanos) {
+                LockSupport.parkNanos(nanos);
+            }
+        };
+
+        long read();
+
+        void park(long nanos);
+    }
+
+    private final Ticker ticker;
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double ratePerSecond, int capacity) {
+        this(ratePerSecond, capacity, Ticker.SYSTEM);
+    }
+
+    TokenBucket(double ratePerSecond, int capacity, Ticker ticker) {
+        this.ticker = ticker;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+        this.lastRefill = ticker.read();
+    }
+
+    /**
+     * Takes a token if one is available, otherwise returns how many nanoseconds until one is.
+     */
+    synchronized long tryAcquire() {
+        long now = ticker.read();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    void acquire() throws InterruptedException {
+        long wait;
+        while ((wait = tryAcquire()) > 0) {
+            ticker.park(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.config.TwilioConfig;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.rest.verify.v2.service.Verification;
+import com.twilio.rest.verify.v2.service.VerificationCheck;
+import com.twilio.type.PhoneNumber;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Twilio Messaging and Verify. The SDK blocks, so calls run on the dedicated provider pool rather
+ * than on request threads.
+ */
+@Component
+@ConditionalOnProperty(name = "sms.provider", havingValue = "twilio", matchIfMissing = true)
+public class TwilioSmsProvider implements SmsProvider {
+
+    private final TwilioConfig config;
+    private final ThreadPoolTaskExecutor executor;
+    private final double ratePerSecond;
+    private final int burst;
+
+    public TwilioSmsProvider(TwilioConfig config,
+                             @Qualifier("smsProviderExecutor") ThreadPoolTaskExecutor executor,
+                             @Value("${sms.twilio.rate-per-second:10}") double ratePerSecond,
+                             @Value("${sms.twilio.burst:20}") int burst) {
+        this.config = config;
+        this.executor = executor;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+    }
+
+    @Override
+    public String name() {
+        return "twilio";
+    }
+
+    @Override
+    public double ratePerSecond() {
+        return ratePerSecond;
+    }
+
+    @Override
+    public int burst() {
+        return burst;
+    }
+
+    @Override
+    public CompletableFuture<String> sendText(String to, String body) {
+        return CompletableFuture.supplyAsync(() -> Message.creator(
+                new PhoneNumber(to), new PhoneNumber(config.getTrialNumber()), body).create().getSid(), executor);
+    }
+
+    @Override
+    public CompletableFuture<String> startVerification(String to) {
+        return CompletableFuture.supplyAsync(() -> Verification.creator(
+                config.getVerifyServiceSid(), to, "sms").create().getStatus(), executor);
+    }
+
+    @Override
+    public CompletableFuture<String> checkVerification(String to, String code) {
+        return CompletableFuture.supplyAsync(() -> VerificationCheck.creator(config.getVerifyServiceSid())
+                .setCode(code)
+                .setTo(to)
+                .create()
+                .getStatus(), executor);
+    }
+}
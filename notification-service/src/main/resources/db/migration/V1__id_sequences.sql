@@ -0,0 +1,12 @@
+-- Sequence for the pooled id optimizer on email_template (allocationSize = 50, so INCREMENT BY
+-- must match). The table itself is still created by Hibernate, so the seed past MAX(id) only
+-- applies when it already exists.
+
+CREATE SEQUENCE IF NOT EXISTS email_template_seq INCREMENT BY 50;
+
+DO $$
+BEGIN
+    IF to_regclass('email_template') IS NOT NULL THEN
+        PERFORM setval('email_template_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM email_template), false);
+    END IF;
+END $$;
@@ -0,0 +1,19 @@
+-- Bulk email campaigns. last_user_id is the keyset checkpoint into user-service's recipients;
+-- a resumed campaign continues after it.
+
+CREATE SEQUENCE IF NOT EXISTS campaign_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS campaign (
+    id            BIGINT PRIMARY KEY,
+    name          VARCHAR(255) NOT NULL,
+    template_name VARCHAR(255) NOT NULL,
+    variables     TEXT,
+    status        VARCHAR(32)  NOT NULL,
+    last_user_id  BIGINT       NOT NULL DEFAULT 0,
+    sent          BIGINT       NOT NULL DEFAULT 0,
+    failed        BIGINT       NOT NULL DEFAULT 0,
+    created_at    TIMESTAMP    NOT NULL,
+    updated_at    TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_campaign_status ON campaign (status);
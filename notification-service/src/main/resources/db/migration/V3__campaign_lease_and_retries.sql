@@ -0,0 +1,20 @@
+-- owner is the lease token of the runner that last claimed the campaign; only that runner may
+-- checkpoint or finish it.
+
+ALTER TABLE campaign ADD COLUMN IF NOT EXISTS owner VARCHAR(64);
+
+-- Recipients whose send failed, retried after the main pass until max attempts. Rows that reach it
+-- stay behind as the record of who never got the campaign.
+
+CREATE SEQUENCE IF NOT EXISTS campaign_retry_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS campaign_retry (
+    id          BIGINT PRIMARY KEY,
+    campaign_id BIGINT       NOT NULL REFERENCES campaign (id),
+    user_id     BIGINT       NOT NULL,
+    email       VARCHAR(255) NOT NULL,
+    first_name  VARCHAR(255),
+    user_name   VARCHAR(255),
+    attempts    INT          NOT NULL,
+    UNIQUE (campaign_id, user_id)
+);
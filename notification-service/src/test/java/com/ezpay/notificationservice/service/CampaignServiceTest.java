@@ -0,0 +1,233 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.clients.UserServiceClient;
+import com.ezpay.notificationservice.domain.Campaign;
+import com.ezpay.notificationservice.domain.CampaignRetry;
+import com.ezpay.notificationservice.dto.RecipientPage;
+import com.ezpay.notificationservice.repository.CampaignRepository;
+import com.ezpay.notificationservice.repository.CampaignRetryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs campaigns against the Flyway schema on a throwaway Postgres and the delivery ledger on a
+ * real Redis, with user-service and mail mocked out. Chunks hold two recipients, so each test
+ * sees more than one checkpoint. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// The runner works on its own thread, so every write has to be committed for it to see
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CampaignServiceTest {
+
+    private static final String TEMPLATE = "promo";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private CampaignRepository campaignRepository;
+    @Autowired
+    private CampaignRetryRepository retryRepository;
+
+    private final UserServiceClient userServiceClient = mock(UserServiceClient.class);
+    private final TemplateRegistry templateRegistry = mock(TemplateRegistry.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CampaignService campaignService;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        // The migrations own the schema here, as in production
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.delete(redisTemplate.keys("notif:*"));
+        when(templateRegistry.render(eq(TEMPLATE), anyMap()))
+                .thenReturn(Optional.of(new TemplateRegistry.RenderedEmail("Hello", "<p>Hello</p>")));
+        when(emailService.createMessage(anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> mock(MimeMessage.class));
+        DeliveryLedger ledger = new DeliveryLedger(redisTemplate, new SimpleMeterRegistry(), 24, 120);
+        campaignService = new CampaignService(campaignRepository, retryRepository, userServiceClient,
+                templateRegistry, emailService, ledger, meterRegistry,
+                1_000, 100, 2, 1, 300_000, 2, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        campaignService.shutdown();
+    }
+
+    @Test
+    void resumesAfterTheCheckpoint() throws Exception {
+        Campaign campaign = campaign(Campaign.PAUSED, 2);
+        when(userServiceClient.fetchRecipients(2, 100)).thenReturn(new RecipientPage(recipients(3, 4), null));
+
+        assertTrue(campaignService.start(campaign.getId()));
+
+        Campaign done = awaitStatus(campaign.getId(), Campaign.COMPLETED);
+        verify(userServiceClient, never()).fetchRecipients(eq(0L), anyInt());
+        verify(emailService).createMessage(eq("user3@example.com"), anyString(), anyString());
+        verify(emailService).createMessage(eq("user4@example.com"), anyString(), anyString());
+        verify(emailService, times(2)).createMessage(anyString(), anyString(), anyString());
+        assertEquals(4L, done.getLastUserId());
+        assertEquals(2L, done.getSent());
+    }
+
+    @Test
+    void runnerStopsOnceItsLeaseIsTakenOver() throws Exception {
+        Campaign campaign = campaign(Campaign.PENDING, 0);
+        when(userServiceClient.fetchRecipients(0, 100)).thenReturn(new RecipientPage(recipients(1, 4), null));
+        // While the first chunk is sent, another instance decides this run is dead and claims it
+        CountDownLatch takenOver = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Instant now = Instant.now();
+            campaignRepository.claim(campaign.getId(), "other-instance", now, now.plusSeconds(3600));
+            takenOver.countDown();
+            return null;
+        }).when(emailService).sendAll(anyList());
+
+        assertTrue(campaignService.start(campaign.getId()));
+
+        assertTrue(takenOver.await(10, TimeUnit.SECONDS));
+        await(() -> meterRegistry.get("notification.campaign.active").gauge().value() == 0);
+        Campaign stopped = campaignRepository.findById(campaign.getId()).orElseThrow();
+        assertEquals(Campaign.RUNNING, stopped.getStatus());
+        assertEquals("other-instance", stopped.getOwner());
+        // The refused checkpoint left the cursor for the new owner, which skips the users already sent
+        assertEquals(0L, stopped.getLastUserId());
+        assertEquals(0L, stopped.getSent());
+        verify(emailService, times(1)).sendAll(anyList());
+        verify(emailService, never()).createMessage(eq("user3@example.com"), anyString(), anyString());
+        DeliveryLedger ledger = new DeliveryLedger(redisTemplate, new SimpleMeterRegistry(), 24, 120);
+        assertEquals(List.of(DeliveryLedger.Claim.DUPLICATE, DeliveryLedger.Claim.DUPLICATE),
+                ledger.claim(List.of("campaign:" + campaign.getId() + ":1", "campaign:" + campaign.getId() + ":2")));
+    }
+
+    @Test
+    void recipientsAreGivenUpAfterMaxAttempts() throws Exception {
+        Campaign campaign = campaign(Campaign.PENDING, 0);
+        when(userServiceClient.fetchRecipients(0, 100)).thenReturn(new RecipientPage(recipients(1, 3), null));
+        doThrow(new MailSendException("smtp down")).when(emailService).sendAll(anyList());
+
+        assertTrue(campaignService.start(campaign.getId()));
+
+        Campaign done = awaitStatus(campaign.getId(), Campaign.COMPLETED);
+        // The main pass and one retry round, two attempts each
+        verify(emailService, times(4)).sendAll(anyList());
+        assertEquals(0L, done.getSent());
+        assertEquals(3L, done.getFailed());
+        assertEquals(3L, done.getLastUserId());
+        List<CampaignRetry> left = retryRepository.findAll().stream()
+                .filter(r -> r.getCampaignId().equals(campaign.getId())).toList();
+        assertEquals(3, left.size());
+        assertTrue(left.stream().allMatch(r -> r.getAttempts() == 2));
+        verify(userServiceClient, times(1)).fetchRecipients(anyLong(), anyInt());
+    }
+
+    private Campaign campaign(String status, long lastUserId) {
+        Campaign campaign = new Campaign();
+        campaign.setName("spring sale");
+        campaign.setTemplateName(TEMPLATE);
+        campaign.setVariables("{}");
+        campaign.setStatus(status);
+        campaign.setLastUserId(lastUserId);
+        campaign.setCreatedAt(Instant.now());
+        campaign.setUpdatedAt(campaign.getCreatedAt());
+        return campaignRepository.save(campaign);
+    }
+
+    private static List<RecipientPage.Recipient> recipients(long from, long to) {
+        List<RecipientPage.Recipient> recipients = new ArrayList<>();
+        LongStream.rangeClosed(from, to).forEach(id ->
+                recipients.add(new RecipientPage.Recipient(id, "user" + id + "@example.com", "User" + id, "user" + id)));
+        return recipients;
+    }
+
+    private Campaign awaitStatus(Long id, String status) throws InterruptedException {
+        await(() -> status.equals(campaignRepository.findById(id).orElseThrow().getStatus()));
+        return campaignRepository.findById(id).orElseThrow();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Campaign runner did not get there in time");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
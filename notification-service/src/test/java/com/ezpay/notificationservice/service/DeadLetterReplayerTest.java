@@ -0,0 +1,97 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeadLetterReplayerTest {
+
+    private static final TopicPartition DLT = new TopicPartition(EmailRetryRouter.DLT_TOPIC, 0);
+
+    @SuppressWarnings("unchecked")
+    private final ConsumerFactory<String, String> consumerFactory = mock(ConsumerFactory.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+    // Stays readable after the replayer closes it, so the committed offsets can be checked
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+        @Override
+        public synchronized void close() {
+        }
+    };
+    private final DeadLetterReplayer replayer = new DeadLetterReplayer(consumerFactory, kafkaTemplate, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        when(consumerFactory.createConsumer(eq("notification-dlt-replay"), isNull(), isNull(), any(Properties.class)))
+                .thenReturn(consumer);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(DLT));
+            consumer.updateBeginningOffsets(Map.of(DLT, 0L));
+            for (int i = 0; i < 5; i++) {
+                consumer.addRecord(new ConsumerRecord<>(EmailRetryRouter.DLT_TOPIC, 0, i, "key-" + i, "event-" + i));
+            }
+        });
+    }
+
+    @Test
+    void replaysEveryDeadLetterOntoTheMainTopic() {
+        assertEquals(5, replayer.replay(100));
+
+        List<ProducerRecord<String, String>> sent = sent(5);
+        for (int i = 0; i < 5; i++) {
+            ProducerRecord<String, String> copy = sent.get(i);
+            assertEquals(EmailRetryRouter.EMAIL_TOPIC, copy.topic());
+            assertEquals("key-" + i, copy.key());
+            assertEquals("event-" + i, copy.value());
+            assertEquals(EmailRetryRouter.DLT_TOPIC + "-0@" + i,
+                    new String(copy.headers().lastHeader("x-replayed-from").value(), StandardCharsets.UTF_8));
+        }
+        assertEquals(5L, committed());
+    }
+
+    @Test
+    void stopsAtTheLimitAndCommitsOnlyWhatWasMoved() {
+        assertEquals(3, replayer.replay(3));
+
+        assertEquals(3, sent(3).size());
+        assertEquals(3L, committed());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProducerRecord<String, String>> sent(int count) {
+        ArgumentCaptor<ProducerRecord<String, String>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(count)).send(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private long committed() {
+        OffsetAndMetadata offset = consumer.committed(Set.of(DLT)).get(DLT);
+        return offset.offset();
+    }
+}
@@ -0,0 +1,105 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.service.DeliveryLedger.Claim;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the claim, confirm and release scripts against a real Redis.
+ */
+@Testcontainers
+class DeliveryLedgerTest {
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private DeliveryLedger ledger;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.delete(redisTemplate.keys("notif:{ledger}:*"));
+        ledger = ledger(120);
+    }
+
+    @Test
+    void claimIsHeldUntilConfirmed() {
+        assertEquals(Claim.SEND, ledger.claim("e1"));
+        assertEquals(Claim.IN_FLIGHT, ledger.claim("e1"));
+
+        ledger.confirm("e1");
+        assertEquals(Claim.DUPLICATE, ledger.claim("e1"));
+        // Another instance sees the same
+        assertEquals(Claim.DUPLICATE, ledger(120).claim("e1"));
+    }
+
+    @Test
+    void releasedClaimCanBeRetried() {
+        assertEquals(Claim.SEND, ledger.claim("e1"));
+        ledger.release("e1");
+
+        assertEquals(Claim.SEND, ledger.claim("e1"));
+    }
+
+    @Test
+    void onlyTheClaimantReleases() {
+        assertEquals(Claim.SEND, ledger.claim("e1"));
+        ledger(120).release("e1");
+
+        assertEquals(Claim.IN_FLIGHT, ledger.claim("e1"));
+    }
+
+    @Test
+    void abandonedClaimExpires() throws InterruptedException {
+        DeliveryLedger crashed = ledger(1);
+        assertEquals(Claim.SEND, crashed.claim("e1"));
+
+        Thread.sleep(1_200);
+        assertEquals(Claim.SEND, ledger.claim("e1"));
+    }
+
+    @Test
+    void deliveriesAnywhereInTheWindowAreDuplicates() {
+        long hour = System.currentTimeMillis() / Duration.ofHours(1).toMillis();
+        redisTemplate.opsForSet().add("notif:{ledger}:" + (hour - 23), "old");
+        redisTemplate.opsForSet().add("notif:{ledger}:" + (hour - 30), "expired");
+
+        assertEquals(List.of(Claim.DUPLICATE, Claim.SEND, Claim.SEND, Claim.SEND),
+                ledger.claim(Arrays.asList("old", "expired", "new", null)));
+    }
+
+    private static DeliveryLedger ledger(long pendingTtlSeconds) {
+        return new DeliveryLedger(redisTemplate, new SimpleMeterRegistry(), 24, pendingTtlSeconds);
+    }
+}
@@ -0,0 +1,74 @@
+package com.ezpay.notificationservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DigestBufferTest {
+
+    @Test
+    void windowOpensWithTheFirstItem() {
+        DigestBuffer<String> buffer = new DigestBuffer<>(1_000, 10);
+        assertNull(buffer.add("a", "a1", 0));
+        assertNull(buffer.add("b", "b1", 500));
+        assertNull(buffer.add("a", "a2", 900));
+
+        assertTrue(buffer.drainDue(999).isEmpty());
+        Map<String, List<String>> due = buffer.drainDue(1_000);
+        assertEquals(Map.of("a", List.of("a1", "a2")), due);
+
+        // A later item starts a new window rather than extending the flushed one
+        assertNull(buffer.add("a", "a3", 1_100));
+        assertEquals(Map.of("b", List.of("b1")), buffer.drainDue(1_500));
+        assertEquals(Map.of("a", List.of("a3")), buffer.drainAll());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void fullBufferIsReturnedImmediately() {
+        DigestBuffer<Integer> buffer = new DigestBuffer<>(1_000, 3);
+        assertNull(buffer.add("a", 1, 0));
+        assertNull(buffer.add("a", 2, 0));
+        assertEquals(List.of(1, 2, 3), buffer.add("a", 3, 0));
+        assertEquals(0, buffer.size());
+        assertNull(buffer.add("a", 4, 0));
+    }
+
+    @Test
+    void concurrentAddsAndDrainsLoseNothing() throws Exception {
+        DigestBuffer<Integer> buffer = new DigestBuffer<>(1, 7);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        int perThread = 10_000;
+        for (int t = 0; t < 4; t++) {
+            int base = t * perThread;
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    List<Integer> full = buffer.add("k" + (i % 5), base + i, i);
+                    if (full != null) {
+                        seen.addAll(full);
+                    }
+                    if (i % 100 == 0) {
+                        buffer.drainDue(i).values().forEach(seen::addAll);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        buffer.drainAll().values().forEach(seen::addAll);
+
+        assertEquals(4 * perThread, seen.size());
+        assertEquals(4 * perThread, seen.stream().distinct().count());
+    }
+}
@@ -0,0 +1,108 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailRetryRouterTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EmailRetryRouter router = new EmailRetryRouter(kafkaTemplate, meterRegistry, new long[]{1_000, 60_000});
+
+    @BeforeEach
+    void setUp() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void oneTopicPerConfiguredDelay() {
+        assertArrayEquals(new String[]{"email-topic-retry-1", "email-topic-retry-2"}, router.retryTopics());
+    }
+
+    @Test
+    void eventWalksThroughEveryTierThenTheDlt() {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>(EmailRetryRouter.EMAIL_TOPIC, 0, 7, "key", "{}");
+
+        long before = System.currentTimeMillis();
+        ProducerRecord<String, String> first = forward(record, 1);
+        assertEquals("email-topic-retry-1", first.topic());
+        assertEquals("key", first.key());
+        assertEquals("1", header(first, EmailRetryRouter.ATTEMPT_HEADER));
+        assertEquals("smtp down", header(first, EmailRetryRouter.ERROR_HEADER));
+        long dueAt = router.dueAt(consumed(first));
+        assertTrue(dueAt >= before + 1_000 && dueAt <= System.currentTimeMillis() + 1_000);
+
+        ProducerRecord<String, String> second = forward(consumed(first), 2);
+        assertEquals("email-topic-retry-2", second.topic());
+        assertEquals("2", header(second, EmailRetryRouter.ATTEMPT_HEADER));
+
+        ProducerRecord<String, String> dead = forward(consumed(second), 3);
+        assertEquals(EmailRetryRouter.DLT_TOPIC, dead.topic());
+        assertEquals("3", header(dead, EmailRetryRouter.ATTEMPT_HEADER));
+        assertNull(header(dead, EmailRetryRouter.DUE_AT_HEADER));
+        assertEquals(1, meterRegistry.counter("notification.email.retry", "tier", EmailRetryRouter.DLT_TOPIC,
+                "outcome", "dead_lettered").count());
+    }
+
+    @Test
+    void deadLetterSkipsTheTiers() {
+        router.deadLetter(new ConsumerRecord<>(EmailRetryRouter.EMAIL_TOPIC, 0, 1, "key", "not json"),
+                new IllegalArgumentException("unreadable"));
+
+        ProducerRecord<String, String> sent = captured(1);
+        assertEquals(EmailRetryRouter.DLT_TOPIC, sent.topic());
+        assertEquals("0", header(sent, EmailRetryRouter.ATTEMPT_HEADER));
+        assertEquals("unreadable", header(sent, EmailRetryRouter.ERROR_HEADER));
+    }
+
+    @Test
+    void recordWithoutDueHeaderIsDueImmediately() {
+        assertEquals(0L, router.dueAt(new ConsumerRecord<>("email-topic-retry-1", 0, 0, "key", "{}")));
+    }
+
+    private ProducerRecord<String, String> forward(ConsumerRecord<String, String> record, int sends) {
+        router.forward(record, new IllegalStateException("smtp down"));
+        return captured(sends);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProducerRecord<String, String> captured(int sends) {
+        ArgumentCaptor<ProducerRecord<String, String>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(sends)).send(captor.capture());
+        return captor.getValue();
+    }
+
+    // The record as the next tier's consumer would receive it
+    private static ConsumerRecord<String, String> consumed(ProducerRecord<String, String> sent) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>(sent.topic(), 0, 0, sent.key(), sent.value());
+        for (Header header : sent.headers()) {
+            record.headers().add(header);
+        }
+        return record;
+    }
+
+    private static String header(ProducerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
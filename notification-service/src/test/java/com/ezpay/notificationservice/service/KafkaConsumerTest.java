@@ -0,0 +1,136 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.dto.UserEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Batch handling of the email listener, with the dispatch pool running chunks inline and every
+ * collaborator mocked. Chunks hold two events.
+ */
+class KafkaConsumerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EmailService emailService = mock(EmailService.class);
+    private final EmailRetryRouter retryRouter = mock(EmailRetryRouter.class);
+    private final DeliveryLedger deliveryLedger = mock(DeliveryLedger.class);
+    private final NotificationCoalescer coalescer = mock(NotificationCoalescer.class);
+    private final ThreadPoolTaskExecutor dispatchExecutor = mock(ThreadPoolTaskExecutor.class);
+    private final Map<String, MimeMessage> messages = new HashMap<>();
+    private final List<List<MimeMessage>> sent = new ArrayList<>();
+    private KafkaConsumer consumer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(dispatchExecutor).execute(any(Runnable.class));
+        when(deliveryLedger.claim(anyList())).thenAnswer(invocation ->
+                Collections.nCopies(invocation.<List<?>>getArgument(0).size(), DeliveryLedger.Claim.SEND));
+        when(emailService.buildTemplateMessage(any())).thenAnswer(invocation -> {
+            MimeMessage message = mock(MimeMessage.class);
+            messages.put(invocation.<UserEvent>getArgument(0).getEventId(), message);
+            return message;
+        });
+        doAnswer(invocation -> sent.add(List.copyOf(invocation.<List<MimeMessage>>getArgument(0))))
+                .when(emailService).sendAll(anyList());
+        consumer = new KafkaConsumer(emailService, retryRouter, deliveryLedger, coalescer, dispatchExecutor,
+                new SimpleMeterRegistry(), 2);
+    }
+
+    @Test
+    void batchIsSentInChunks() throws Exception {
+        consumer.consume(records(5));
+
+        assertEquals(List.of(2, 2, 1), sent.stream().map(List::size).toList());
+        verify(deliveryLedger).confirm(List.of("e0", "e1"));
+        verify(deliveryLedger).confirm(List.of("e2", "e3"));
+        verify(deliveryLedger).confirm(List.of("e4"));
+        verify(retryRouter, never()).forward(any(ConsumerRecord.class), any());
+    }
+
+    @Test
+    void failedMessagesGoToTheRetryTiers() throws Exception {
+        List<ConsumerRecord<String, String>> records = records(2);
+        doAnswer(invocation -> {
+            throw new MailSendException(Map.<Object, Exception>of(messages.get("e1"), new IllegalStateException("mailbox full")));
+        }).when(emailService).sendAll(anyList());
+
+        consumer.consume(records);
+
+        verify(retryRouter).forward(eq(records.get(1)), any());
+        verify(retryRouter, never()).forward(eq(records.get(0)), any());
+        verify(deliveryLedger).release("e1");
+        verify(deliveryLedger).confirm(List.of("e0"));
+    }
+
+    @Test
+    void batchFailsAtTheEarliestEventThatCannotBeForwarded() throws Exception {
+        List<ConsumerRecord<String, String>> records = records(4);
+        doThrow(new MailSendException("smtp down")).when(emailService).sendAll(anyList());
+        doThrow(new IllegalStateException("broker down")).when(retryRouter).forward(eq(records.get(3)), any());
+        doThrow(new IllegalStateException("broker down")).when(retryRouter).forward(eq(records.get(1)), any());
+
+        BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.consume(records));
+
+        // Every chunk ran; offsets before records[1] are committed, and it is redelivered from there
+        assertSame(records.get(1), failure.getRecord());
+        verify(retryRouter).forward(eq(records.get(0)), any());
+        verify(retryRouter).forward(eq(records.get(2)), any());
+    }
+
+    @Test
+    void duplicatesAndDigestEventsAreNotSentNow() throws Exception {
+        List<ConsumerRecord<String, String>> records = records(3);
+        when(coalescer.offerEmail(eq(records.get(0).value()), any())).thenReturn(true);
+        when(deliveryLedger.claim(anyList())).thenReturn(List.of(DeliveryLedger.Claim.DUPLICATE, DeliveryLedger.Claim.SEND));
+
+        consumer.consume(records);
+
+        verify(deliveryLedger).claim(List.of("e1", "e2"));
+        assertEquals(List.of(List.of(messages.get("e2"))), sent);
+        verify(deliveryLedger).confirm(List.of("e2"));
+    }
+
+    private List<ConsumerRecord<String, String>> records(int count) throws Exception {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UserEvent event = new UserEvent();
+            event.setEventId("e" + i);
+            event.setEmail("user" + i + "@example.com");
+            event.setName("User");
+            event.setEventType("welcome");
+            records.add(new ConsumerRecord<>(EmailRetryRouter.EMAIL_TOPIC, 0, i, event.getEmail(),
+                    objectMapper.writeValueAsString(event)));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,155 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.dto.UserEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the email digest buffer against a real Redis, with mail and the retry tiers mocked out.
+ * Digests fill at two events, which makes them due straight away.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class NotificationCoalescerTest {
+
+    private static final String ADDRESS = "user@example.com";
+    private static final String LIST = "notif:{digest}:" + ADDRESS;
+    private static final String DUE = "notif:{digest}:due";
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EmailService emailService = mock(EmailService.class);
+    private final EmailRetryRouter retryRouter = mock(EmailRetryRouter.class);
+    private final ThreadPoolTaskExecutor dispatchExecutor = mock(ThreadPoolTaskExecutor.class);
+    private NotificationCoalescer coalescer;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.delete(redisTemplate.keys("notif:*"));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(dispatchExecutor).execute(any(Runnable.class));
+        when(emailService.buildDigestMessage(anyString(), any(), anyList())).thenReturn(mock(MimeMessage.class));
+        DeliveryLedger ledger = new DeliveryLedger(redisTemplate, new SimpleMeterRegistry(), 24, 120);
+        coalescer = new NotificationCoalescer(redisTemplate, emailService, retryRouter, ledger,
+                mock(SmsDispatcher.class), dispatchExecutor, new SimpleMeterRegistry(),
+                true, Set.of("activity"), 60_000, 2, 60_000, 100);
+    }
+
+    @Test
+    void bufferedEventsWaitInRedisUntilTheDigestIsSent() throws Exception {
+        offer("e1");
+        coalescer.flushDue();
+        verify(emailService, never()).sendAll(anyList());
+        assertEquals(1L, redisTemplate.opsForList().size(LIST));
+
+        offer("e2");
+        coalescer.flushDue();
+
+        verify(emailService).buildDigestMessage(eq(ADDRESS), any(), anyList());
+        verify(emailService).sendAll(anyList());
+        assertFalse(redisTemplate.hasKey(LIST));
+        assertEquals(0L, redisTemplate.opsForZSet().zCard(DUE));
+    }
+
+    @Test
+    void failedDigestIsForwardedEventByEvent() throws Exception {
+        doThrow(new MailSendException("smtp down")).when(emailService).sendAll(anyList());
+        String first = offer("e1");
+        String second = offer("e2");
+
+        coalescer.flushDue();
+
+        verify(retryRouter).forward(eq(ADDRESS), eq(first), any());
+        verify(retryRouter).forward(eq(ADDRESS), eq(second), any());
+        assertFalse(redisTemplate.hasKey(LIST));
+    }
+
+    @Test
+    void digestThatCannotBeForwardedStaysBuffered() throws Exception {
+        doThrow(new MailSendException("smtp down")).when(emailService).sendAll(anyList());
+        String first = offer("e1");
+        offer("e2");
+        doThrow(new IllegalStateException("broker down")).when(retryRouter).forward(eq(ADDRESS), eq(first), any());
+
+        coalescer.flushDue();
+
+        // One failed forward does not stop the others, but nothing leaves Redis
+        verify(retryRouter, times(2)).forward(eq(ADDRESS), anyString(), any());
+        assertEquals(2L, redisTemplate.opsForList().size(LIST));
+        assertTrue(redisTemplate.hasKey("notif:{digest}:lease:" + ADDRESS));
+    }
+
+    @Test
+    void leasedDigestIsNotTakenTwice() throws Exception {
+        redisTemplate.opsForValue().set("notif:{digest}:lease:" + ADDRESS, "other-instance");
+        offer("e1");
+        offer("e2");
+
+        coalescer.flushDue();
+
+        verify(emailService, never()).sendAll(anyList());
+        assertEquals(2L, redisTemplate.opsForList().size(LIST));
+    }
+
+    private String offer(String eventId) throws Exception {
+        UserEvent event = new UserEvent();
+        event.setEventId(eventId);
+        event.setEmail(ADDRESS);
+        event.setName("User");
+        event.setEventType("activity");
+        String payload = objectMapper.writeValueAsString(event);
+        assertTrue(coalescer.offerEmail(payload, event));
+        return payload;
+    }
+}
@@ -0,0 +1,205 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.dto.ScheduledNotification;
+import com.ezpay.notificationservice.dto.UserEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs two scheduler instances against a real Redis with Kafka mocked out. Items are mostly
+ * scheduled in the past so that {@link NotificationScheduler#poll()} promotes them straight away
+ * and the tests do not wait for the timing wheel.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class NotificationSchedulerTest {
+
+    private static final long BUCKET_MS = 60_000;
+    private static final String ADDRESS = "user@example.com";
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final List<NotificationScheduler> schedulers = new ArrayList<>();
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.delete(redisTemplate.keys("notif:*"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        schedulers.forEach(NotificationScheduler::shutdown);
+    }
+
+    @Test
+    void bucketIsLoadedByOneInstanceOnly() {
+        KafkaTemplate<String, String> kafkaA = kafka(CompletableFuture.completedFuture(null));
+        KafkaTemplate<String, String> kafkaB = kafka(CompletableFuture.completedFuture(null));
+        SimpleMeterRegistry registryA = new SimpleMeterRegistry();
+        SimpleMeterRegistry registryB = new SimpleMeterRegistry();
+        NotificationScheduler a = scheduler(kafkaA, registryA, 60_000);
+        NotificationScheduler b = scheduler(kafkaB, registryB, 60_000);
+        a.schedule(email("n1", System.currentTimeMillis() + 300));
+
+        a.poll();
+        b.poll();
+
+        assertEquals(1.0, registryA.get("notification.schedule.buckets.leased").gauge().value());
+        assertEquals(0.0, registryB.get("notification.schedule.buckets.leased").gauge().value());
+        // A's wheel sends it once it is due
+        verify(kafkaA, timeout(5_000)).send(eq(EmailRetryRouter.EMAIL_TOPIC), eq(ADDRESS), contains("scheduled:n1"));
+        verify(kafkaB, never()).send(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void sweepPicksUpItemsScheduledByAnotherInstance() {
+        KafkaTemplate<String, String> kafkaA = kafka(CompletableFuture.completedFuture(null));
+        KafkaTemplate<String, String> kafkaB = kafka(CompletableFuture.completedFuture(null));
+        NotificationScheduler a = scheduler(kafkaA, new SimpleMeterRegistry(), 60_000);
+        NotificationScheduler b = scheduler(kafkaB, new SimpleMeterRegistry(), 60_000);
+        long dueAt = System.currentTimeMillis() - 1_000;
+        a.schedule(email("n1", dueAt));
+        a.poll();
+
+        // B does not hold the bucket, so only A's sweep can find this one
+        b.schedule(email("n2", dueAt));
+        a.poll();
+
+        verify(kafkaA).send(eq(EmailRetryRouter.EMAIL_TOPIC), eq(ADDRESS), contains("scheduled:n1"));
+        verify(kafkaA).send(eq(EmailRetryRouter.EMAIL_TOPIC), eq(ADDRESS), contains("scheduled:n2"));
+        verify(kafkaB, never()).send(anyString(), anyString(), anyString());
+        long bucket = dueAt / BUCKET_MS;
+        assertFalse(redisTemplate.hasKey("notif:sched:" + bucket + ":payload"));
+        assertFalse(redisTemplate.hasKey("notif:sched:" + bucket + ":inflight"));
+    }
+
+    @Test
+    void itemStaysInRedisUntilTheSendIsAcknowledged() throws Exception {
+        CompletableFuture<SendResult<String, String>> pending = new CompletableFuture<>();
+        KafkaTemplate<String, String> kafka = kafka(pending);
+        NotificationScheduler scheduler = scheduler(kafka, new SimpleMeterRegistry(), 60_000);
+        long dueAt = System.currentTimeMillis() - 1_000;
+        long bucket = dueAt / BUCKET_MS;
+        scheduler.schedule(email("n1", dueAt));
+
+        scheduler.poll();
+
+        verify(kafka).send(eq(EmailRetryRouter.EMAIL_TOPIC), eq(ADDRESS), contains("scheduled:n1"));
+        assertNotNull(redisTemplate.opsForZSet().score("notif:sched:" + bucket + ":inflight", "n1"));
+        assertTrue(redisTemplate.opsForHash().hasKey("notif:sched:" + bucket + ":payload", "n1"));
+
+        pending.complete(null);
+
+        assertFalse(redisTemplate.hasKey("notif:sched:" + bucket + ":inflight"));
+        assertFalse(redisTemplate.hasKey("notif:sched:" + bucket + ":payload"));
+    }
+
+    @Test
+    void unacknowledgedSendIsClaimedAgainAfterTheTimeout() throws Exception {
+        KafkaTemplate<String, String> kafka = kafka(new CompletableFuture<>());
+        NotificationScheduler scheduler = scheduler(kafka, new SimpleMeterRegistry(), 0);
+        scheduler.schedule(email("n1", System.currentTimeMillis() - 1_000));
+
+        scheduler.poll();
+        Thread.sleep(5);
+        scheduler.poll();
+
+        verify(kafka, times(2)).send(eq(EmailRetryRouter.EMAIL_TOPIC), eq(ADDRESS), contains("scheduled:n1"));
+    }
+
+    @Test
+    void failedSendIsRequeued() {
+        KafkaTemplate<String, String> kafka = kafka(CompletableFuture.failedFuture(new TimeoutException("broker down")));
+        NotificationScheduler scheduler = scheduler(kafka, new SimpleMeterRegistry(), 60_000);
+        long dueAt = System.currentTimeMillis() - 1_000;
+        long bucket = dueAt / BUCKET_MS;
+        scheduler.schedule(email("n1", dueAt));
+
+        long before = System.currentTimeMillis();
+        scheduler.poll();
+
+        assertFalse(redisTemplate.hasKey("notif:sched:" + bucket + ":inflight"));
+        Double retryAt = null;
+        for (long b = bucket; b <= (before + 60_000) / BUCKET_MS && retryAt == null; b++) {
+            retryAt = redisTemplate.opsForZSet().score("notif:sched:" + b, "n1");
+        }
+        assertNotNull(retryAt);
+        assertTrue(retryAt >= before + 30_000, "requeued for " + retryAt);
+    }
+
+    private NotificationScheduler scheduler(KafkaTemplate<String, String> kafka, SimpleMeterRegistry registry,
+                                            long ackTimeoutMs) {
+        NotificationScheduler scheduler = new NotificationScheduler(redisTemplate, kafka, mock(SmsDispatcher.class),
+                mock(NotificationCoalescer.class), registry, BUCKET_MS, 120_000, 10, 500, ackTimeoutMs);
+        schedulers.add(scheduler);
+        return scheduler;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static KafkaTemplate<String, String> kafka(CompletableFuture<SendResult<String, String>> result) {
+        KafkaTemplate<String, String> kafka = mock(KafkaTemplate.class);
+        when(kafka.send(anyString(), anyString(), anyString())).thenReturn(result);
+        return kafka;
+    }
+
+    private static ScheduledNotification email(String id, long dueAt) {
+        UserEvent event = new UserEvent();
+        event.setEmail(ADDRESS);
+        event.setName("User");
+        event.setEventType("reminder");
+        ScheduledNotification notification = new ScheduledNotification();
+        notification.setId(id);
+        notification.setChannel(ScheduledNotification.EMAIL);
+        notification.setDueAt(dueAt);
+        notification.setEvent(event);
+        return notification;
+    }
+}
@@ -0,0 +1,140 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the issue and check scripts against a real Redis, with the SMS dispatcher mocked out so the
+ * sent code can be read back from the message text.
+ */
+@Testcontainers
+class OtpEngineTest {
+
+    private static final String PHONE = "+14155550100";
+    private static final Pattern CODE = Pattern.compile("\\d{6}");
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final SmsDispatcher dispatcher = mock(SmsDispatcher.class);
+    private OtpEngine engine;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.delete(redisTemplate.keys("otp:*"));
+        when(dispatcher.sendText(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture("SM1"));
+        engine = engine("test-secret", 3);
+    }
+
+    @Test
+    void matchingCodeIsApprovedOnce() {
+        String code = issue();
+
+        assertEquals("approved", engine.verify(PHONE, code));
+        // Both the code and the cooldown are gone, so the code cannot be replayed
+        assertFalse(redisTemplate.hasKey("otp:" + PHONE));
+        assertFalse(redisTemplate.hasKey("otp:cooldown:" + PHONE));
+        assertEquals("pending", engine.verify(PHONE, code));
+    }
+
+    @Test
+    void wrongCodesBurnTheCodeAtMaxAttempts() {
+        String code = issue();
+        String wrong = code.equals("000000") ? "000001" : "000000";
+
+        assertEquals("pending", engine.verify(PHONE, wrong));
+        assertEquals("pending", engine.verify(PHONE, wrong));
+        assertEquals("max_attempts_reached", engine.verify(PHONE, wrong));
+        assertEquals("pending", engine.verify(PHONE, code));
+    }
+
+    @Test
+    void resendWithinCooldownKeepsTheFirstCode() {
+        String code = issue();
+        clearInvocations(dispatcher);
+
+        assertEquals("pending", engine.issue(PHONE).join());
+        verify(dispatcher, never()).sendText(anyString(), anyString());
+        assertEquals("approved", engine.verify(PHONE, code));
+    }
+
+    @Test
+    void issuedCodeExpiresWithItsTtl() {
+        issue();
+
+        long ttl = redisTemplate.getExpire("otp:" + PHONE);
+        assertTrue(ttl > 0 && ttl <= 600, "ttl " + ttl);
+        assertEquals("0", redisTemplate.opsForHash().get("otp:" + PHONE, "attempts"));
+    }
+
+    @Test
+    void undeliveredCodeCanBeRequestedAgain() {
+        when(dispatcher.sendText(anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("provider down")));
+
+        assertTrue(engine.issue(PHONE).isCompletedExceptionally());
+        assertFalse(redisTemplate.hasKey("otp:cooldown:" + PHONE));
+    }
+
+    @Test
+    void localModeRequiresASecret() {
+        assertThrows(IllegalStateException.class, () -> engine("", 3));
+    }
+
+    private String issue() {
+        assertEquals("pending", engine.issue(PHONE).join());
+        ArgumentCaptor<String> text = ArgumentCaptor.forClass(String.class);
+        verify(dispatcher).sendText(eq(PHONE), text.capture());
+        Matcher matcher = CODE.matcher(text.getValue());
+        assertTrue(matcher.find(), text.getValue());
+        return matcher.group();
+    }
+
+    private OtpEngine engine(String secret, int maxAttempts) {
+        return new OtpEngine(redisTemplate, dispatcher, new SimpleMeterRegistry(), "local", secret,
+                6, 600, 30, maxAttempts, "Your EZPay verification code is %s. It expires in %d minutes.");
+    }
+}
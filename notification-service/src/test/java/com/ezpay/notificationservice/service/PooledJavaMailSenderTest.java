@@ -0,0 +1,124 @@
+package com.ezpay.notificationservice.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Sends through a local GreenMail SMTP server and counts how many connections the pool opened.
+ */
+class PooledJavaMailSenderTest {
+
+    @RegisterExtension
+    static final GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PooledJavaMailSender sender;
+
+    @BeforeEach
+    void setUp() {
+        sender = new PooledJavaMailSender(meterRegistry, 2, 1000, 0, 60_000, 100);
+        sender.setHost("localhost");
+        sender.setPort(ServerSetupTest.SMTP.getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.destroy();
+    }
+
+    @Test
+    void bulkSendUsesOneConnection() throws MessagingException {
+        MimeMessage[] messages = new MimeMessage[10];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = message("user" + i + "@example.com");
+        }
+
+        sender.send(messages);
+
+        assertEquals(10, smtp.getReceivedMessages().length);
+        assertEquals(1, opened());
+    }
+
+    @Test
+    void connectionIsReusedAcrossSends() throws MessagingException {
+        sender.send(message("a@example.com"));
+        sender.send(message("b@example.com"));
+        sender.send(message("c@example.com"));
+
+        assertEquals(3, smtp.getReceivedMessages().length);
+        assertEquals(1, opened());
+    }
+
+    @Test
+    void deadIdleConnectionIsReplaced() throws MessagingException {
+        sender.send(message("a@example.com"));
+        // Drops every open session; the pooled connection fails its NOOP check on next borrow
+        smtp.stop();
+        smtp.start();
+
+        sender.send(message("b@example.com"));
+
+        assertEquals(1, smtp.getReceivedMessages().length);
+        assertEquals(2, opened());
+    }
+
+    @Test
+    void failedReconnectReportsOnlyUnsentMessages() throws MessagingException {
+        AtomicInteger connects = new AtomicInteger();
+        PooledJavaMailSender flaky = new PooledJavaMailSender(meterRegistry, 2, 1000, 0, 60_000, 2) {
+            @Override
+            protected Transport connectTransport() throws MessagingException {
+                if (connects.incrementAndGet() > 1) {
+                    throw new MessagingException("connection refused");
+                }
+                return super.connectTransport();
+            }
+        };
+        flaky.setHost("localhost");
+        flaky.setPort(ServerSetupTest.SMTP.getPort());
+        MimeMessage[] messages = new MimeMessage[5];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = message("user" + i + "@example.com");
+        }
+
+        try {
+            // Two fit on the first connection; rotating to a second one fails
+            MailSendException ex = assertThrows(MailSendException.class, () -> flaky.send(messages));
+
+            assertEquals(2, smtp.getReceivedMessages().length);
+            assertEquals(List.of(messages[2], messages[3], messages[4]), List.copyOf(ex.getFailedMessages().keySet()));
+        } finally {
+            flaky.destroy();
+        }
+    }
+
+    private double opened() {
+        return meterRegistry.counter("notification.smtp.pool.connections.opened").count();
+    }
+
+    private MimeMessage message(String to) throws MessagingException {
+        MimeMessage message = sender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+        helper.setFrom("noreply@ezpay.test");
+        helper.setTo(to);
+        helper.setSubject("Welcome to EZPay");
+        helper.setText("<p>Hello</p>", true);
+        return message;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ezpay.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the dispatcher against the local stub provider, so rate shaping can be checked without a
+ * gateway account.
+ */
+class SmsDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SmsDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void sendsAreShapedToTheProviderRate() {
+        VirtualTicker ticker = new VirtualTicker();
+        StubSmsProvider provider = new StubSmsProvider(200, 20, 5, "000000");
+        dispatcher = new SmsDispatcher(provider, meterRegistry, 1000, 30_000, ticker);
+
+        List<CompletableFuture<String>> sends = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            sends.add(dispatcher.sendText("+91900000" + String.format("%04d", i), "hello"));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(120, provider.sentCount());
+        // 20 go out as a burst, the other 100 wait for tokens at 200/s
+        long waited = ticker.now.get();
+        assertTrue(waited >= 499_000_000L && waited <= 501_000_000L, "waited " + waited + "ns");
+    }
+
+    @Test
+    void repeatVerificationWithinWindowIsDeduplicated() {
+        StubSmsProvider provider = new StubSmsProvider(1000, 100, 5, "000000");
+        dispatcher = new SmsDispatcher(provider, meterRegistry, 100, 30_000);
+
+        CompletableFuture<String> first = dispatcher.startVerification("+919000000001");
+        CompletableFuture<String> second = dispatcher.startVerification("+919000000001");
+        dispatcher.startVerification("+919000000002").join();
+
+        assertSame(first, second);
+        assertEquals("pending", first.join());
+        assertEquals(2, provider.sentCount());
+        assertEquals(1, meterRegistry.counter("notification.sms.deduplicated", "operation", "verify_start").count());
+    }
+
+    @Test
+    void fullQueueIsRejected() {
+        StubSmsProvider provider = new StubSmsProvider(1, 1, 5, "000000");
+        dispatcher = new SmsDispatcher(provider, meterRegistry, 2, 30_000);
+
+        assertThrows(RejectedExecutionException.class, () -> {
+            for (int i = 0; i < 10; i++) {
+                dispatcher.sendText("+91900000000" + i, "hello");
+            }
+        });
+    }
+
+    // Waiting advances the clock instead of sleeping, so the rate check does not depend on the machine
+    private static final class VirtualTicker implements TokenBucket.Ticker {
+        private final AtomicLong now = new AtomicLong();
+
+        @Override
+        public long read() {
+            return now.get();
+        }
+
+        @Override
+        public void park(long nanos) {
+            now.addAndGet(nanos);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.ezpay.notificationservice.service;
+
+import com.ezpay.notificationservice.domain.EmailTemplate;
+import com.ezpay.notificationservice.repository.EmailTemplateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that pre-rendered segments produce exactly what Thymeleaf would, and that templates the
+ * segments cannot represent fall back to the engine.
+ */
+class TemplateRegistryTest {
+
+    private static final String STATIC = "<html><body><p>Your EZPay account is ready.</p></body></html>";
+    private static final String VARIABLES = "<html><body><p>Hi <span th:text=\"${name}\">there</span>,</p>"
+            + "<a th:href=\"${redirectUrl}\">Continue</a><p th:text=\"${name}\">again</p></body></html>";
+    private static final String STRUCTURAL = "<html><body><p th:if=\"${verified}\">Verified</p>"
+            + "<p th:text=\"${name}\">there</p></body></html>";
+
+    private final EmailTemplateRepository repository = mock(EmailTemplateRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Plain engine with the default string resolver, as the reference output
+    private final TemplateEngine reference = new TemplateEngine();
+    private TemplateRegistry registry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(repository.findAll()).thenReturn(List.of(
+                row("static", "Welcome", STATIC),
+                row("variables", "Hello {{name}}", VARIABLES),
+                row("structural", "Status for {{name}}", STRUCTURAL)));
+        registry = new TemplateRegistry(repository, mock(KafkaTemplate.class), meterRegistry, "template-changes");
+        registry.reloadAll();
+    }
+
+    @Test
+    void staticTemplateIsServedFromSegments() {
+        TemplateRegistry.RenderedEmail email = registry.render("static", Map.of()).orElseThrow();
+
+        assertEquals("Welcome", email.subject());
+        assertEquals(reference.process(STATIC, new Context()), email.body());
+        assertEquals(1, rendered("segments"));
+    }
+
+    @Test
+    void variableTemplateMatchesTheEngineIncludingEscaping() {
+        Map<String, Object> variables = Map.of("name", "Asha <Rao> & \"Co\"", "redirectUrl", "https://ezpay.test/a?b=1&c=2");
+
+        TemplateRegistry.RenderedEmail email = registry.render("variables", variables).orElseThrow();
+
+        assertEquals("Hello Asha <Rao> & \"Co\"", email.subject());
+        assertEquals(engine(VARIABLES, variables), email.body());
+        assertEquals(1, rendered("segments"));
+    }
+
+    @Test
+    void missingVariableFallsBackToTheEngine() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", "Asha");
+        variables.put("redirectUrl", null);
+
+        TemplateRegistry.RenderedEmail email = registry.render("variables", variables).orElseThrow();
+
+        assertEquals(engine(VARIABLES, variables), email.body());
+        assertEquals(1, rendered("engine"));
+    }
+
+    @Test
+    void structuralTemplateIsAlwaysRenderedByTheEngine() {
+        for (boolean verified : new boolean[]{true, false}) {
+            Map<String, Object> variables = Map.of("name", "Asha", "verified", verified);
+
+            TemplateRegistry.RenderedEmail email = registry.render("structural", variables).orElseThrow();
+
+            assertEquals(engine(STRUCTURAL, variables), email.body());
+        }
+        assertEquals(2, rendered("engine"));
+        assertEquals(0, rendered("segments"));
+    }
+
+    @Test
+    void unknownTemplateIsEmpty() {
+        assertFalse(registry.render("missing", Map.of()).isPresent());
+    }
+
+    private String engine(String body, Map<String, Object> variables) {
+        Context context = new Context();
+        context.setVariables(variables);
+        return reference.process(body, context);
+    }
+
+    private double rendered(String path) {
+        return meterRegistry.counter("notification.templates.rendered", "path", path).count();
+    }
+
+    private static EmailTemplate row(String name, String subject, String body) {
+        EmailTemplate row = new EmailTemplate();
+        row.setTemplateName(name);
+        row.setSubject(subject);
+        row.setBody(body);
+        return row;
+    }
+}
@@ -0,0 +1,58 @@
+package com.ezpay.notificationservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void entriesFireInTheirTickAcrossLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(100, 8, 3, 0);
+        Random random = new Random(42);
+        List<Long> dueTimes = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long dueAt = random.nextInt(50_000);
+            dueTimes.add(dueAt);
+            assertTrue(wheel.add(dueAt, dueAt));
+        }
+
+        int fired = 0;
+        for (long now = 100; now <= 51_200; now += 100) {
+            for (TimingWheel.Entry<Long> entry : wheel.advance(now)) {
+                assertTrue(entry.dueAt() < now, "fired late: " + entry.dueAt() + " at " + now);
+                assertTrue(entry.dueAt() >= now - 100, "fired early: " + entry.dueAt() + " at " + now);
+                fired++;
+            }
+        }
+
+        assertEquals(dueTimes.size(), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rejectsEntriesAlreadyDueOrBeyondTheHorizon() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 2, 10_000);
+
+        assertFalse(wheel.add("past", 9_999));
+        assertFalse(wheel.add("far", wheel.horizon() + 1));
+        assertTrue(wheel.add("near", 10_050));
+    }
+
+    @Test
+    void catchesUpAfterAPause() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 2, 0);
+        wheel.add("a", 150);
+        wheel.add("b", 5_000);
+
+        List<TimingWheel.Entry<String>> due = wheel.advance(6_000);
+
+        assertEquals(List.of("a", "b"), due.stream().map(TimingWheel.Entry::value).toList());
+    }
+}
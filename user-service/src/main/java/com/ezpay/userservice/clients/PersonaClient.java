@@ -0,0 +1,121 @@
+package com.ezpay.userservice.clients;
+
+import com.ezpay.userservice.domain.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Persona REST calls over a shared {@link RestClient}. The underlying JDK HTTP client keeps
+ * connections alive between calls, so workers reuse sockets instead of paying a TLS handshake per
+ * request. Connection failures, 429 and 5xx responses are retried with exponential backoff; the
+ * inquiry create carries an Idempotency-Key so a retry after a lost response cannot open a second
+ * inquiry.
+ */
+public class PersonaClient {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonaClient.class);
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final RestClient restClient;
+    private final String templateId;
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    public PersonaClient(RestClient restClient, String templateId, int maxAttempts, Duration backoff) {
+        this.restClient = restClient;
+        this.templateId = templateId;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = backoff;
+    }
+
+    public String createInquiry(User user) {
+        Map<String, Object> body = Map.of(
+                "data", Map.of(
+                        "type", "inquiry",
+                        "attributes", Map.of(
+                                "inquiry-template-id", templateId,
+                                "reference-id", user.getUserName(),
+                                "name-first", user.getFirstName(),
+                                "name-last", user.getLastName()
+                        )
+                )
+        );
+        // Same key on every attempt, so Persona returns the first inquiry instead of creating another
+        String idempotencyKey = UUID.randomUUID().toString();
+        JsonNode response = withRetry("create_inquiry", () -> restClient.post()
+                .uri("/inquiries")
+                .header(IDEMPOTENCY_KEY, idempotencyKey)
+                .body(body)
+                .retrieve()
+                .body(JsonNode.class));
+        String inquiryId = response != null ? response.path("data").path("id").asText(null) : null;
+        if (inquiryId == null) {
+            throw new IllegalStateException("Persona inquiry response has no id");
+        }
+        return inquiryId;
+    }
+
+    public String createOneTimeLink(String inquiryId) {
+        Map<String, Object> body = Map.of(
+                "data", Map.of(
+                        "type", "inquiry-session",
+                        "attributes", Map.of("inquiry-id", inquiryId)
+                )
+        );
+        JsonNode response = withRetry("one_time_link", () -> restClient.post()
+                .uri("/inquiries/{id}/generate-one-time-link", inquiryId)
+                .body(body)
+                .retrieve()
+                .body(JsonNode.class));
+        String link = response != null ? response.path("meta").path("one-time-link").asText(null) : null;
+        if (link == null) {
+            throw new IllegalStateException("One-time link not found in Persona inquiry session response");
+        }
+        return link;
+    }
+
+    public String getInquiryStatus(String inquiryId) {
+        JsonNode response = withRetry("inquiry_status", () -> restClient.get()
+                .uri("/inquiries/{id}", inquiryId)
+                .retrieve()
+                .body(JsonNode.class));
+        return response != null ? response.path("data").path("attributes").path("status").asText(null) : null;
+    }
+
+    private <T> T withRetry(String operation, Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RestClientException ex) {
+                if (attempt >= maxAttempts || !isRetryable(ex)) {
+                    throw ex;
+                }
+                long delay = backoff.toMillis() << (attempt - 1);
+                log.warn("Persona {} attempt {} failed ({}), retrying in {} ms", operation, attempt, ex.getMessage(), delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private static boolean isRetryable(RestClientException ex) {
+        return ex instanceof ResourceAccessException
+                || ex instanceof HttpServerErrorException
+                || ex instanceof HttpClientErrorException.TooManyRequests;
+    }
+}
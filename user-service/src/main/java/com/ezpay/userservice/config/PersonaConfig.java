@@ -1,9 +1,17 @@
 package com.ezpay.userservice.config;
 
+import com.ezpay.userservice.clients.PersonaClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class PersonaConfig {
@@ -20,10 +28,41 @@ public class PersonaConfig {
     @Value("${persona.webhookSecret}")
     private String webhookSecret;
 
-//    @Bean
-//    public RestTemplate personaRestTemplate() {
-//        return new RestTemplate();
-//    }
+    // One keep-alive HTTP client shared by every KYC worker
+    @Bean
+    public PersonaClient personaClient(@Value("${persona.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+                                       @Value("${persona.client.read-timeout-ms:5000}") long readTimeoutMs,
+                                       @Value("${persona.client.max-attempts:3}") int maxAttempts,
+                                       @Value("${persona.client.backoff-ms:200}") long backoffMs) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        RestClient restClient = RestClient.builder()
+                .requestFactory(requestFactory)
+                .baseUrl(baseUrl)
+                .defaultHeaders(headers -> {
+                    headers.setBearerAuth(apiKey);
+                    headers.setContentType(MediaType.APPLICATION_JSON);
+                    headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+                })
+                .build();
+        return new PersonaClient(restClient, templateId, maxAttempts, Duration.ofMillis(backoffMs));
+    }
+
+    // Runs the Persona calls for started verifications; a full queue is reported back as busy
+    @Bean
+    public ThreadPoolTaskExecutor kycTaskExecutor(@Value("${persona.workers.pool-size:8}") int poolSize,
+                                                  @Value("${persona.workers.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("kyc-worker-");
+        executor.initialize();
+        return executor;
+    }
 
     public String getApiKey() { return apiKey; }
     public String getBaseUrl() { return baseUrl; }
@@ -37,4 +76,3 @@ public class PersonaConfig {
         this.webhookSecret = webhookSecret;
     }
 }
-
@@ -1,6 +1,9 @@
 package com.ezpay.userservice.config;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
@@ -10,4 +13,23 @@ public class WebClientConfig {
     public WebClient webClient(WebClient.Builder builder) {
         return builder.build();
     }
-}
\ No newline at end of file
+
+    // Resolves service ids (http://auth-service, http://notification-service) through discovery
+    @Bean
+    public WebClient serviceWebClient(WebClient.Builder builder, LoadBalancedExchangeFilterFunction loadBalancer) {
+        return builder.filter(loadBalancer).build();
+    }
+
+    // Blocking JPA work on the login path, kept off the WebClient event loop
+    @Bean
+    public ThreadPoolTaskExecutor loginTaskExecutor(@Value("${login.pipeline.db-pool-size:32}") int poolSize,
+                                                    @Value("${login.pipeline.db-queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("login-db-");
+        executor.initialize();
+        return executor;
+    }
+}
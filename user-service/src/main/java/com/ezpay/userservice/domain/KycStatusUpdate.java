@@ -0,0 +1,68 @@
+package com.ezpay.userservice.domain;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Verification status from a Persona webhook, stored before the webhook is acknowledged and
+ * applied to the user later by the KYC status updater.
+ */
+@Entity
+@Table(name = "kyc_status_updates")
+public class KycStatusUpdate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "kyc_status_updates_seq")
+    @SequenceGenerator(name = "kyc_status_updates_seq", sequenceName = "kyc_status_updates_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String inquiryId;
+
+    @Column(nullable = false, length = 64)
+    private String status;
+
+    @Column(nullable = false)
+    private Instant receivedAt;
+
+    public KycStatusUpdate() {
+    }
+
+    public KycStatusUpdate(String inquiryId, String status) {
+        this.inquiryId = inquiryId;
+        this.status = status;
+        this.receivedAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getInquiryId() {
+        return inquiryId;
+    }
+
+    public void setInquiryId(String inquiryId) {
+        this.inquiryId = inquiryId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Instant getReceivedAt() {
+        return receivedAt;
+    }
+
+    public void setReceivedAt(Instant receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+}
@@ -0,0 +1,27 @@
+package com.ezpay.userservice.dto;
+
+import com.ezpay.userservice.domain.User;
+
+/**
+ * Read-only user view held by {@code UserCache}. It carries no credentials, so nothing secret is
+ * written to the shared cache, and it is never saved back: writers load the entity first.
+ */
+public record CachedUser(
+        Long id,
+        String firstName,
+        String lastName,
+        String email,
+        String mobileNumber,
+        String userName,
+        boolean temporaryUser,
+        boolean verified,
+        String verificationStatus,
+        String personaInquiryId,
+        String lastActivity
+) {
+    public static CachedUser from(User user) {
+        return new CachedUser(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail(),
+                user.getMobileNumber(), user.getUserName(), user.isTemporaryUser(), user.isVerified(),
+                user.getVerificationStatus(), user.getPersonaInquiryId(), user.getLastActivity());
+    }
+}
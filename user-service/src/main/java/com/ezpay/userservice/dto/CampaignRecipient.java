@@ -0,0 +1,11 @@
+package com.ezpay.userservice.dto;
+
+/**
+ * Contact details for bulk notifications, streamed to notification-service in id order.
+ */
+public record CampaignRecipient(
+        Long id,
+        String email,
+        String firstName,
+        String userName
+) {}
@@ -0,0 +1,12 @@
+package com.ezpay.userservice.dto;
+
+/**
+ * Compact user view returned by batch lookups to other services.
+ */
+public record UserSummary(
+        Long id,
+        String userName,
+        String mobileNumber,
+        boolean temporaryUser,
+        String verificationStatus
+) {}
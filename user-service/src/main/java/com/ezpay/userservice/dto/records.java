@@ -25,5 +25,9 @@ public class records {
             long expiresIn
     ) {}
 
+    public record BatchLookupRequest(java.util.List<Long> ids, java.util.List<String> mobileNumbers) {}
+
+    public record PinValidationRequest(String userId, String pin) {}
+
 
 }
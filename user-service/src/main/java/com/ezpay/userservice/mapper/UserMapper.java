@@ -2,9 +2,14 @@ package com.ezpay.userservice.mapper;
 
 import com.ezpay.userservice.domain.User;
 import com.ezpay.userservice.dto.UserDTO;
-import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Component;
 
+/**
+ * Plain field copies between {@link User} and {@link UserDTO}, with no reflection on the request
+ * path. Only properties present on both types are mapped; the password never leaves the entity,
+ * and roles, verification flags and status stay untouched because {@link User} exposes no roles
+ * accessors and the DTO carries no verification state. Add new shared fields to both methods.
+ */
 @Component
 public class UserMapper {
 
@@ -13,7 +18,17 @@ public class UserMapper {
             return null;
         }
         UserDTO userDTO = new UserDTO();
-        BeanUtils.copyProperties(user,userDTO,"password");
+        userDTO.setId(user.getId());
+        userDTO.setFirstName(user.getFirstName());
+        userDTO.setLastName(user.getLastName());
+        userDTO.setEmail(user.getEmail());
+        userDTO.setMobileNumber(user.getMobileNumber());
+        userDTO.setUserName(user.getUserName());
+        userDTO.setTemporaryUser(user.isTemporaryUser());
+        userDTO.setLastActivity(user.getLastActivity());
+        userDTO.setGender(user.getGender());
+        userDTO.setDateOfBirth(user.getDateOfBirth());
+        userDTO.setPersonaInquiryId(user.getPersonaInquiryId());
         return userDTO;
     }
 
@@ -22,7 +37,55 @@ public class UserMapper {
             return null;
         }
         User user = new User();
-        BeanUtils.copyProperties(userDTO,user);
+        user.setId(userDTO.getId());
+        user.setFirstName(userDTO.getFirstName());
+        user.setLastName(userDTO.getLastName());
+        user.setEmail(userDTO.getEmail());
+        user.setMobileNumber(userDTO.getMobileNumber());
+        user.setPassword(userDTO.getPassword());
+        user.setUserName(userDTO.getUserName());
+        user.setTemporaryUser(userDTO.isTemporaryUser());
+        user.setLastActivity(userDTO.getLastActivity());
+        user.setGender(userDTO.getGender());
+        user.setDateOfBirth(userDTO.getDateOfBirth());
+        user.setPersonaInquiryId(userDTO.getPersonaInquiryId());
         return user;
     }
+
+    /**
+     * Copies the DTO's profile fields onto a user loaded from the repository, skipping fields the
+     * DTO leaves null so a partial update keeps the stored values. {@code temporaryUser} is a
+     * primitive on the DTO and is always copied. The id, password, roles and verification state
+     * are left as stored.
+     */
+    public void updateDomain(UserDTO userDTO, User user) {
+        if (userDTO.getFirstName() != null) {
+            user.setFirstName(userDTO.getFirstName());
+        }
+        if (userDTO.getLastName() != null) {
+            user.setLastName(userDTO.getLastName());
+        }
+        if (userDTO.getEmail() != null) {
+            user.setEmail(userDTO.getEmail());
+        }
+        if (userDTO.getMobileNumber() != null) {
+            user.setMobileNumber(userDTO.getMobileNumber());
+        }
+        if (userDTO.getUserName() != null) {
+            user.setUserName(userDTO.getUserName());
+        }
+        user.setTemporaryUser(userDTO.isTemporaryUser());
+        if (userDTO.getLastActivity() != null) {
+            user.setLastActivity(userDTO.getLastActivity());
+        }
+        if (userDTO.getGender() != null) {
+            user.setGender(userDTO.getGender());
+        }
+        if (userDTO.getDateOfBirth() != null) {
+            user.setDateOfBirth(userDTO.getDateOfBirth());
+        }
+        if (userDTO.getPersonaInquiryId() != null) {
+            user.setPersonaInquiryId(userDTO.getPersonaInquiryId());
+        }
+    }
 }
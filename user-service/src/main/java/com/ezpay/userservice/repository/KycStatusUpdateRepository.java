@@ -0,0 +1,31 @@
+package com.ezpay.userservice.repository;
+
+import com.ezpay.userservice.domain.KycStatusUpdate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface KycStatusUpdateRepository extends JpaRepository<KycStatusUpdate, Long> {
+
+    /**
+     * Transaction-scoped advisory lock, so only one instance applies updates at a time and an
+     * older batch is never written after a newer one.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(@Param("key") long key);
+
+    @Query(value = """
+    SELECT * FROM kyc_status_updates
+    ORDER BY received_at, id
+    LIMIT :limit
+    """, nativeQuery = true)
+    List<KycStatusUpdate> findOldest(@Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM KycStatusUpdate u WHERE u.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,44 @@
+package com.ezpay.userservice.repository;
+
+import com.ezpay.userservice.domain.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest unsent rows that no relay has claimed, or whose claim has run out. Rows
+     * locked by another relay instance are skipped rather than waited on, so several instances can
+     * drain the outbox in parallel.
+     */
+    @Query(value = """
+    SELECT * FROM outbox_events
+    WHERE sent_at IS NULL AND (claimed_until IS NULL OR claimed_until < :now)
+    ORDER BY id
+    LIMIT :limit
+    FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<OutboxEvent> lockPendingBatch(@Param("limit") int limit, @Param("now") Instant now);
+
+    /**
+     * Claims the rows until the given time, or releases them with {@code null}.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedUntil = :until WHERE e.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("until") Instant until);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+    int deleteSent(@Param("ids") Collection<Long> ids);
+
+    long countBySentAtIsNull();
+
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.sentAt IS NULL")
+    Instant findOldestPendingCreatedAt();
+}
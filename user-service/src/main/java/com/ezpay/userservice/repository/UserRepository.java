@@ -1,12 +1,17 @@
 package com.ezpay.userservice.repository;
 
 import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.dto.CampaignRecipient;
+import com.ezpay.userservice.dto.UserSummary;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -42,14 +47,82 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Modifying
     @Transactional
     @Query(value = """
-    INSERT INTO users (mobile_number, user_name, temporary_user, is_verified)
-    VALUES (:phoneNumber, :userName, :temporaryUser, false)
+    INSERT INTO users (id, mobile_number, user_name, temporary_user, is_verified)
+    VALUES (nextval('users_seq'), :phoneNumber, :userName, :temporaryUser, false)
     ON CONFLICT (mobile_number) DO NOTHING
     """, nativeQuery = true)
     int insertIfNotExists(@Param("phoneNumber") String phoneNumber,
                           @Param("userName") String userName,
                           @Param("temporaryUser") boolean temporaryUser);
 
+    /**
+     * Creates the temporary user if the mobile number is new and returns the stored row either way,
+     * in one round trip. The no-op update makes Postgres return the existing row on conflict.
+     * The id is drawn from users_seq; each nextval owns its own pooled block, so it cannot collide
+     * with ids Hibernate hands out.
+     */
+    @Transactional
+    @Query(value = """
+    INSERT INTO users (id, mobile_number, user_name, temporary_user, is_verified)
+    VALUES (nextval('users_seq'), :phoneNumber, :userName, true, false)
+    ON CONFLICT (mobile_number) DO UPDATE SET mobile_number = EXCLUDED.mobile_number
+    RETURNING *
+    """, nativeQuery = true)
+    User upsertTemporaryUser(@Param("phoneNumber") String phoneNumber,
+                             @Param("userName") String userName);
+
+    @Query("""
+    SELECT new com.ezpay.userservice.dto.UserSummary(u.id, u.userName, u.mobileNumber, u.temporaryUser, u.verificationStatus)
+    FROM User u
+    WHERE u.id IN :ids
+""")
+    List<UserSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+    SELECT new com.ezpay.userservice.dto.UserSummary(u.id, u.userName, u.mobileNumber, u.temporaryUser, u.verificationStatus)
+    FROM User u
+    WHERE u.mobileNumber IN :mobileNumbers
+""")
+    List<UserSummary> findSummariesByMobileNumberIn(@Param("mobileNumbers") Collection<String> mobileNumbers);
+
+    /**
+     * Keyset page over users with an email address: rows after {@code afterId} in id order, so
+     * every page is an index range scan on the primary key however deep the cursor is.
+     */
+    @Query("""
+    SELECT new com.ezpay.userservice.dto.CampaignRecipient(u.id, u.email, u.firstName, u.userName)
+    FROM User u
+    WHERE u.id > :afterId AND u.email IS NOT NULL AND u.temporaryUser = false
+    ORDER BY u.id
+""")
+    List<CampaignRecipient> findRecipientsAfter(@Param("afterId") long afterId, Pageable page);
+
     User findByPersonaInquiryId(String inquiryId);
+    List<User> findByPersonaInquiryIdIn(Collection<String> inquiryIds);
+
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE User u
+    SET u.verificationStatus = :status
+    WHERE u.personaInquiryId IN :inquiryIds
+""")
+    int updateVerificationStatusByInquiryIds(
+            @Param("status") String status,
+            @Param("inquiryIds") Collection<String> inquiryIds
+    );
     Optional<User> findByUserName(String userName);
+
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE User u
+    SET u.personaInquiryId = :inquiryId, u.verificationStatus = :status
+    WHERE u.id = :id
+""")
+    int updateInquiry(
+            @Param("id") Long id,
+            @Param("inquiryId") String inquiryId,
+            @Param("status") String status
+    );
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.ezpay.userservice.resource;
+
+import com.ezpay.userservice.dto.CampaignRecipient;
+import com.ezpay.userservice.dto.records;
+import com.ezpay.userservice.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoints for other services only. The gateway routes /api/user/** and nothing under /internal,
+ * so these are reachable on the service network but never from outside.
+ */
+@RestController
+@RequestMapping("/internal/user")
+public class InternalUserResource {
+
+    private static final Logger log = LoggerFactory.getLogger(InternalUserResource.class);
+    @Autowired
+    private UserService userService;
+
+    // Bulk lookup: one round trip instead of one call per user
+    @PostMapping("/batch")
+    public ResponseEntity<?> batchLookup(@RequestBody records.BatchLookupRequest request) {
+        try {
+            return ResponseEntity.ok(userService.findSummaries(request.ids(), request.mobileNumbers()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Keyset-paged recipients for bulk notifications; pass the last id of a page as the next cursor
+    @GetMapping("/recipients")
+    public ResponseEntity<?> recipients(@RequestParam(defaultValue = "0") long after,
+                                        @RequestParam(defaultValue = "500") int limit) {
+        try {
+            List<CampaignRecipient> page = userService.findRecipients(after, limit);
+            Long nextCursor = page.size() < limit ? null : page.get(page.size() - 1).id();
+            Map<String, Object> body = new HashMap<>();
+            body.put("items", page);
+            body.put("nextCursor", nextCursor);
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/validate-pin")
+    public ResponseEntity<Boolean> validatePin(@RequestBody records.PinValidationRequest request) {
+        log.info("Inside validatePin()");
+        if (request.userId() == null || request.pin() == null) {
+            return ResponseEntity.badRequest().body(false);
+        }
+        return ResponseEntity.ok(userService.validatePin(request.userId(), request.pin()));
+    }
+}
@@ -1,6 +1,7 @@
 package com.ezpay.userservice.resource;
 
 import com.ezpay.userservice.service.PersonaService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,25 +17,43 @@ public class PersonaController {
         this.personaService = personaService;
     }
 
-    // Start verification for a user
+    // Start verification for a user; the Persona calls run in the background
     @PostMapping("/verification")
-    public Map<String, Object> startVerification(@RequestBody Map<String,String> userDetails) {
+    public ResponseEntity<Map<String, Object>> startVerification(@RequestBody Map<String,String> userDetails) {
        String userName = userDetails.get("userName");
-        return personaService.startVerification(userName);
+        try {
+            return ResponseEntity.accepted().body(personaService.startVerification(userName));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Progress of a started verification: status, inquiryId and redirectUrl once available
+    @GetMapping("/verification/{jobId}")
+    public ResponseEntity<Map<String, Object>> getVerificationJob(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(personaService.getJob(jobId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
     }
 
-    // Webhook callback from Persona
+    // Webhook callback from Persona; the signature is checked against the raw body
     @PostMapping("/webhook")
-    public ResponseEntity<String> handleWebhook(@RequestBody Map<String, Object> payload,@RequestHeader("Persona-Signature") String signature) {
+    public ResponseEntity<String> handleWebhook(@RequestBody byte[] body, @RequestHeader("Persona-Signature") String signature) {
 
-        if (!personaService.verifySignature(payload, signature)) {
+        if (!personaService.verifySignature(body, signature)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid signature");
         }
-        Map<String, Object> data = (Map<String, Object>) payload.get("data");
-        String inquiryId = (String) data.get("id");
-        Map<String, Object> attributes = (Map<String, Object>) data.get("attributes");
-        String status = (String) attributes.get("status");
-        personaService.updateVerificationStatus(inquiryId, status);
+        try {
+            if (!personaService.acceptWebhook(body)) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Busy");
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         return ResponseEntity.ok("ok");
     }
 
@@ -44,4 +63,3 @@ public class PersonaController {
         return personaService.getInquiryStatus(inquiryId);
     }
 }
-
@@ -1,22 +1,22 @@
 package com.ezpay.userservice.resource;
 
 import com.ezpay.userservice.constants.UserServiceConstants;
-import com.ezpay.userservice.domain.User;
 import com.ezpay.userservice.dto.UserDTO;
 import com.ezpay.userservice.dto.records;
+import com.ezpay.userservice.service.LoginAdmissionController;
+import com.ezpay.userservice.service.LoginOrchestrator;
 import com.ezpay.userservice.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/user")
@@ -27,7 +27,10 @@ public class UserResource {
     private UserService userService;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private LoginOrchestrator loginOrchestrator;
+
+    @Autowired
+    private LoginAdmissionController loginAdmissionController;
 
     @PostMapping("/register")
     public ResponseEntity<?> userRegister(@RequestBody UserDTO userDTO) {
@@ -44,56 +47,23 @@ public class UserResource {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody records.LoginRequest request) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody records.LoginRequest request) {
         log.info("Inside login()");
-        try {
-            String otpUrl = "http://notification-service/api/otp/verify";
-            Map<String, String> otpRequest = Map.of(
-                    "mobileNumber", request.mobile(),
-                    "otp", request.otp()
-            );
-
-            ResponseEntity<String> otpResponse = restTemplate.postForEntity(otpUrl, otpRequest, String.class);
-
-            if (!otpResponse.getStatusCode().is2xxSuccessful()) {
-                log.error("[user-service] OTP verification failed. Status: {}", otpResponse.getStatusCode());
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body("OTP Verification Failed: " + otpResponse.getBody());
-            }
-
-            log.info("[user-service] OTP verified. Proceeding to login...");
-            // Step 2: check User Exist : if Not Exist Then Create Temp User
-
-            User user = userService.login(request);
-            if(user==null){
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found ");
+        return loginAdmissionController.acquire().<ResponseEntity<?>>thenCompose(permit -> {
+            if (permit.isEmpty()) {
+                long retryAfter = loginAdmissionController.retryAfterSeconds();
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                        .body(Map.of("error", "Too many login attempts in progress. Retry after " + retryAfter + " seconds.")));
             }
-
-            // Step 3: Login if OTP succeeds
-            String loginUrl = "http://auth-service/api/auth/access";
-            Map<String, String> loginRequest = Map.of(
-                    "mobileNumber", request.mobile(),
-                    "deviceId", request.deviceId(),
-                    "userName", user.getUserName()
-            );
-
-            ResponseEntity<String> loginResponse = restTemplate.postForEntity(loginUrl, loginRequest, String.class);
-
-            if (!loginResponse.getStatusCode().is2xxSuccessful()) {
-                log.error("[user-service] Login failed. Status: {}", loginResponse.getStatusCode());
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body("Login Failed: " + loginResponse.getBody());
-            }
-
-            return ResponseEntity.ok(loginResponse.getBody());
-
-        } catch (HttpClientErrorException | HttpServerErrorException ex) {
-            log.error("[user-service] HTTP error: {}", ex.getResponseBodyAsString());
-            return ResponseEntity.status(ex.getStatusCode()).body(ex.getResponseBodyAsString());
-        } catch (Exception ex) {
-            log.error("[user-service] General error: {}", ex.getMessage(), ex);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal Error: " + ex.getMessage());
-        }
+            return loginOrchestrator.login(request).whenComplete((response, ex) -> {
+                if (ex != null || response.getStatusCode().is5xxServerError()) {
+                    permit.get().dropped();
+                } else {
+                    permit.get().success();
+                }
+            });
+        });
     }
 
     @PutMapping
@@ -0,0 +1,123 @@
+package com.ezpay.userservice.service;
+
+import com.ezpay.userservice.domain.KycStatusUpdate;
+import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.repository.KycStatusUpdateRepository;
+import com.ezpay.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Stores verification results from Persona webhooks and writes them to users in batches. A webhook
+ * is acknowledged only once its row is in {@code kyc_status_updates}; if the insert fails it is
+ * refused, so Persona redelivers it later.
+ *
+ * <p>Each pass takes the oldest rows under an advisory lock, so batches are applied one at a time
+ * in arrival order. Updates for the same inquiry collapse to the latest status, each status
+ * becomes one bulk UPDATE, and the rows are deleted in the same transaction. A failed batch rolls
+ * back and stays first in line for the next pass, ahead of anything newer.
+ */
+@Component
+public class KycStatusUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(KycStatusUpdater.class);
+    // Advisory lock key, "KYC" in ASCII
+    private static final long LOCK_KEY = 0x4B5943L;
+
+    private final KycStatusUpdateRepository updateRepository;
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong backlog = new AtomicLong();
+    private final int batchSize;
+    private final int maxBatchesPerPoll;
+
+    public KycStatusUpdater(KycStatusUpdateRepository updateRepository,
+                            UserRepository userRepository,
+                            UserCache userCache,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${persona.webhook.batch-size:500}") int batchSize,
+                            @Value("${persona.webhook.max-batches-per-poll:20}") int maxBatchesPerPoll) {
+        this.updateRepository = updateRepository;
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxBatchesPerPoll = maxBatchesPerPoll;
+        meterRegistry.gauge("user.kyc.webhook.queue", backlog);
+    }
+
+    /**
+     * Stores the update. Returns false if it could not be stored and the webhook must be refused.
+     */
+    public boolean enqueue(String inquiryId, String status) {
+        try {
+            updateRepository.save(new KycStatusUpdate(inquiryId, status.toUpperCase()));
+            return true;
+        } catch (DataAccessException ex) {
+            meterRegistry.counter("user.kyc.webhook.rejected").increment();
+            log.error("Failed to store KYC status update for inquiry {}: {}", inquiryId, ex.getMessage());
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${persona.webhook.flush-interval-ms:200}")
+    public void flush() {
+        try {
+            for (int i = 0; i < maxBatchesPerPoll; i++) {
+                Integer applied = transactionTemplate.execute(status -> applyBatch());
+                if (applied == null || applied < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException ex) {
+            // The batch rolled back; retry on the next tick rather than spinning against a failing database
+            meterRegistry.counter("user.kyc.webhook.failed").increment();
+            log.error("Failed to apply KYC status updates, retrying on the next pass", ex);
+        } finally {
+            try {
+                backlog.set(updateRepository.count());
+            } catch (RuntimeException ex) {
+                log.debug("Could not refresh KYC backlog gauge: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private int applyBatch() {
+        if (!updateRepository.tryLock(LOCK_KEY)) {
+            return 0; // another instance is applying
+        }
+        List<KycStatusUpdate> updates = updateRepository.findOldest(batchSize);
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        Map<String, String> latest = new LinkedHashMap<>();
+        updates.forEach(u -> latest.put(u.getInquiryId(), u.getStatus()));
+        Map<String, List<String>> byStatus = latest.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        byStatus.forEach((status, inquiryIds) -> userRepository.updateVerificationStatusByInquiryIds(status, inquiryIds));
+        updateRepository.deleteByIds(updates.stream().map(KycStatusUpdate::getId).toList());
+        // Evictions wait for the commit, so no reader caches the old status again
+        for (User user : userRepository.findByPersonaInquiryIdIn(latest.keySet())) {
+            userCache.evict(user);
+        }
+        meterRegistry.summary("user.kyc.webhook.batch").record(latest.size());
+        return updates.size();
+    }
+}
@@ -0,0 +1,200 @@
+package com.ezpay.userservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for the login flow. The number of concurrent logins is capped by a limit that
+ * follows downstream latency (gradient style): while recent round trips stay close to the long-run
+ * baseline the limit grows, and when they stretch it shrinks. Callers over the limit wait in a
+ * bounded queue for a short time; beyond that they are turned away with a retry-after hint. A
+ * queued caller holds a future rather than a thread, so waiting does not tie up the servlet pool.
+ */
+@Component
+public class LoginAdmissionController {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginAdmissionController.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<CompletableFuture<Optional<Permit>>> waiters = new ArrayDeque<>();
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoTime;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitMillis;
+    private final double rttTolerance;
+    private final double smoothing;
+
+    private volatile double limit;
+    private volatile double longRttNanos;
+    private int inFlight;
+
+    @Autowired
+    public LoginAdmissionController(MeterRegistry meterRegistry,
+                                    @Value("${login.admission.initial-limit:20}") int initialLimit,
+                                    @Value("${login.admission.min-limit:5}") int minLimit,
+                                    @Value("${login.admission.max-limit:200}") int maxLimit,
+                                    @Value("${login.admission.max-queue:100}") int maxQueue,
+                                    @Value("${login.admission.max-wait-ms:250}") long maxWaitMillis,
+                                    @Value("${login.admission.rtt-tolerance:1.5}") double rttTolerance,
+                                    @Value("${login.admission.smoothing:0.2}") double smoothing) {
+        this(meterRegistry, initialLimit, minLimit, maxLimit, maxQueue, maxWaitMillis, rttTolerance, smoothing, System::nanoTime);
+    }
+
+    LoginAdmissionController(MeterRegistry meterRegistry, int initialLimit, int minLimit, int maxLimit, int maxQueue,
+                             long maxWaitMillis, double rttTolerance, double smoothing, LongSupplier nanoTime) {
+        this.meterRegistry = meterRegistry;
+        this.nanoTime = nanoTime;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.maxWaitMillis = maxWaitMillis;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        meterRegistry.gauge("user.login.admission.limit", this, c -> c.limit);
+        meterRegistry.gauge("user.login.admission.inflight", this, c -> c.inFlight);
+        meterRegistry.gauge("user.login.admission.queued", this, c -> c.waiters.size());
+    }
+
+    /**
+     * Completes with a permit, after a short wait in the queue if the limit is reached, or empty
+     * when the caller should back off. Every permit must be completed exactly once.
+     */
+    public CompletableFuture<Optional<Permit>> acquire() {
+        CompletableFuture<Optional<Permit>> waiter = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(Optional.of(new Permit(inFlight)));
+            }
+            if (waiters.size() >= maxQueue) {
+                reject("queue_full");
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            waiters.add(waiter);
+        } finally {
+            lock.unlock();
+        }
+        CompletableFuture.delayedExecutor(maxWaitMillis, TimeUnit.MILLISECONDS).execute(() -> expire(waiter));
+        return waiter;
+    }
+
+    private void expire(CompletableFuture<Optional<Permit>> waiter) {
+        lock.lock();
+        try {
+            // Already handed a permit by a release
+            if (!waiters.remove(waiter)) {
+                return;
+            }
+            reject("wait_timeout");
+        } finally {
+            lock.unlock();
+        }
+        waiter.complete(Optional.empty());
+    }
+
+    /**
+     * Seconds a rejected caller should wait, based on how long the current backlog takes to drain.
+     */
+    public long retryAfterSeconds() {
+        double rttSeconds = longRttNanos > 0 ? longRttNanos / 1_000_000_000d : 1d;
+        double drain = (waiters.size() + inFlight) / Math.max(1d, limit) * rttSeconds;
+        return Math.max(1, (long) Math.ceil(drain));
+    }
+
+    private void reject(String reason) {
+        meterRegistry.counter("user.login.admission.rejected", "reason", reason).increment();
+        log.warn("Login rejected by admission control: reason={}, limit={}, inFlight={}, queued={}",
+                reason, (int) limit, inFlight, waiters.size());
+    }
+
+    private void complete(long rttNanos, int inFlightAtStart, boolean dropped) {
+        List<CompletableFuture<Optional<Permit>>> admitted = new ArrayList<>();
+        List<Permit> permits = new ArrayList<>();
+        lock.lock();
+        try {
+            inFlight--;
+            if (dropped) {
+                // Downstream timed out or failed under load: back off multiplicatively
+                limit = Math.max(minLimit, limit * 0.9);
+            } else {
+                update(rttNanos, inFlightAtStart);
+            }
+            while (!waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                admitted.add(waiters.poll());
+                permits.add(new Permit(inFlight));
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Outside the lock: completing runs the waiting login on this thread
+        for (int i = 0; i < admitted.size(); i++) {
+            admitted.get(i).complete(Optional.of(permits.get(i)));
+        }
+    }
+
+    private void update(long rttNanos, int inFlightAtStart) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            return;
+        }
+        // Slow-moving baseline; let it recover quickly after latency has come back down
+        longRttNanos = longRttNanos * 0.95 + rttNanos * 0.05;
+        if (longRttNanos > rttNanos * 2) {
+            longRttNanos = longRttNanos * 0.9;
+        }
+        // Don't grow the limit when it isn't what is holding traffic back
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / rttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + newLimit * smoothing));
+    }
+
+    /**
+     * A granted login slot. Complete it with {@link #success()} or {@link #dropped()}; both are
+     * safe to call from any thread and only the first call counts.
+     */
+    public final class Permit {
+        private final long startNanos = nanoTime.getAsLong();
+        private final int inFlightAtStart;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void success() {
+            if (completed.compareAndSet(false, true)) {
+                complete(nanoTime.getAsLong() - startNanos, inFlightAtStart, false);
+            }
+        }
+
+        public void dropped() {
+            if (completed.compareAndSet(false, true)) {
+                complete(nanoTime.getAsLong() - startNanos, inFlightAtStart, true);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ezpay.userservice.service;
+
+import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.dto.CachedUser;
+import com.ezpay.userservice.dto.records;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking OTP login. The user lookup runs alongside OTP verification; the temporary user is
+ * only created once the OTP is approved, and the token bundle is fetched last. Every stage has its
+ * own timeout and retry budget and records its latency under {@code user.login.stage}.
+ */
+@Service
+public class LoginOrchestrator {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginOrchestrator.class);
+    private static final String OTP_VERIFY_URL = "http://notification-service/api/otp/verify";
+    private static final String AUTH_ACCESS_URL = "http://auth-service/api/auth/access";
+
+    private final WebClient webClient;
+    private final UserService userService;
+    private final ThreadPoolTaskExecutor executor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${login.pipeline.otp.timeout-ms:2000}")
+    private long otpTimeoutMs;
+
+    @Value("${login.pipeline.otp.retries:1}")
+    private int otpRetries;
+
+    @Value("${login.pipeline.user.timeout-ms:1000}")
+    private long userTimeoutMs;
+
+    @Value("${login.pipeline.auth.timeout-ms:2000}")
+    private long authTimeoutMs;
+
+    @Value("${login.pipeline.auth.retries:1}")
+    private int authRetries;
+
+    @Value("${login.pipeline.retry-backoff-ms:100}")
+    private long retryBackoffMs;
+
+    public LoginOrchestrator(@Qualifier("serviceWebClient") WebClient webClient,
+                             UserService userService,
+                             @Qualifier("loginTaskExecutor") ThreadPoolTaskExecutor executor,
+                             MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.userService = userService;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public CompletableFuture<ResponseEntity<?>> login(records.LoginRequest request) {
+        CompletableFuture<Void> otp = verifyOtp(request);
+        CompletableFuture<Optional<CachedUser>> existing = timed("user_lookup",
+                supplyOnExecutor(() -> userService.findByMobileNumber(request.mobile()), userTimeoutMs));
+
+        return otp.thenCombine(existing, (ignored, user) -> user)
+                .thenCompose(user -> user.isPresent()
+                        ? CompletableFuture.completedFuture(user.get().userName())
+                        : timed("user_create", supplyOnExecutor(() -> createUser(request), userTimeoutMs)))
+                .thenCompose(userName -> issueAccess(request, userName))
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(this::toResponse);
+    }
+
+    // A user that cannot be created or read back is answered with 404, as the synchronous login did
+    private String createUser(records.LoginRequest request) {
+        User user;
+        try {
+            user = userService.login(request);
+        } catch (RuntimeException ex) {
+            log.error("[user-service] Could not create or read user for login: {}", ex.getMessage(), ex);
+            throw new UserNotFoundException();
+        }
+        if (user == null) {
+            throw new UserNotFoundException();
+        }
+        return user.getUserName();
+    }
+
+    private CompletableFuture<Void> verifyOtp(records.LoginRequest request) {
+        Map<String, String> body = Map.of("mobileNumber", request.mobile(), "otp", request.otp());
+        Mono<Void> call = webClient.post()
+                .uri(OTP_VERIFY_URL)
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+        // Verifying consumes the code, so only retry when the request never reached the service
+        return timed("otp_verify", withBudget(call, otpTimeoutMs, otpRetries, LoginOrchestrator::isConnectFailure).toFuture());
+    }
+
+    private CompletableFuture<String> issueAccess(records.LoginRequest request, String userName) {
+        Map<String, String> body = Map.of(
+                "mobileNumber", request.mobile(),
+                "deviceId", request.deviceId(),
+                "userName", userName
+        );
+        Mono<String> call = webClient.post()
+                .uri(AUTH_ACCESS_URL)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(String.class);
+        // Each call issues a new token pair and replaces the device's session, so as with the OTP
+        // stage only a request that never reached auth-service is retried
+        return timed("auth_access", withBudget(call, authTimeoutMs, authRetries, LoginOrchestrator::isConnectFailure).toFuture());
+    }
+
+    /**
+     * Per-attempt timeout, retrying the failures {@code retryable} accepts.
+     */
+    private <T> Mono<T> withBudget(Mono<T> call, long timeoutMs, int retries, Predicate<Throwable> retryable) {
+        return call.timeout(Duration.ofMillis(timeoutMs))
+                .retryWhen(Retry.backoff(retries, Duration.ofMillis(retryBackoffMs))
+                        .filter(retryable)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    // The connection was never established, so the server cannot have acted on the request
+    private static boolean isConnectFailure(Throwable ex) {
+        return ex instanceof WebClientRequestException && ex.getCause() instanceof ConnectException;
+    }
+
+    private <T> CompletableFuture<T> supplyOnExecutor(Supplier<T> supplier, long timeoutMs) {
+        return CompletableFuture.supplyAsync(supplier, executor)
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private <T> CompletableFuture<T> timed(String stage, CompletableFuture<T> future) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return future.whenComplete((result, ex) -> sample.stop(
+                meterRegistry.timer("user.login.stage", "stage", stage, "outcome", ex == null ? "success" : "failure")));
+    }
+
+    private ResponseEntity<?> toResponse(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof UserNotFoundException) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found ");
+        }
+        if (cause instanceof WebClientResponseException wcre) {
+            log.error("[user-service] HTTP error: {}", wcre.getResponseBodyAsString());
+            return ResponseEntity.status(wcre.getStatusCode()).body(wcre.getResponseBodyAsString());
+        }
+        if (cause instanceof TimeoutException || cause instanceof WebClientRequestException) {
+            log.error("[user-service] Downstream unavailable: {}", cause.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Service unavailable: " + cause.getMessage());
+        }
+        log.error("[user-service] General error: {}", cause.getMessage(), cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal Error: " + cause.getMessage());
+    }
+
+    private static class UserNotFoundException extends RuntimeException {
+        UserNotFoundException() {
+            super("User not found", null, false, false);
+        }
+    }
+}
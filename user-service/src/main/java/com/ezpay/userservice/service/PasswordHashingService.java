@@ -0,0 +1,120 @@
+package com.ezpay.userservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs password and PIN hashing on a dedicated pool sized to the CPU count, so the slow key
+ * derivation never competes with request threads. The queue is bounded and each call has a time
+ * budget; callers get an {@link IllegalStateException} instead of waiting indefinitely.
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final long budgetMillis;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${password.hash.threads:0}") int threads,
+                                  @Value("${password.hash.queue-capacity:64}") int queueCapacity,
+                                  @Value("${password.hash.budget-ms:2000}") long budgetMillis) {
+        this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry;
+        this.budgetMillis = budgetMillis;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        meterRegistry.gauge("user.password.hash.queue", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("user.password.hash.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    public String encode(String raw) {
+        return run("encode", () -> passwordEncoder.encode(raw));
+    }
+
+    /**
+     * Checks the raw value against the stored hash. When it matches and the hash uses an older
+     * algorithm or weaker parameters, a fresh hash is passed to {@code onUpgrade} for the caller to
+     * persist.
+     */
+    public boolean matches(String raw, String encoded, Consumer<String> onUpgrade) {
+        if (raw == null || encoded == null) {
+            return false;
+        }
+        String upgraded = run("matches", () -> {
+            if (!passwordEncoder.matches(raw, encoded)) {
+                return null;
+            }
+            return passwordEncoder.upgradeEncoding(encoded) ? passwordEncoder.encode(raw) : encoded;
+        });
+        if (upgraded == null) {
+            return false;
+        }
+        if (!upgraded.equals(encoded) && onUpgrade != null) {
+            meterRegistry.counter("user.password.hash.upgraded").increment();
+            onUpgrade.accept(upgraded);
+        }
+        return true;
+    }
+
+    private String run(String operation, Callable<String> task) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Future<String> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("user.password.hash.rejected", "operation", operation).increment();
+            log.warn("Password hashing queue full, rejecting {}", operation);
+            throw new IllegalStateException("Server is busy, please try again shortly");
+        }
+        try {
+            return future.get(budgetMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            meterRegistry.counter("user.password.hash.timeout", "operation", operation).increment();
+            log.warn("Password hashing {} exceeded {} ms budget", operation, budgetMillis);
+            throw new IllegalStateException("Server is busy, please try again shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password hashing interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } finally {
+            sample.stop(meterRegistry.timer("user.password.hash.duration", "operation", operation));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
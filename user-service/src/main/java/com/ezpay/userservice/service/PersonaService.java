@@ -1,63 +1,171 @@
 package com.ezpay.userservice.service;
 
+import com.ezpay.userservice.clients.PersonaClient;
 import com.ezpay.userservice.config.PersonaConfig;
 import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.dto.CachedUser;
 import com.ezpay.userservice.dto.UserEvent;
 import com.ezpay.userservice.repository.UserRepository;
 import com.ezpay.userservice.serviceImpl.EmailEventProducer;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.http.*;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * KYC through Persona. Starting a verification only records a job and returns its id; a worker
+ * from {@code kycTaskExecutor} creates the inquiry, the one-time link and the email, updating the
+ * job in Redis as it goes. Webhook results are verified against the raw body and stored by
+ * {@link KycStatusUpdater}, which writes them to users in batches.
+ */
 @Service
 public class PersonaService {
 
-    private final RestTemplate restTemplate;
+    private static final Logger log = LoggerFactory.getLogger(PersonaService.class);
+    private static final String JOB_KEY_PREFIX = "kyc:job:";
+
+    public static final String JOB_QUEUED = "QUEUED";
+    public static final String JOB_RUNNING = "RUNNING";
+    public static final String JOB_COMPLETED = "COMPLETED";
+    public static final String JOB_FAILED = "FAILED";
+
+    private final PersonaClient personaClient;
     private final PersonaConfig personaConfig;
     private final UserRepository userRepository;
     private final EmailEventProducer emailEventProducer;
-
-    public PersonaService(RestTemplate restTemplate, PersonaConfig personaConfig, UserRepository userRepository,EmailEventProducer emailEventProducer) {
-        this.restTemplate = restTemplate;
+    private final UserCache userCache;
+    private final KycStatusUpdater statusUpdater;
+    private final StringRedisTemplate redisTemplate;
+    private final ThreadPoolTaskExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final ObjectReader webhookReader = new ObjectMapper().readerFor(JsonNode.class);
+    private final ThreadLocal<Mac> webhookMac;
+
+    @Value("${persona.jobs.ttl-hours:24}")
+    private long jobTtlHours;
+
+    public PersonaService(PersonaClient personaClient, PersonaConfig personaConfig, UserRepository userRepository,
+                          EmailEventProducer emailEventProducer, UserCache userCache, KycStatusUpdater statusUpdater,
+                          StringRedisTemplate redisTemplate,
+                          @Qualifier("kycTaskExecutor") ThreadPoolTaskExecutor executor,
+                          MeterRegistry meterRegistry) {
+        this.personaClient = personaClient;
         this.personaConfig = personaConfig;
         this.userRepository = userRepository;
         this.emailEventProducer = emailEventProducer;
+        this.userCache = userCache;
+        this.statusUpdater = statusUpdater;
+        this.redisTemplate = redisTemplate;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        SecretKeySpec key = new SecretKeySpec(
+                personaConfig.getWebhookSecret().getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.webhookMac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 unavailable", e);
+            }
+        });
+        meterRegistry.gauge("user.kyc.workers.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size());
     }
 
-    // Start verification
+    /**
+     * Queues a verification and returns at once with {@code jobId} and {@code status}.
+     * Poll {@link #getJob(String)} for the inquiry id and redirect URL.
+     */
     public Map<String, Object> startVerification(String userName) {
-        String inquiryId = null;
-        User user = findUser(userName);
-        // Step 1: Create inquiry
-        if(user.getPersonaInquiryId() !=null && !user.getPersonaInquiryId().isEmpty()){
-            inquiryId = user.getPersonaInquiryId();
-        }else{
-            inquiryId = createInquiry(user);
+        userCache.findByUserName(userName).orElseThrow(() -> new RuntimeException("User not found"));
+        String jobId = UUID.randomUUID().toString();
+        updateJob(jobId, Map.of("status", JOB_QUEUED, "userName", userName));
+        try {
+            executor.execute(() -> runVerification(jobId, userName));
+        } catch (TaskRejectedException e) {
+            redisTemplate.delete(JOB_KEY_PREFIX + jobId);
+            meterRegistry.counter("user.kyc.jobs", "outcome", "rejected").increment();
+            throw new IllegalStateException("KYC workers are busy, please try again shortly");
+        }
+        return Map.of("jobId", jobId, "status", JOB_QUEUED);
+    }
+
+    public Map<String, Object> getJob(String jobId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(JOB_KEY_PREFIX + jobId);
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("KYC job not found");
+        }
+        Map<String, Object> job = new HashMap<>();
+        fields.forEach((k, v) -> job.put((String) k, v));
+        job.put("jobId", jobId);
+        return job;
+    }
+
+    private void runVerification(String jobId, String userName) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            updateJob(jobId, Map.of("status", JOB_RUNNING));
+            User user = findUser(userName);
+            String inquiryId = user.getPersonaInquiryId() != null && !user.getPersonaInquiryId().isEmpty()
+                    ? user.getPersonaInquiryId()
+                    : personaClient.createInquiry(user);
+            saveInquiryToUser(user, inquiryId);
+            updateJob(jobId, Map.of("inquiryId", inquiryId));
+
+            String redirectUrl = personaClient.createOneTimeLink(inquiryId);
+            sendVerificationEmail(user, redirectUrl);
+            updateJob(jobId, Map.of("status", JOB_COMPLETED, "redirectUrl", redirectUrl));
+            outcome = "success";
+        } catch (RuntimeException e) {
+            log.error("KYC job {} for {} failed: {}", jobId, userName, e.getMessage(), e);
+            updateJob(jobId, Map.of("status", JOB_FAILED, "error", String.valueOf(e.getMessage())));
+        } finally {
+            sample.stop(meterRegistry.timer("user.kyc.job.duration", "outcome", outcome));
+            meterRegistry.counter("user.kyc.jobs", "outcome", outcome).increment();
+        }
+    }
+
+    private void updateJob(String jobId, Map<String, String> fields) {
+        String key = JOB_KEY_PREFIX + jobId;
+        Map<String, String> values = new HashMap<>(fields);
+        values.put("updatedAt", Instant.now().toString());
+        try {
+            redisTemplate.opsForHash().putAll(key, values);
+            redisTemplate.expire(key, Duration.ofHours(jobTtlHours));
+        } catch (RuntimeException e) {
+            log.warn("Failed to record KYC job {} state {}: {}", jobId, fields, e.getMessage());
+            if (JOB_QUEUED.equals(fields.get("status"))) {
+                throw e; // without a record the caller has nothing to poll
+            }
         }
-        // Step 2: Save inquiry in DB
-        saveInquiryToUser(user, inquiryId);
-
-        // Step 3: Create inquiry session (redirect URL)
-        String redirectUrl = createInquirySession(inquiryId);
-        sendVerificationEmail(user,redirectUrl);
-        // Step 4: Return result
-        return Map.of(
-                "inquiryId", inquiryId,
-                "redirectUrl", redirectUrl
-        );
     }
 
     /**
-     * method to find user by username
+     * method to find user by username, read from the database since the job updates the row
      * @param userName
      * @return
      */
@@ -67,88 +175,17 @@ public class PersonaService {
     }
 
     /**
-     * method to create inquiry
-     * @param user
-     * @return
-     */
-    private String createInquiry(User user) {
-        String inquiryUrl = personaConfig.getBaseUrl() + "/inquiries";
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(buildInquiryBody(user), buildHeaders());
-        ResponseEntity<Map> response = new RestTemplate().exchange(inquiryUrl, HttpMethod.POST, entity, Map.class);
-        Map<String, Object> responseData = (Map<String, Object>) response.getBody().get("data");
-        return (String) responseData.get("id");
-    }
-
-    /**
-     * save enquiry id in user with status pending
+     * save enquiry id in user with status pending; only those two columns are written
      * @param user
      * @param inquiryId
      */
     private void saveInquiryToUser(User user, String inquiryId) {
+        CachedUser before = CachedUser.from(user);
+        userRepository.updateInquiry(user.getId(), inquiryId, "PENDING");
         user.setPersonaInquiryId(inquiryId);
         user.setVerificationStatus("PENDING");
-        userRepository.save(user);
-    }
-
-    /**
-     * here we will create the url to complete the kyc , which will be sent to user
-     * @param inquiryId
-     * @return
-     */
-    private String createInquirySession(String inquiryId) {
-//        String sessionUrl ="https://api.withpersona.com/api/v1/inquiry-sessions";
-        String sessionUrl = personaConfig.getBaseUrl() + "/inquiries/" + inquiryId + "/generate-one-time-link";
-        HttpEntity<Map<String, Object>> sessionEntity = new HttpEntity<>(buildInquirySessionBody(inquiryId), buildHeaders());
-        ResponseEntity<Map> sessionResponse = restTemplate.exchange(sessionUrl, HttpMethod.POST, sessionEntity, Map.class);
-        Map<String, Object> responseBody = sessionResponse.getBody();
-        if (responseBody == null) {
-            throw new RuntimeException("Persona inquiry session response is empty");
-        }
-
-        Map<String, Object> meta = (Map<String, Object>) responseBody.get("meta");
-        if (meta == null || !meta.containsKey("one-time-link")) {
-            throw new RuntimeException("One-time link not found in Persona inquiry session response");
-        }
-
-        String oneTimeLink = (String) meta.get("one-time-link");
-        return oneTimeLink;
-
-
-
-    }
-
-
-    private HttpHeaders buildHeaders() {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(personaConfig.getApiKey());
-        return headers;
-    }
-
-    private Map<String, Object> buildInquiryBody(User user) {
-        return Map.of(
-                "data", Map.of(
-                        "type", "inquiry",
-                        "attributes", Map.of(
-                                "inquiry-template-id", personaConfig.getTemplateId(),
-                                "reference-id", user.getUserName(),
-                                "name-first", user.getFirstName(),
-                                "name-last", user.getLastName()
-                        )
-                )
-        );
-    }
-
-    private Map<String, Object> buildInquirySessionBody(String inquiryId) {
-        return Map.of(
-                "data", Map.of(
-                        "type", "inquiry-session",
-                        "attributes", Map.of(
-                                "inquiry-id", inquiryId
-
-                        )
-                )
-        );
+        userCache.evict(before);
+        userCache.evict(user);
     }
 
     /**
@@ -173,49 +210,46 @@ public class PersonaService {
 
     // Get inquiry status (optional check)
     public String getInquiryStatus(String inquiryId) {
-        String url = personaConfig.getBaseUrl() + "/inquiries/" + inquiryId;
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(personaConfig.getApiKey());
-
-        HttpEntity<Void> entity = new HttpEntity<>(headers);
-        ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.GET, entity, Map.class);
-
-        Map<String, Object> attributes =
-                (Map<String, Object>) ((Map<String, Object>) response.getBody().get("data")).get("attributes");
-
-        return (String) attributes.get("status"); // e.g. "completed", "failed"
+        return personaClient.getInquiryStatus(inquiryId); // e.g. "completed", "failed"
     }
 
-    // Update verification result from webhook
-    public void updateVerificationStatus(String inquiryId, String status) {
-        User user = userRepository.findByPersonaInquiryId(inquiryId);
-        if (user != null) {
-            user.setVerificationStatus(status.toUpperCase()); // COMPLETED or FAILED
-            userRepository.save(user);
+    /**
+     * Parses a verified webhook body and stores its status update.
+     * @return false when the update could not be stored and Persona should redeliver
+     */
+    public boolean acceptWebhook(byte[] body) {
+        JsonNode data;
+        try {
+            data = webhookReader.readTree(body).path("data");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed webhook payload");
+        }
+        String inquiryId = data.path("id").asText(null);
+        String status = data.path("attributes").path("status").asText(null);
+        if (inquiryId == null || status == null) {
+            throw new IllegalArgumentException("Webhook payload has no inquiry id or status");
         }
+        return statusUpdater.enqueue(inquiryId, status);
     }
 
     /**
-     * method to verify signature , in order to verify  whether the call is from persona or not
-     * @param payload
-     * @param signature
+     * method to verify signature , in order to verify  whether the call is from persona or not.
+     * The HMAC covers the exact bytes Persona sent, so no re-serialization can change the result.
+     * @param body raw request body
+     * @param signature Base64 HMAC-SHA256 from the Persona-Signature header
      * @return
      */
-    public boolean verifySignature(Map<String, Object> payload, String signature) {
+    public boolean verifySignature(byte[] body, String signature) {
+        if (body == null || signature == null) {
+            return false;
+        }
+        byte[] expected = webhookMac.get().doFinal(body);
+        byte[] provided;
         try {
-            String webhookSecret= personaConfig.getWebhookSecret();
-            String payloadJson = new ObjectMapper().writeValueAsString(payload);
-
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(webhookSecret.getBytes(), "HmacSHA256"));
-            byte[] hash = mac.doFinal(payloadJson.getBytes());
-
-            String expected = Base64.getEncoder().encodeToString(hash);
-            return expected.equals(signature);
-        } catch (Exception e) {
+            provided = Base64.getDecoder().decode(signature.trim());
+        } catch (IllegalArgumentException e) {
             return false;
         }
+        return MessageDigest.isEqual(expected, provided);
     }
 }
-
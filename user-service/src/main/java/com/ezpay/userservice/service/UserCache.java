@@ -0,0 +1,251 @@
+package com.ezpay.userservice.service;
+
+import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.dto.CachedUser;
+import com.ezpay.userservice.repository.UserRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through user lookups by mobile number, user name and Persona inquiry id. A bounded local LRU
+ * sits in front of Redis (redis-central); both hold a {@link CachedUser}, which has no credentials
+ * and is read-only, so code that changes a user loads the entity from the repository instead.
+ * Concurrent misses for the same key share a single database load. Writers call
+ * {@link #evict(User)}, which clears Redis and tells every node to drop its local copy once the
+ * surrounding transaction has committed.
+ */
+@Component
+public class UserCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserCache.class);
+    // v2 entries are CachedUser; the older full-entity entries expire on their own TTL
+    private static final String KEY_PREFIX = "user:cache:v2:";
+    private static final String INVALIDATION_CHANNEL = "user:cache:invalidate";
+
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Map<String, String> local;
+    private final Map<String, CompletableFuture<Optional<CachedUser>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final Duration redisTtl;
+
+    public UserCache(UserRepository userRepository,
+                     StringRedisTemplate redisTemplate,
+                     MeterRegistry meterRegistry,
+                     RedisMessageListenerContainer listenerContainer,
+                     @Value("${user.cache.local-max-size:10000}") int localMaxSize,
+                     @Value("${user.cache.redis-ttl-seconds:600}") long redisTtlSeconds) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.redisTtl = Duration.ofSeconds(redisTtlSeconds);
+        this.local = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > localMaxSize;
+            }
+        });
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+        meterRegistry.gauge("user.cache.local.size", local, Map::size);
+        meterRegistry.gauge("user.cache.hit.ratio", this,
+                c -> c.lookups.sum() == 0 ? 0 : (double) c.hits.sum() / c.lookups.sum());
+    }
+
+    public Optional<CachedUser> findByMobileNumber(String mobileNumber) {
+        return lookup("mobile:" + mobileNumber, () -> userRepository.findByMobileNumber(mobileNumber).map(CachedUser::from));
+    }
+
+    public Optional<CachedUser> findByUserName(String userName) {
+        return lookup("name:" + userName, () -> userRepository.findByUserName(userName).map(CachedUser::from));
+    }
+
+    public Optional<CachedUser> findByPersonaInquiryId(String inquiryId) {
+        return lookup("inquiry:" + inquiryId, () -> Optional.ofNullable(userRepository.findByPersonaInquiryId(inquiryId)).map(CachedUser::from));
+    }
+
+    /**
+     * Drops every key the user can be found under. Call after the row changes; inside a
+     * transaction the eviction waits for the commit, so no reader can cache the old row again.
+     */
+    public void evict(User user) {
+        if (user != null) {
+            evict(CachedUser.from(user));
+        }
+    }
+
+    /**
+     * Same as {@link #evict(User)}, for the keys of a copy read before an update changed them.
+     */
+    public void evict(CachedUser user) {
+        if (user != null) {
+            afterCommit(keysFor(user));
+        }
+    }
+
+    /**
+     * For updates that only know the mobile number; the cached copy, if any, supplies the other keys.
+     */
+    public void evictByMobileNumber(String mobileNumber) {
+        List<String> keys = new ArrayList<>();
+        keys.add("mobile:" + mobileNumber);
+        String json = local.get("mobile:" + mobileNumber);
+        if (json == null) {
+            json = readRedis("mobile:" + mobileNumber);
+        }
+        CachedUser cached = json != null ? fromJson(json) : null;
+        if (cached != null) {
+            keys = keysFor(cached);
+        }
+        afterCommit(keys);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (String key : body.split("\n")) {
+            local.remove(key);
+        }
+    }
+
+    private Optional<CachedUser> lookup(String key, Supplier<Optional<CachedUser>> loader) {
+        lookups.increment();
+        String json = local.get(key);
+        if (json != null) {
+            hits.increment();
+            meterRegistry.counter("user.cache.requests", "tier", "local").increment();
+            return Optional.ofNullable(fromJson(json));
+        }
+        json = readRedis(key);
+        if (json != null) {
+            hits.increment();
+            meterRegistry.counter("user.cache.requests", "tier", "redis").increment();
+            local.put(key, json);
+            return Optional.ofNullable(fromJson(json));
+        }
+
+        meterRegistry.counter("user.cache.requests", "tier", "db").increment();
+        // Single flight: concurrent misses on one key wait for the first caller's load
+        CompletableFuture<Optional<CachedUser>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<CachedUser>> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            Optional<CachedUser> loaded = loader.get();
+            loaded.ifPresent(user -> store(key, user));
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private void store(String key, CachedUser user) {
+        String json = toJson(user);
+        if (json == null) {
+            return;
+        }
+        local.put(key, json);
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + key, json, redisTtl);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to cache user under {}: {}", key, ex.getMessage());
+        }
+    }
+
+    private void afterCommit(List<String> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictKeys(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictKeys(keys);
+            }
+        });
+    }
+
+    private void evictKeys(List<String> keys) {
+        keys.forEach(local::remove);
+        try {
+            redisTemplate.delete(keys.stream().map(k -> KEY_PREFIX + k).toList());
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.join("\n", keys));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to evict cached user keys {}: {}", keys, ex.getMessage());
+        }
+    }
+
+    private List<String> keysFor(CachedUser user) {
+        List<String> keys = new ArrayList<>();
+        if (user.mobileNumber() != null) {
+            keys.add("mobile:" + user.mobileNumber());
+        }
+        if (user.userName() != null) {
+            keys.add("name:" + user.userName());
+        }
+        if (user.personaInquiryId() != null) {
+            keys.add("inquiry:" + user.personaInquiryId());
+        }
+        return keys;
+    }
+
+    private String readRedis(String key) {
+        try {
+            return redisTemplate.opsForValue().get(KEY_PREFIX + key);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to read cached user {}: {}", key, ex.getMessage());
+            return null;
+        }
+    }
+
+    private String toJson(CachedUser user) {
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (Exception ex) {
+            log.warn("Failed to serialize user {}: {}", user.id(), ex.getMessage());
+            return null;
+        }
+    }
+
+    private CachedUser fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, CachedUser.class);
+        } catch (Exception ex) {
+            log.warn("Failed to deserialize cached user: {}", ex.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package com.ezpay.userservice.service;
 
 import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.dto.CachedUser;
+import com.ezpay.userservice.dto.CampaignRecipient;
 import com.ezpay.userservice.dto.UserDTO;
+import com.ezpay.userservice.dto.UserSummary;
 import com.ezpay.userservice.dto.records;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface UserService {
     UserDTO register(UserDTO userDTO);
     UserDTO resetUserPassword(Map<String, String> resetPasswordObject);
     UserDTO updateUser(UserDTO userDTO);
     User login (records.LoginRequest request);
+    Optional<CachedUser> findByMobileNumber(String mobileNumber);
+    List<UserSummary> findSummaries(List<Long> ids, List<String> mobileNumbers);
+    List<CampaignRecipient> findRecipients(long afterId, int limit);
     void saveUserLastActivity(Map<String, String> resetPasswordObject);
+    boolean validatePin(String userName, String pin);
 }
@@ -1,33 +1,47 @@
 package com.ezpay.userservice.serviceImpl;
 
+import com.ezpay.userservice.domain.OutboxEvent;
 import com.ezpay.userservice.dto.UserEvent;
+import com.ezpay.userservice.repository.OutboxEventRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.UUID;
+
+/**
+ * Records email events in the outbox. Joins the caller's transaction, so the event is only
+ * published if the user change it describes commits; {@link OutboxRelay} does the sending.
+ */
 @Service
 public class EmailEventProducer {
     private static final Logger log = LoggerFactory.getLogger(EmailEventProducer.class);
+    private static final ObjectWriter WRITER = new ObjectMapper().writerFor(UserEvent.class);
 
-
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxEventRepository outboxEventRepository;
 
     @Value("${kafka.topics}")
     private String emailTopic;
 
-    public EmailEventProducer(KafkaTemplate<String, String> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    public EmailEventProducer(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
     }
 
+    @Transactional
     public void sendEmailEvent(UserEvent event) throws JsonProcessingException {
         log.info("Inside sendEmailEvent()");
-        ObjectMapper objectMapper = new ObjectMapper();
-        String eventJson = objectMapper.writeValueAsString(event);// Manual serialization
-        kafkaTemplate.send(emailTopic,eventJson);  // Send as String
-        log.info("kafka template send method executed()");
+        if (event.getEventId() == null) {
+            // Fixed before the outbox row is written, so relay retries carry the same id
+            event.setEventId(UUID.randomUUID().toString());
+        }
+        String eventJson = WRITER.writeValueAsString(event);
+        // Keyed by recipient so all mail for one user stays on one partition, in order
+        String key = event.getEmail() != null ? event.getEmail() : event.getUserId();
+        outboxEventRepository.save(new OutboxEvent(emailTopic, key, eventJson));
     }
 }
@@ -0,0 +1,134 @@
+package com.ezpay.userservice.serviceImpl;
+
+import com.ezpay.userservice.domain.OutboxEvent;
+import com.ezpay.userservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes outbox rows to Kafka. Each pass locks a batch with {@code FOR UPDATE SKIP LOCKED} and
+ * stamps a claim on it in one short transaction, so no row lock is held while Kafka is waited on.
+ * The batch is then sent in one go, and once the broker acks arrive the acknowledged rows are
+ * deleted in a second short transaction. Rows whose send failed are released for the next pass;
+ * if the relay dies mid-batch, its claim runs out after {@code claim-ttl-ms} and another pass
+ * sends the rows again.
+ */
+@Component
+public class OutboxRelay {
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${outbox.relay.max-batches-per-poll:20}")
+    private int maxBatchesPerPoll;
+
+    // Must outlast send-timeout-ms, or a slow batch could be claimed and sent twice
+    @Value("${outbox.relay.claim-ttl-ms:60000}")
+    private long claimTtlMs;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, String> kafkaTemplate,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("user.outbox.pending", pending);
+        meterRegistry.gauge("user.outbox.lag.seconds", lagSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:200}")
+    public void relay() {
+        try {
+            for (int i = 0; i < maxBatchesPerPoll; i++) {
+                List<OutboxEvent> batch = transactionTemplate.execute(status -> claimBatch());
+                if (batch == null || batch.isEmpty() || publish(batch) < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Outbox relay pass failed: {}", e.getMessage(), e);
+        } finally {
+            refreshGauges();
+        }
+    }
+
+    private List<OutboxEvent> claimBatch() {
+        Instant now = Instant.now();
+        List<OutboxEvent> batch = outboxEventRepository.lockPendingBatch(batchSize, now);
+        if (!batch.isEmpty()) {
+            outboxEventRepository.claim(batch.stream().map(OutboxEvent::getId).toList(), now.plusMillis(claimTtlMs));
+        }
+        return batch;
+    }
+
+    // Runs outside any transaction; returns how many rows Kafka acknowledged
+    private int publish(List<OutboxEvent> batch) {
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            sends.add(kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload()));
+        }
+        kafkaTemplate.flush();
+
+        List<Long> sent = new ArrayList<>(batch.size());
+        List<Long> failed = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sent.add(batch.get(i).getId());
+            } catch (Exception e) {
+                log.warn("Outbox event {} not acknowledged, will retry: {}", batch.get(i).getId(), e.getMessage());
+                failed.add(batch.get(i).getId());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                outboxEventRepository.deleteSent(sent);
+            }
+            if (!failed.isEmpty()) {
+                outboxEventRepository.claim(failed, null);
+            }
+        });
+        meterRegistry.counter("user.outbox.published", "outcome", "sent").increment(sent.size());
+        meterRegistry.counter("user.outbox.published", "outcome", "failed").increment(batch.size() - sent.size());
+        return sent.size();
+    }
+
+    private void refreshGauges() {
+        try {
+            pending.set(outboxEventRepository.countBySentAtIsNull());
+            Instant oldest = outboxEventRepository.findOldestPendingCreatedAt();
+            lagSeconds.set(oldest == null ? 0 : Duration.between(oldest, Instant.now()).toSeconds());
+        } catch (Exception e) {
+            log.debug("Could not refresh outbox gauges: {}", e.getMessage());
+        }
+    }
+}
@@ -1,26 +1,39 @@
 package com.ezpay.userservice.serviceImpl;
 
 import com.aventrix.jnanoid.jnanoid.NanoIdUtils;
+import com.ezpay.infraservice.validation.ContactValidator;
 import com.ezpay.userservice.constants.UserServiceConstants;
 import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.dto.CachedUser;
+import com.ezpay.userservice.dto.CampaignRecipient;
 import com.ezpay.userservice.dto.UserEvent;
 import com.ezpay.userservice.dto.UserDTO;
+import com.ezpay.userservice.dto.UserSummary;
 import com.ezpay.userservice.dto.records;
 import com.ezpay.userservice.mapper.UserMapper;
 import com.ezpay.userservice.repository.UserRepository;
+import com.ezpay.userservice.service.PasswordHashingService;
+import com.ezpay.userservice.service.UserCache;
 import com.ezpay.userservice.service.UserService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.reactive.function.client.WebClient;
 
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -35,7 +48,7 @@ public class UserServiceImpl implements UserService {
     private UserMapper userMapper;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private WebClient webClient;
@@ -43,27 +56,34 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private EmailEventProducer emailEventProducer;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Value("${user.batch.max-size:200}")
+    private int batchMaxSize;
+
+    @Value("${user.recipients.max-page-size:1000}")
+    private int recipientsMaxPageSize;
 
 
     @Override
+    @Transactional
     public UserDTO register(UserDTO userDTO) {
         log.info("Inside register()");
         validateUserInput(userDTO);
-        Optional<User> existingUser = userRepository.findByMobileNumberAndTemporaryUser(userDTO.getMobileNumber(), false);
-        if (existingUser.isPresent() && !existingUser.get().isTemporaryUser()) {
+        // A temporary user left by login does not block registration
+        if (userCache.findByMobileNumber(userDTO.getMobileNumber()).filter(u -> !u.temporaryUser()).isPresent()) {
             log.warn("User already exists with phone: {}", userDTO.getMobileNumber());
             throw new RuntimeException(UserServiceConstants.USER_ALREADY_EXISTS);
         }
-        if(existingUser.isPresent() && existingUser.get().getUserName()==null){
-            userDTO.setUserName(NanoIdUtils.randomNanoId());
-        }
         if (userDTO.getPassword() != null) {
-            userDTO.setPassword(passwordEncoder.encode(userDTO.getPassword()));
+            userDTO.setPassword(passwordHashingService.encode(userDTO.getPassword()));
         }
         User user = userMapper.toDomain(userDTO);
         user.setTemporaryUser(false);
         try {
             user = userRepository.save(user);
+            userCache.evict(user);
             sendRegistrationEmail(user.getEmail(), user.getFirstName() + " " + user.getLastName(), "registration-email");
             return userMapper.toDTO(user);
         } catch (Exception ex) {
@@ -82,28 +102,53 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    /**
+     * Returns the user owning the mobile number, creating a temporary one if there is none. The
+     * upsert returns the stored row either way, so this needs no separate lookup.
+     */
     @Override
     public User login(records.LoginRequest request) {
+        return createTempUser(request);
+    }
 
-        Optional<User> user =  userRepository.findByMobileNumber(request.mobile());
-        return user.orElse(createTempUser(request));
+    @Override
+    public Optional<CachedUser> findByMobileNumber(String mobileNumber) {
+        return userCache.findByMobileNumber(mobileNumber);
     }
 
-    private User createTempUser(records.LoginRequest request) {
-        int rowsInserted = userRepository.insertIfNotExists(
-                request.mobile(),NanoIdUtils.randomNanoId(),
-                true // temporaryUser
-        );
-
-        if (rowsInserted == 0) {
-            // User already exists, fetch it
-            return userRepository.findByMobileNumberAndTemporaryUser(request.mobile(), true)
-                    .orElseThrow(() -> new IllegalStateException("Temporary user exists but could not be retrieved"));
+    /**
+     * One IN query per key type; callers send at most {@code user.batch.max-size} keys in total.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserSummary> findSummaries(List<Long> ids, List<String> mobileNumbers) {
+        Set<Long> distinctIds = ids == null ? Set.of() : new LinkedHashSet<>(ids);
+        Set<String> distinctMobiles = mobileNumbers == null ? Set.of() : new LinkedHashSet<>(mobileNumbers);
+        if (distinctIds.size() + distinctMobiles.size() > batchMaxSize) {
+            throw new IllegalArgumentException("At most " + batchMaxSize + " ids or mobile numbers per request");
+        }
+        List<UserSummary> summaries = new ArrayList<>();
+        if (!distinctIds.isEmpty()) {
+            summaries.addAll(userRepository.findSummariesByIdIn(distinctIds));
+        }
+        if (!distinctMobiles.isEmpty()) {
+            summaries.addAll(userRepository.findSummariesByMobileNumberIn(distinctMobiles));
+        }
+        return summaries;
+    }
+
+    @Override
+    public List<CampaignRecipient> findRecipients(long afterId, int limit) {
+        if (limit < 1 || limit > recipientsMaxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + recipientsMaxPageSize);
         }
+        return userRepository.findRecipientsAfter(afterId, PageRequest.of(0, limit));
+    }
 
-        // New user inserted, fetch it
-        return userRepository.findByMobileNumberAndTemporaryUser(request.mobile(), true)
-                .orElseThrow(() -> new IllegalStateException("Temporary user was inserted but could not be retrieved"));
+    private User createTempUser(records.LoginRequest request) {
+        // Single statement: inserts the temporary user or returns whoever already owns the number
+        // Null if nothing came back; the login answers that with 404
+        return userRepository.upsertTemporaryUser(request.mobile(), NanoIdUtils.randomNanoId());
     }
 
 
@@ -112,16 +157,24 @@ public class UserServiceImpl implements UserService {
      * @param userDTO
      * @return
      */
+    @Transactional
     public UserDTO updateUser(UserDTO userDTO) {
         log.info("Inside updateUser()");
         Map<String, String> tokens = new HashMap<>();
         try {
-            Optional<User> existing = userRepository.findByMobileNumberAndTemporaryUser(userDTO.getMobileNumber(), true);
+            Optional<User> existing = userRepository.findByMobileNumber(userDTO.getMobileNumber()).filter(User::isTemporaryUser);
             if (existing.isEmpty()) {
                 throw new RuntimeException("user Not found");
             }
-            User user = userMapper.toDomain(userDTO);
+            User user = existing.get();
+            CachedUser before = CachedUser.from(user);
+            userMapper.updateDomain(userDTO, user);
+            if (userDTO.getPassword() != null) {
+                user.setPassword(passwordHashingService.encode(userDTO.getPassword()));
+            }
             user = userRepository.save(user);
+            userCache.evict(before);
+            userCache.evict(user);
 //            sendRegistrationEmail(userDTO.getEmail(),userDTO.getFirstName()+""+userDTO.getLastName(),"User_Update");
             return userMapper.toDTO(user) ;
         } catch(Exception e) {
@@ -143,12 +196,17 @@ public class UserServiceImpl implements UserService {
         String emailPart = "";
 
         if (email != null && !email.isBlank()) {
-            String emailPrefix = email.split("@")[0]
-                    .replaceAll("[^a-zA-Z0-9]", "")
-                    .toLowerCase();
-            emailPart = emailPrefix.length() >= 4
-                    ? emailPrefix.substring(0, 4)
-                    : emailPrefix;
+            // First four letters or digits of the local part, lower-cased
+            StringBuilder prefix = new StringBuilder(4);
+            for (int i = 0; i < email.length() && email.charAt(i) != '@' && prefix.length() < 4; i++) {
+                char c = email.charAt(i);
+                if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                    prefix.append(c);
+                } else if (c >= 'A' && c <= 'Z') {
+                    prefix.append((char) (c + ('a' - 'A')));
+                }
+            }
+            emailPart = prefix.toString();
         } else {
             // If email is missing, use first 4 digits of phone instead
             emailPart = phone.length() >= 4
@@ -165,32 +223,13 @@ public class UserServiceImpl implements UserService {
     }
 
 
+    // India and Canada numbers, with or without the country code; rules live in ContactValidator
     public  boolean isValidMobileNumber(String mobile) {
-        if (mobile == null) return false;
-
-        // Remove any leading + sign or spaces
-        mobile = mobile.trim().replaceAll("\\s+", "");
-
-        // India: 10 digits, starts with 6-9
-        if (mobile.matches("^(\\+91)?[6-9]\\d{9}$")) {
-            return true;
-        }
-
-        // Canada: 10 digits, optionally +1 prefix
-        if (mobile.matches("^(\\+1)?[2-9]\\d{9}$")) {
-            return true;
-        }
-
-        return false;
+        return ContactValidator.isValidMobile(mobile);
     }
 
     public  boolean isValidEmail(String email) {
-        String regex = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$";
-        return email != null && email.matches(regex);
-    }
-
-    public boolean isPasswordValid(String rawPassword, String encodedPassword) {
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+        return ContactValidator.isValidEmail(email);
     }
 
     /**
@@ -202,6 +241,7 @@ public class UserServiceImpl implements UserService {
      */
     public void sendRegistrationEmail(String to, String name,String eventType) throws JsonProcessingException {
         UserEvent userEvent = new UserEvent();
+        userEvent.setEventId(UUID.randomUUID().toString());
         userEvent.setEmail(to);
         userEvent.setName(name);
         userEvent.setEventType(eventType);
@@ -215,19 +255,24 @@ public class UserServiceImpl implements UserService {
      * @return
      */
     @Override
+    @Transactional
     public UserDTO resetUserPassword(Map<String, String> resetPasswordObject) {
         log.info("Inside resetUserPassword()");
         try{
             if(resetPasswordObject == null || resetPasswordObject.get("oldPassword")==null || resetPasswordObject.get("newPassword")==null){
                 throw new IllegalArgumentException("Password Field Must Not Be Empty!");
             }
-            Optional<User> existing = userRepository.findByMobileNumberAndTemporaryUser(resetPasswordObject.get("MobileNumber"), false);
+            Optional<User> existing = userRepository.findByMobileNumber(resetPasswordObject.get("MobileNumber")).filter(u -> !u.isTemporaryUser());
             if(existing.isPresent()){
                 User user = existing.get();
-                isPasswordValid(resetPasswordObject.get("oldPassword"), user.getPassword());
+                // No upgrade callback: the stored hash is replaced with the new password below anyway
+                if (!passwordHashingService.matches(resetPasswordObject.get("oldPassword"), user.getPassword(), null)) {
+                    throw new IllegalArgumentException("Old password is incorrect");
+                }
                 String newPassword  = resetPasswordObject.get("newPassword");
-                user.setPassword(passwordEncoder.encode(newPassword));
+                user.setPassword(passwordHashingService.encode(newPassword));
                 user = userRepository.save(user);
+                userCache.evict(user);
                 UserDTO  userDTO =  userMapper.toDTO(user);
                 sendRegistrationEmail(userDTO.getEmail(),userDTO.getFirstName()+""+userDTO.getLastName(),"Reset_password");
                 return userDTO;
@@ -258,7 +303,7 @@ public class UserServiceImpl implements UserService {
             }
 
             if(pin != null && "PIN SETUP".equalsIgnoreCase(lastActivity) ){
-                String encodedPin = passwordEncoder.encode(pin);
+                String encodedPin = passwordHashingService.encode(pin);
                 int updated = userRepository.updatePasswordAndActivityByPhoneNumber(encodedPin, lastActivity, mobileNumber);
                 if (updated == 0) {
                     throw new RuntimeException("User not found for update");
@@ -269,10 +314,32 @@ public class UserServiceImpl implements UserService {
                     throw new RuntimeException("Last Activity Not Updated");
                 }
             }
+            userCache.evictByMobileNumber(mobileNumber);
         }catch (Exception e){
             log.error("Error while calling saveUserLastActivity()");
             e.printStackTrace();
         }
     }
-}
 
+    /**
+     * Checks a PIN for step-up login. A PIN stored with an older hash algorithm is re-hashed and
+     * saved on the first successful match.
+     * @param userName
+     * @param pin
+     * @return
+     */
+    @Override
+    @Transactional
+    public boolean validatePin(String userName, String pin) {
+        log.info("Inside validatePin()");
+        Optional<User> existing = userRepository.findByUserName(userName).filter(u -> !u.isTemporaryUser());
+        if (existing.isEmpty()) {
+            return false;
+        }
+        User user = existing.get();
+        return passwordHashingService.matches(pin, user.getPassword(), upgraded -> {
+            user.setPassword(upgraded);
+            userRepository.save(user);
+        });
+    }
+}
@@ -0,0 +1,30 @@
+-- Schema as previously generated from the entities. Existing databases are baselined at V0
+-- (spring.flyway.baseline-version), so this also runs there and creates whichever tables are
+-- missing; later migrations can rely on every table existing.
+
+CREATE TABLE IF NOT EXISTS users (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name          VARCHAR(255),
+    last_name           VARCHAR(255),
+    email               VARCHAR(255) UNIQUE,
+    mobile_number       VARCHAR(255) UNIQUE,
+    is_verified         BOOLEAN NOT NULL DEFAULT FALSE,
+    user_name           VARCHAR(255),
+    password            VARCHAR(255),
+    temporary_user      BOOLEAN NOT NULL DEFAULT FALSE,
+    last_activity       VARCHAR(255),
+    gender              VARCHAR(255),
+    date_of_birth       VARCHAR(255),
+    persona_inquiry_id  VARCHAR(255),
+    verification_status VARCHAR(255),
+    roles               VARCHAR(255)[]
+);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    topic       VARCHAR(255) NOT NULL,
+    message_key VARCHAR(255),
+    payload     TEXT NOT NULL,
+    created_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    sent_at     TIMESTAMP(6) WITH TIME ZONE
+);
@@ -0,0 +1,9 @@
+-- Indexes for findByUserName, findByPersonaInquiryId (KYC webhooks) and the outbox relay poll.
+-- Built CONCURRENTLY so live tables keep taking writes; Flyway runs this file outside a transaction.
+-- If a build is interrupted, drop the INVALID index before re-running.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_user_name ON users (user_name);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_persona_inquiry_id ON users (persona_inquiry_id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_outbox_events_pending ON outbox_events (sent_at, id);
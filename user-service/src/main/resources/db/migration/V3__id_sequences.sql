@@ -0,0 +1,8 @@
+-- Sequences for the pooled id optimizer (allocationSize = 50 on the entities, so INCREMENT BY
+-- must match). Each value handed out covers the 50 ids below it, hence the +50 seed past MAX(id).
+
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+SELECT setval('users_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 50, false);
+
+CREATE SEQUENCE IF NOT EXISTS outbox_events_seq INCREMENT BY 50;
+SELECT setval('outbox_events_seq', COALESCE((SELECT MAX(id) FROM outbox_events), 0) + 50, false);
@@ -0,0 +1,13 @@
+-- Persona webhook results. A webhook is acknowledged only once its row is stored here;
+-- KycStatusUpdater applies the rows to users in batches, oldest first, and deletes them.
+
+CREATE TABLE IF NOT EXISTS kyc_status_updates (
+    id          BIGINT PRIMARY KEY,
+    inquiry_id  VARCHAR(255) NOT NULL,
+    status      VARCHAR(64) NOT NULL,
+    received_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_kyc_status_updates_received ON kyc_status_updates (received_at, id);
+
+CREATE SEQUENCE IF NOT EXISTS kyc_status_updates_seq INCREMENT BY 50;
@@ -0,0 +1,7 @@
+-- The outbox relay claims a batch for claimed_until instead of holding its row locks while it
+-- waits for Kafka, and deletes rows once they are acknowledged instead of stamping sent_at.
+
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP(6) WITH TIME ZONE;
+
+-- Rows published before this change are never read again
+DELETE FROM outbox_events WHERE sent_at IS NOT NULL;
@@ -0,0 +1,117 @@
+package com.ezpay.userservice.clients;
+
+import com.ezpay.userservice.domain.User;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs {@link PersonaClient} against a local Persona stub: an in-process HTTP server answering the
+ * inquiry endpoints, with a configurable number of 503s before the first success.
+ */
+class PersonaClientTest {
+
+    private HttpServer persona;
+    private final AtomicInteger inquiryCalls = new AtomicInteger();
+    private final Set<String> idempotencyKeys = ConcurrentHashMap.newKeySet();
+    private volatile int failuresBeforeSuccess;
+    private volatile int failureStatus = 503;
+    private PersonaClient client;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        persona = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        persona.createContext("/inquiries", this::handle);
+        persona.start();
+        RestClient restClient = RestClient.builder()
+                .requestFactory(new JdkClientHttpRequestFactory())
+                .baseUrl("http://localhost:" + persona.getAddress().getPort())
+                .defaultHeaders(h -> h.setContentType(MediaType.APPLICATION_JSON))
+                .build();
+        client = new PersonaClient(restClient, "itmpl_test", 3, Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void stopStub() {
+        persona.stop(0);
+    }
+
+    @Test
+    void createsInquiryAndOneTimeLink() {
+        assertEquals("inq_123", client.createInquiry(user()));
+        assertEquals("https://withpersona.test/verify?code=abc", client.createOneTimeLink("inq_123"));
+        assertEquals("completed", client.getInquiryStatus("inq_123"));
+    }
+
+    @Test
+    void retriesServerErrorsUntilSuccess() {
+        failuresBeforeSuccess = 2;
+
+        assertEquals("inq_123", client.createInquiry(user()));
+        assertEquals(3, inquiryCalls.get());
+        // Every retry of the same create carries the same key
+        assertEquals(1, idempotencyKeys.size());
+        assertFalse(idempotencyKeys.contains(""));
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        failuresBeforeSuccess = 5;
+        failureStatus = 422;
+
+        assertThrows(HttpClientErrorException.class, () -> client.createInquiry(user()));
+        assertEquals(1, inquiryCalls.get());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        exchange.getRequestBody().readAllBytes();
+        if (path.equals("/inquiries")) {
+            String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+            idempotencyKeys.add(key != null ? key : "");
+        }
+        if (path.equals("/inquiries") && inquiryCalls.incrementAndGet() <= failuresBeforeSuccess) {
+            respond(exchange, failureStatus, "{\"errors\":[]}");
+        } else if (path.equals("/inquiries")) {
+            respond(exchange, 201, "{\"data\":{\"type\":\"inquiry\",\"id\":\"inq_123\"}}");
+        } else if (path.endsWith("/generate-one-time-link")) {
+            respond(exchange, 200, "{\"meta\":{\"one-time-link\":\"https://withpersona.test/verify?code=abc\"}}");
+        } else {
+            respond(exchange, 200, "{\"data\":{\"id\":\"inq_123\",\"attributes\":{\"status\":\"completed\"}}}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setUserName("jane");
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        return user;
+    }
+}
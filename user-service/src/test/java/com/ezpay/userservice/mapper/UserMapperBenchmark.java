@@ -0,0 +1,81 @@
+package com.ezpay.userservice.mapper;
+
+import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+
+import java.util.function.Function;
+
+/**
+ * Per-call cost of the explicit mappings against the {@link BeanUtils#copyProperties} calls they
+ * replaced. BeanUtils caches property descriptors per class, so what remains is the reflective
+ * getter and setter invocation on every property.
+ *
+ * <p>Opt-in, since it takes a while:
+ * {@code mvn -pl user-service test -Dtest=UserMapperBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserMapperBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(UserMapperBenchmark.class);
+    private static final int CALLS = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    // Every copy escapes into here so the JIT can neither drop nor scalar-replace it
+    private static final Object[] sink = new Object[1024];
+
+    private final UserMapper mapper = new UserMapper();
+
+    @Test
+    void toDto() {
+        User user = UserMapperTest.populatedUser();
+        compare("toDTO", user,
+                source -> {
+                    UserDTO dto = new UserDTO();
+                    BeanUtils.copyProperties(source, dto, "password");
+                    return dto;
+                },
+                mapper::toDTO);
+    }
+
+    @Test
+    void toDomain() {
+        UserDTO dto = UserMapperTest.populatedDto();
+        compare("toDomain", dto,
+                source -> {
+                    User user = new User();
+                    BeanUtils.copyProperties(source, user);
+                    return user;
+                },
+                mapper::toDomain);
+    }
+
+    private static <S> void compare(String name, S source, Function<S, Object> reflective, Function<S, Object> explicit) {
+        long reflectiveNanos = Long.MAX_VALUE;
+        long explicitNanos = Long.MAX_VALUE;
+        // First round warms up the JIT and the BeanUtils descriptor cache
+        for (int round = 0; round <= ROUNDS; round++) {
+            long reflectiveRound = time(source, reflective);
+            long explicitRound = time(source, explicit);
+            if (round > 0) {
+                reflectiveNanos = Math.min(reflectiveNanos, reflectiveRound);
+                explicitNanos = Math.min(explicitNanos, explicitRound);
+            }
+        }
+        log.info("{}: BeanUtils {} ns/call, explicit {} ns/call ({}x)", name,
+                String.format("%.1f", (double) reflectiveNanos / CALLS), String.format("%.1f", (double) explicitNanos / CALLS),
+                String.format("%.1f", (double) reflectiveNanos / explicitNanos));
+    }
+
+    private static <S> long time(S source, Function<S, Object> copy) {
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            sink[i & (sink.length - 1)] = copy.apply(source);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,159 @@
+package com.ezpay.userservice.mapper;
+
+import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the hand-written mappings against the reflective {@link BeanUtils} copy they replaced,
+ * field by field, so a property added to only one side shows up here.
+ */
+class UserMapperTest {
+
+    private final UserMapper mapper = new UserMapper();
+
+    @Test
+    void toDtoMatchesBeanUtilsAndDropsPassword() {
+        User user = populatedUser();
+        UserDTO expected = new UserDTO();
+        BeanUtils.copyProperties(user, expected, "password");
+
+        UserDTO actual = mapper.toDTO(user);
+
+        assertDtoEquals(expected, actual);
+        assertNull(actual.getPassword());
+    }
+
+    @Test
+    void toDomainMatchesBeanUtils() {
+        UserDTO dto = populatedDto();
+        User expected = new User();
+        BeanUtils.copyProperties(dto, expected);
+
+        User actual = mapper.toDomain(dto);
+
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getMobileNumber(), actual.getMobileNumber());
+        assertEquals(expected.getPassword(), actual.getPassword());
+        assertEquals(expected.getUserName(), actual.getUserName());
+        assertEquals(expected.isTemporaryUser(), actual.isTemporaryUser());
+        assertEquals(expected.getLastActivity(), actual.getLastActivity());
+        assertEquals(expected.getGender(), actual.getGender());
+        assertEquals(expected.getDateOfBirth(), actual.getDateOfBirth());
+        assertEquals(expected.getPersonaInquiryId(), actual.getPersonaInquiryId());
+        assertEquals(expected.isVerified(), actual.isVerified());
+        assertEquals(expected.getVerificationStatus(), actual.getVerificationStatus());
+    }
+
+    @Test
+    void updateDomainCopiesProfileButKeepsStoredState() {
+        User user = populatedUser();
+        UserDTO dto = populatedDto();
+
+        mapper.updateDomain(dto, user);
+
+        assertEquals(dto.getFirstName(), user.getFirstName());
+        assertEquals(dto.getLastName(), user.getLastName());
+        assertEquals(dto.getEmail(), user.getEmail());
+        assertEquals(dto.getMobileNumber(), user.getMobileNumber());
+        assertEquals(dto.getUserName(), user.getUserName());
+        assertEquals(dto.isTemporaryUser(), user.isTemporaryUser());
+        assertEquals(dto.getLastActivity(), user.getLastActivity());
+        assertEquals(dto.getGender(), user.getGender());
+        assertEquals(dto.getDateOfBirth(), user.getDateOfBirth());
+        assertEquals(dto.getPersonaInquiryId(), user.getPersonaInquiryId());
+        assertEquals(42L, user.getId());
+        assertEquals("{pbkdf2}secret-hash", user.getPassword());
+        assertEquals(true, user.isVerified());
+        assertEquals("COMPLETED", user.getVerificationStatus());
+    }
+
+    @Test
+    void updateDomainKeepsStoredValuesForNullFields() {
+        User user = populatedUser();
+        UserDTO dto = new UserDTO();
+        dto.setFirstName("Asha Rani");
+        dto.setTemporaryUser(false);
+
+        mapper.updateDomain(dto, user);
+
+        assertEquals("Asha Rani", user.getFirstName());
+        assertEquals(false, user.isTemporaryUser());
+        assertEquals("Verma", user.getLastName());
+        assertEquals("asha@example.com", user.getEmail());
+        assertEquals("+919876543210", user.getMobileNumber());
+        assertEquals("asha.verma", user.getUserName());
+        assertEquals("2025-01-01T10:00:00", user.getLastActivity());
+        assertEquals("F", user.getGender());
+        assertEquals("1990-05-17", user.getDateOfBirth());
+        assertEquals("inq_123", user.getPersonaInquiryId());
+    }
+
+    @Test
+    void nullInNullOut() {
+        assertNull(mapper.toDTO(null));
+        assertNull(mapper.toDomain(null));
+    }
+
+    private static void assertDtoEquals(UserDTO expected, UserDTO actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getMobileNumber(), actual.getMobileNumber());
+        assertEquals(expected.getPassword(), actual.getPassword());
+        assertEquals(expected.getRoles(), actual.getRoles());
+        assertEquals(expected.getUserName(), actual.getUserName());
+        assertEquals(expected.isTemporaryUser(), actual.isTemporaryUser());
+        assertEquals(expected.getLastActivity(), actual.getLastActivity());
+        assertEquals(expected.getGender(), actual.getGender());
+        assertEquals(expected.getDateOfBirth(), actual.getDateOfBirth());
+        assertEquals(expected.getPersonaInquiryId(), actual.getPersonaInquiryId());
+    }
+
+    static User populatedUser() {
+        User user = new User();
+        user.setId(42L);
+        user.setFirstName("Asha");
+        user.setLastName("Verma");
+        user.setEmail("asha@example.com");
+        user.setMobileNumber("+919876543210");
+        user.setVerified(true);
+        user.setUserName("asha.verma");
+        user.setPassword("{pbkdf2}secret-hash");
+        user.setTemporaryUser(true);
+        user.setLastActivity("2025-01-01T10:00:00");
+        user.setGender("F");
+        user.setDateOfBirth("1990-05-17");
+        user.setPersonaInquiryId("inq_123");
+        user.setVerificationStatus("COMPLETED");
+        return user;
+    }
+
+    static UserDTO populatedDto() {
+        UserDTO dto = new UserDTO();
+        dto.setId(7L);
+        dto.setFirstName("Liam");
+        dto.setLastName("Tremblay");
+        dto.setEmail("liam@example.ca");
+        dto.setMobileNumber("+14165550123");
+        dto.setPassword("plain-secret");
+        dto.setRoles(List.of("USER"));
+        dto.setUserName("liam.t");
+        dto.setTemporaryUser(false);
+        dto.setLastActivity("2025-02-02T08:30:00");
+        dto.setGender("M");
+        dto.setDateOfBirth("1988-11-03");
+        dto.setPersonaInquiryId("inq_456");
+        return dto;
+    }
+}
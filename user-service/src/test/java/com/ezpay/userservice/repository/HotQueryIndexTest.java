@@ -0,0 +1,115 @@
+package com.ezpay.userservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Applies the Flyway migrations to a throwaway Postgres and EXPLAINs the SQL behind the hot
+ * repository queries. Sequential scans are disabled for the session, so a plan that still shows
+ * one means no index can serve the query. Also migrates a schema that Hibernate created before
+ * Flyway was introduced, the way existing databases are upgraded. Skipped when Docker is not
+ * available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class HotQueryIndexTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @BeforeAll
+    static void migrate() {
+        flyway("public").migrate();
+    }
+
+    @Test
+    void migratesDatabaseCreatedBeforeFlyway() throws SQLException {
+        // users as ddl-auto created it; outbox_events never existed there
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA legacy");
+            statement.execute("CREATE TABLE legacy.users (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                    + " mobile_number VARCHAR(255) UNIQUE, user_name VARCHAR(255), persona_inquiry_id VARCHAR(255))");
+            statement.execute("INSERT INTO legacy.users (mobile_number, user_name) VALUES ('+919876543210', 'asha')");
+        }
+
+        MigrateResult result = flyway("legacy").migrate();
+
+        assertTrue(result.success);
+        try (Connection connection = connect(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT count(*) FROM pg_indexes WHERE schemaname = 'legacy'"
+                     + " AND indexname IN ('idx_users_user_name', 'idx_users_persona_inquiry_id', 'idx_outbox_events_pending')")) {
+            rs.next();
+            assertEquals(3, rs.getInt(1));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // findByMobileNumber / findByMobileNumberAndTemporaryUser
+            "SELECT * FROM users WHERE mobile_number = '+919876543210'",
+            "SELECT * FROM users WHERE mobile_number = '+919876543210' AND temporary_user = true",
+            // findByUserName
+            "SELECT * FROM users WHERE user_name = 'asha'",
+            // findByPersonaInquiryId / findByPersonaInquiryIdIn
+            "SELECT * FROM users WHERE persona_inquiry_id = 'inq_1'",
+            "SELECT * FROM users WHERE persona_inquiry_id IN ('inq_1', 'inq_2')",
+            // findSummariesByIdIn / findSummariesByMobileNumberIn
+            "SELECT id, user_name FROM users WHERE id IN (1, 2, 3)",
+            "SELECT id, user_name FROM users WHERE mobile_number IN ('+919876543210', '+14165550123')",
+            // OutboxEventRepository.lockPendingBatch
+            "SELECT * FROM outbox_events WHERE sent_at IS NULL AND (claimed_until IS NULL OR claimed_until < now())"
+                    + " ORDER BY id LIMIT 100 FOR UPDATE SKIP LOCKED",
+            // KycStatusUpdateRepository.findOldest
+            "SELECT * FROM kyc_status_updates ORDER BY received_at, id LIMIT 500"
+    })
+    void hotQueriesUseAnIndex(String sql) throws SQLException {
+        String plan = explain(sql);
+        assertFalse(plan.contains("Seq Scan"), () -> "Sequential scan for: " + sql + "\n" + plan);
+    }
+
+    // Same baseline settings as application.properties
+    private static Flyway flyway(String schema) {
+        return Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .schemas(schema)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load();
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+
+    private static String explain(String sql) throws SQLException {
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.ezpay.userservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Bulk insert cost of the two id strategies, replaying the JDBC traffic Hibernate generates for
+ * each: IDENTITY sends one {@code INSERT ... RETURNING id} per row and cannot batch, while a pooled
+ * sequence fetches one {@code nextval} per 50 rows and sends the inserts as JDBC batches of 50
+ * ({@code hibernate.jdbc.batch_size}). Runs against {@code users} and a {@code refresh_token}
+ * table shaped like auth-service's V1.
+ *
+ * <p>Opt-in, since it needs Docker and takes a while:
+ * {@code mvn -pl user-service test -Dtest=InsertIdStrategyBenchmark -Dbenchmark=true}
+ */
+@Testcontainers
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InsertIdStrategyBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(InsertIdStrategyBenchmark.class);
+    private static final int ROWS = 5_000;
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int ROUNDS = 3;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @BeforeAll
+    static void migrate() throws SQLException {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE refresh_token (
+                        id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        token_hash VARCHAR(255), user_id BIGINT, expires_at TIMESTAMP(6) WITH TIME ZONE,
+                        revoked BOOLEAN NOT NULL DEFAULT FALSE, device_id VARCHAR(255))""");
+            statement.execute("CREATE SEQUENCE refresh_token_seq INCREMENT BY " + ALLOCATION_SIZE);
+            // Keep sequence ids clear of the identity column's own counter
+            statement.execute("SELECT setval('users_seq', 100000000), setval('refresh_token_seq', 100000000)");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"users", "refresh_token"})
+    void identityVersusPooledSequence(String table) throws SQLException {
+        String insert = "users".equals(table)
+                ? "INSERT INTO users (%s first_name, mobile_number, user_name, temporary_user) VALUES (%s ?, ?, ?, false)"
+                : "INSERT INTO refresh_token (%s token_hash, user_id, device_id, expires_at) VALUES (%s ?, ?, ?, now())";
+        long identity = Long.MAX_VALUE;
+        long pooled = Long.MAX_VALUE;
+        // First round warms up the JIT, the connection and the table's pages
+        for (int round = 0; round <= ROUNDS; round++) {
+            long identityNanos = identityInserts(table, insert.formatted("", ""), round);
+            long pooledNanos = pooledInserts(table, insert.formatted("id,", "?,"), round);
+            if (round > 0) {
+                identity = Math.min(identity, identityNanos);
+                pooled = Math.min(pooled, pooledNanos);
+            }
+        }
+        log.info("{}: {} rows, IDENTITY {} ms, pooled sequence + batch {} ms ({}x)", table, ROWS,
+                identity / 1_000_000, pooled / 1_000_000, String.format("%.1f", (double) identity / pooled));
+        assertEquals(2L * (ROUNDS + 1) * ROWS, count(table));
+    }
+
+    // Before: GenerationType.IDENTITY, one round trip per row to read the generated key back
+    private long identityInserts(String table, String sql, int round) throws SQLException {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            connection.setAutoCommit(false);
+            long start = System.nanoTime();
+            for (int i = 0; i < ROWS; i++) {
+                bind(statement, table, 1, "identity", round, i);
+                statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    keys.next();
+                }
+            }
+            connection.commit();
+            return System.nanoTime() - start;
+        }
+    }
+
+    // After: pooled optimizer hands out ALLOCATION_SIZE ids per nextval, inserts go out in batches
+    private long pooledInserts(String table, String sql, int round) throws SQLException {
+        try (Connection connection = connect();
+             PreparedStatement nextval = connection.prepareStatement("SELECT nextval('" + table + "_seq')");
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            long start = System.nanoTime();
+            long id = 0;
+            for (int i = 0; i < ROWS; i++) {
+                if (i % ALLOCATION_SIZE == 0) {
+                    try (ResultSet rs = nextval.executeQuery()) {
+                        rs.next();
+                        id = rs.getLong(1) - ALLOCATION_SIZE;
+                    }
+                }
+                statement.setLong(1, ++id);
+                bind(statement, table, 2, "pooled", round, i);
+                statement.addBatch();
+                if ((i + 1) % ALLOCATION_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+            connection.commit();
+            return System.nanoTime() - start;
+        }
+    }
+
+    private static void bind(PreparedStatement statement, String table, int from, String strategy, int round, int i)
+            throws SQLException {
+        String key = strategy + "-" + round + "-" + i;
+        if ("users".equals(table)) {
+            statement.setString(from, "User " + i);
+            statement.setString(from + 1, key);
+            statement.setString(from + 2, key);
+        } else {
+            statement.setString(from, key);
+            statement.setLong(from + 1, i);
+            statement.setString(from + 2, "device-" + (i % 100));
+        }
+    }
+
+    private static long count(String table) throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT count(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+}
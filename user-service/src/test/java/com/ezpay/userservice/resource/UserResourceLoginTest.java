@@ -0,0 +1,78 @@
+package com.ezpay.userservice.resource;
+
+import com.ezpay.userservice.dto.records;
+import com.ezpay.userservice.service.LoginAdmissionController;
+import com.ezpay.userservice.service.LoginOrchestrator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * How the login endpoint applies admission control: rejected callers get 429 with a Retry-After
+ * hint and never reach the orchestrator, and admitted ones release their permit by outcome.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserResourceLoginTest {
+
+    @Mock
+    private LoginOrchestrator loginOrchestrator;
+
+    @Mock
+    private LoginAdmissionController loginAdmissionController;
+
+    @InjectMocks
+    private UserResource userResource;
+
+    private final records.LoginRequest request =
+            new records.LoginRequest(null, null, "device-1", "123456", "+919876543210", null);
+
+    @Test
+    void rejectedLoginGets429WithRetryAfter() {
+        when(loginAdmissionController.acquire()).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(loginAdmissionController.retryAfterSeconds()).thenReturn(3L);
+
+        ResponseEntity<?> response = userResource.login(request).join();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("3", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        verifyNoInteractions(loginOrchestrator);
+    }
+
+    @Test
+    void admittedLoginReleasesItsPermitOnSuccess() {
+        LoginAdmissionController.Permit permit = mock(LoginAdmissionController.Permit.class);
+        when(loginAdmissionController.acquire()).thenReturn(CompletableFuture.completedFuture(Optional.of(permit)));
+        when(loginOrchestrator.login(any())).thenReturn(CompletableFuture.completedFuture(ResponseEntity.ok("tokens")));
+
+        assertEquals(HttpStatus.OK, userResource.login(request).join().getStatusCode());
+
+        verify(permit).success();
+    }
+
+    @Test
+    void downstreamFailureCountsAsDropped() {
+        LoginAdmissionController.Permit permit = mock(LoginAdmissionController.Permit.class);
+        when(loginAdmissionController.acquire()).thenReturn(CompletableFuture.completedFuture(Optional.of(permit)));
+        when(loginOrchestrator.login(any())).thenReturn(CompletableFuture.completedFuture(
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Service unavailable")));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, userResource.login(request).join().getStatusCode());
+
+        verify(permit).dropped();
+    }
+}
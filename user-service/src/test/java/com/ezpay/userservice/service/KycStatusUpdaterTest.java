@@ -0,0 +1,99 @@
+package com.ezpay.userservice.service;
+
+import com.ezpay.userservice.domain.KycStatusUpdate;
+import com.ezpay.userservice.repository.KycStatusUpdateRepository;
+import com.ezpay.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Order and failure handling of the stored webhook updates, with the repositories mocked and the
+ * transaction template running its callback directly.
+ */
+class KycStatusUpdaterTest {
+
+    private final KycStatusUpdateRepository updateRepository = mock(KycStatusUpdateRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private KycStatusUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(updateRepository.tryLock(anyLong())).thenReturn(true);
+        updater = new KycStatusUpdater(updateRepository, userRepository, mock(UserCache.class),
+                transactionTemplate, new SimpleMeterRegistry(), 500, 20);
+    }
+
+    @Test
+    void latestStatusPerInquiryWins() {
+        when(updateRepository.findOldest(500)).thenReturn(List.of(
+                update(1L, "inq_1", "PENDING"), update(2L, "inq_2", "APPROVED"), update(3L, "inq_1", "DECLINED")));
+
+        updater.flush();
+
+        verify(userRepository).updateVerificationStatusByInquiryIds("DECLINED", List.of("inq_1"));
+        verify(userRepository).updateVerificationStatusByInquiryIds("APPROVED", List.of("inq_2"));
+        verify(userRepository, never()).updateVerificationStatusByInquiryIds(eq("PENDING"), anyCollection());
+        verify(updateRepository).deleteByIds(List.of(1L, 2L, 3L));
+    }
+
+    @Test
+    void failedBatchIsNotDeleted() {
+        when(updateRepository.findOldest(500)).thenReturn(List.of(update(1L, "inq_1", "APPROVED")));
+        when(userRepository.updateVerificationStatusByInquiryIds(anyString(), anyCollection()))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+
+        updater.flush();
+
+        verify(updateRepository, never()).deleteByIds(anyCollection());
+    }
+
+    @Test
+    void batchesWaitForTheInstanceHoldingTheLock() {
+        when(updateRepository.tryLock(anyLong())).thenReturn(false);
+
+        updater.flush();
+
+        verify(updateRepository, never()).findOldest(500);
+    }
+
+    @Test
+    void webhookIsRefusedWhenItCannotBeStored() {
+        when(updateRepository.save(any())).thenThrow(new DataAccessResourceFailureException("database down"));
+
+        assertFalse(updater.enqueue("inq_1", "approved"));
+    }
+
+    @Test
+    void storedWebhookIsAccepted() {
+        assertTrue(updater.enqueue("inq_1", "approved"));
+
+        verify(updateRepository).save(any(KycStatusUpdate.class));
+    }
+
+    private static KycStatusUpdate update(Long id, String inquiryId, String status) {
+        KycStatusUpdate update = new KycStatusUpdate(inquiryId, status);
+        update.setId(id);
+        return update;
+    }
+}
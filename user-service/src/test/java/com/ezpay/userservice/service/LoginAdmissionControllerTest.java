@@ -0,0 +1,146 @@
+package com.ezpay.userservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Limit adaptation and queueing, with round trips timed on a virtual clock so latency is exact.
+ */
+class LoginAdmissionControllerTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void limitGrowsWhileLatencyHoldsSteady() {
+        LoginAdmissionController controller = controller(4, 1, 10);
+
+        runRounds(controller, 10, 20 * MILLIS);
+
+        assertTrue(limit() > 4, "limit " + limit());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyStretches() {
+        LoginAdmissionController controller = controller(20, 1, 10);
+        runRounds(controller, 5, 20 * MILLIS);
+        double before = limit();
+
+        runRounds(controller, 5, 200 * MILLIS);
+
+        assertTrue(limit() < before, "limit " + limit() + " was " + before);
+    }
+
+    @Test
+    void droppedLoginBacksOffMultiplicatively() {
+        LoginAdmissionController controller = controller(10, 1, 10);
+
+        permit(controller).dropped();
+
+        assertEquals(9.0, limit(), 1e-9);
+    }
+
+    @Test
+    void limitNeverFallsBelowTheMinimum() {
+        LoginAdmissionController controller = controller(5, 5, 10);
+
+        for (int i = 0; i < 10; i++) {
+            permit(controller).dropped();
+        }
+
+        assertEquals(5.0, limit(), 1e-9);
+    }
+
+    @Test
+    void queuedCallerIsAdmittedWhenASlotFrees() {
+        LoginAdmissionController controller = controller(1, 1, 10_000);
+        LoginAdmissionController.Permit first = permit(controller);
+
+        CompletableFuture<Optional<LoginAdmissionController.Permit>> second = controller.acquire();
+        assertFalse(second.isDone());
+        first.success();
+
+        assertTrue(second.isDone());
+        assertTrue(second.join().isPresent());
+        assertEquals(0.0, meterRegistry.get("user.login.admission.queued").gauge().value());
+    }
+
+    @Test
+    void queuedCallerIsTurnedAwayAfterMaxWait() throws Exception {
+        LoginAdmissionController controller = controller(1, 1, 20);
+        permit(controller);
+
+        Optional<LoginAdmissionController.Permit> second = controller.acquire().get(5, TimeUnit.SECONDS);
+
+        assertTrue(second.isEmpty());
+        assertEquals(1.0, meterRegistry.get("user.login.admission.rejected").tag("reason", "wait_timeout").counter().count());
+    }
+
+    @Test
+    void fullQueueIsRejectedWithoutWaiting() {
+        LoginAdmissionController controller = new LoginAdmissionController(meterRegistry, 1, 1, 10, 1, 10_000,
+                1.5, 0.2, now::get);
+        permit(controller);
+        controller.acquire();
+
+        CompletableFuture<Optional<LoginAdmissionController.Permit>> third = controller.acquire();
+
+        assertTrue(third.isDone());
+        assertTrue(third.join().isEmpty());
+        assertEquals(1.0, meterRegistry.get("user.login.admission.rejected").tag("reason", "queue_full").counter().count());
+    }
+
+    @Test
+    void retryAfterCoversTheBacklog() {
+        LoginAdmissionController controller = controller(2, 1, 10_000);
+        // Baseline round trip of three seconds
+        LoginAdmissionController.Permit first = permit(controller);
+        now.addAndGet(3_000 * MILLIS);
+        first.success();
+        permit(controller);
+        permit(controller);
+        controller.acquire();
+        controller.acquire();
+
+        // Four logins ahead at two at a time, three seconds each
+        assertEquals(6, controller.retryAfterSeconds());
+    }
+
+    // Each round fills the current limit, lets the round trip pass, and completes every permit
+    private void runRounds(LoginAdmissionController controller, int rounds, long rttNanos) {
+        for (int round = 0; round < rounds; round++) {
+            List<LoginAdmissionController.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < (int) limit(); i++) {
+                permits.add(permit(controller));
+            }
+            now.addAndGet(rttNanos);
+            permits.forEach(LoginAdmissionController.Permit::success);
+        }
+    }
+
+    private LoginAdmissionController controller(int initialLimit, int minLimit, long maxWaitMillis) {
+        return new LoginAdmissionController(meterRegistry, initialLimit, minLimit, 200, 100, maxWaitMillis,
+                1.5, 0.2, now::get);
+    }
+
+    private static LoginAdmissionController.Permit permit(LoginAdmissionController controller) {
+        return controller.acquire().join().orElseThrow();
+    }
+
+    private double limit() {
+        return meterRegistry.get("user.login.admission.limit").gauge().value();
+    }
+}
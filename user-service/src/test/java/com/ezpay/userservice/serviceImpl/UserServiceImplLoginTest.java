@@ -0,0 +1,67 @@
+package com.ezpay.userservice.serviceImpl;
+
+import com.ezpay.userservice.domain.User;
+import com.ezpay.userservice.dto.records;
+import com.ezpay.userservice.repository.UserRepository;
+import com.ezpay.userservice.service.UserCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts database round trips on the login path. Known users are found through the cache before
+ * {@code login} is called; {@code login} itself is one upsert whether or not the number exists.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserServiceImplLoginTest {
+
+    private static final String MOBILE = "+919876543210";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserCache userCache;
+
+    @InjectMocks
+    private UserServiceImpl userService;
+
+    private final records.LoginRequest request =
+            new records.LoginRequest(null, null, "device-1", "123456", MOBILE, null);
+
+    @Test
+    void existingUserComesBackFromTheUpsert() {
+        User existing = new User();
+        existing.setTemporaryUser(false);
+        when(userRepository.upsertTemporaryUser(eq(MOBILE), anyString())).thenReturn(existing);
+
+        assertSame(existing, userService.login(request));
+
+        verify(userRepository, times(1)).upsertTemporaryUser(eq(MOBILE), anyString());
+        verifyNoMoreInteractions(userRepository);
+        verifyNoInteractions(userCache);
+    }
+
+    @Test
+    void firstTimeLoginIsASingleStatement() {
+        User created = new User();
+        when(userRepository.upsertTemporaryUser(eq(MOBILE), anyString())).thenReturn(created);
+
+        assertSame(created, userService.login(request));
+
+        verify(userRepository, times(1)).upsertTemporaryUser(eq(MOBILE), anyString());
+        verifyNoMoreInteractions(userRepository);
+        verifyNoInteractions(userCache);
+    }
+}